@@ -1,7 +1,9 @@
 package br.ufg.inf.integrador;
 
 import br.ufg.inf.integrador.redis.RedisListener;
+import br.ufg.inf.integrador.redis.RedisStreamListener;
 import br.ufg.inf.integrador.routes.CrudTransformRoute;
+import br.ufg.inf.publicador.CrudTransport;
 import org.apache.camel.CamelContext;
 import org.apache.camel.impl.DefaultCamelContext;
 
@@ -11,8 +13,12 @@ public class Main {
         context.addRoutes(new CrudTransformRoute());
         context.start();
 
-        // Produz mensagem para rota a partir do Redis
-        new RedisListener(context.createProducerTemplate()).start();
+        // Produz mensagem para rota a partir do Redis (-Dcrud.transport=pubsub|stream)
+        if (CrudTransport.fromSystemProperty() == CrudTransport.STREAM) {
+            new RedisStreamListener(context.createProducerTemplate()).start();
+        } else {
+            new RedisListener(context.createProducerTemplate()).start();
+        }
 
         Thread.currentThread().join(); // mantém aplicação viva
     }
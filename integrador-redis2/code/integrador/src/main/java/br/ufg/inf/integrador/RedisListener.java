@@ -1,5 +1,8 @@
 package br.ufg.inf.integrador.redis;
 
+import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudOperationCodec;
+import br.ufg.inf.publicador.CrudTransport;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
@@ -15,20 +18,23 @@ public class RedisListener {
 
     public void start() {
         RedisClient client = RedisClient.create("redis://localhost:6379");
-        StatefulRedisPubSubConnection<String, String> connection = client.connectPubSub();
+        StatefulRedisPubSubConnection<String, byte[]> connection = client.connectPubSub(CrudTransport.REDIS_CODEC);
 
-        connection.addListener(new RedisPubSubAdapter<String, String>() {
+        connection.addListener(new RedisPubSubAdapter<String, byte[]>() {
             @Override
-            public void message(String channel, String message) {
-                System.out.printf("🔔 [%s] %s%n", channel, message);
-
-                // Envia a mensagem para o Camel
-                producer.sendBody("direct:crud", message);
+            public void message(String channel, byte[] message) {
+                // JSON ou binário, avulsa ou em quadro: decodificada uma única vez, antes da rota
+                for (CrudOperation op : CrudOperationCodec.decodeAll(message)) {
+                    System.out.printf("🔔 [%s] %s%n", channel, op);
+
+                    // Envia a mensagem para o Camel
+                    producer.sendBody("direct:crud", op);
+                }
             }
         });
 
-        connection.sync().subscribe("crud-channel");
+        connection.sync().subscribe(CrudTransport.CHANNEL);
 
-        System.out.println("🟢 Escutando canal Redis: crud-channel");
+        System.out.println("🟢 Escutando canal Redis: " + CrudTransport.CHANNEL);
     }
 }
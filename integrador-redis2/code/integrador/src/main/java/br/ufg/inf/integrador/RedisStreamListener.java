@@ -0,0 +1,312 @@
+package br.ufg.inf.integrador.redis;
+
+import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudOperationCodec;
+import br.ufg.inf.publicador.CrudTransport;
+import io.lettuce.core.Consumer;
+import io.lettuce.core.Limit;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.XAutoClaimArgs;
+import io.lettuce.core.XGroupCreateArgs;
+import io.lettuce.core.XReadArgs;
+import io.lettuce.core.XReadArgs.StreamOffset;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.models.stream.ClaimedMessages;
+import io.lettuce.core.models.stream.PendingMessage;
+import org.apache.camel.ProducerTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consome as operações CRUD do stream {@code crud-stream} como membro de um
+ * grupo de consumidores ({@code XREADGROUP}).
+ *
+ * Cada lote lido é decodificado ({@link CrudOperationCodec}, JSON ou
+ * binário) e entregue à rota {@code direct:crud}; só as mensagens
+ * processadas sem erro são confirmadas ({@code XACK}). O que não foi
+ * confirmado continua na lista de pendentes do grupo:
+ * <ul>
+ *   <li>ao iniciar, o consumidor relê as próprias pendências, deixadas por
+ *       uma execução anterior interrompida;</li>
+ *   <li>periodicamente, assume ({@code XAUTOCLAIM}) pendências de qualquer
+ *       consumidor paradas há mais de {@link #CLAIM_MIN_IDLE}.</li>
+ * </ul>
+ * A entrega é "pelo menos uma vez": uma mensagem processada cuja
+ * confirmação se perdeu pode ser entregue de novo. Uma entrada com um
+ * quadro de {@code BatchingPublisher} só é confirmada se todas as suas
+ * operações forem processadas; senão, o quadro inteiro é reentregue.
+ *
+ * Uma mensagem que falha em {@code maxDeliveries} entregas (propriedade
+ * {@code crud.maxDeliveries}, padrão {@value #DEFAULT_MAX_DELIVERIES}) não
+ * volta mais à rota: é copiada para o stream {@link #DEAD_LETTER_KEY}, com
+ * o id original, o número de entregas e o erro, e então confirmada.
+ */
+public class RedisStreamListener {
+
+    public static final String GROUP = "integrador";
+
+    /** Stream que recebe as mensagens que esgotaram as entregas. */
+    public static final String DEAD_LETTER_KEY = CrudTransport.STREAM_KEY + "-dead";
+
+    public static final int DEFAULT_MAX_DELIVERIES = 5;
+
+    private static final int BATCH_SIZE = 100;
+    private static final Duration BLOCK = Duration.ofSeconds(2);
+    private static final Duration CLAIM_MIN_IDLE = Duration.ofSeconds(30);
+    private static final long CLAIM_INTERVAL_MILLIS = 10_000;
+    private static final XAddArgs DEAD_LETTER_ARGS =
+        XAddArgs.Builder.maxlen(CrudTransport.STREAM_MAXLEN).approximateTrimming();
+
+    private final ProducerTemplate producer;
+    private final String redisUri;
+    private final Consumer<String> consumer;
+    private final long maxDeliveries;
+    private volatile boolean running;
+    private RedisClient client;
+    private StatefulRedisConnection<String, byte[]> connection;
+    private Thread worker;
+
+    /**
+     * Usa o nome de consumidor da propriedade {@code crud.consumer}, ou
+     * {@code integrador-1}. O nome deve ser o mesmo entre reinícios para que
+     * as próprias pendências sejam retomadas.
+     */
+    public RedisStreamListener(ProducerTemplate producer) {
+        this(producer, "redis://localhost:6379", System.getProperty("crud.consumer", "integrador-1"),
+            Integer.getInteger("crud.maxDeliveries", DEFAULT_MAX_DELIVERIES));
+    }
+
+    public RedisStreamListener(ProducerTemplate producer, String redisUri, String consumerName) {
+        this(producer, redisUri, consumerName, DEFAULT_MAX_DELIVERIES);
+    }
+
+    /**
+     * @param maxDeliveries Entregas com falha após as quais a mensagem vai
+     *        para {@link #DEAD_LETTER_KEY}
+     */
+    public RedisStreamListener(ProducerTemplate producer, String redisUri, String consumerName, int maxDeliveries) {
+        if (maxDeliveries <= 0) {
+            throw new IllegalArgumentException("maxDeliveries deve ser positivo: " + maxDeliveries);
+        }
+        this.producer = producer;
+        this.redisUri = redisUri;
+        this.consumer = Consumer.from(GROUP, consumerName);
+        this.maxDeliveries = maxDeliveries;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        client = RedisClient.create(redisUri);
+        connection = client.connect(CrudTransport.REDIS_CODEC);
+        createGroup(connection.sync());
+        running = true;
+        worker = new Thread(this::run, "redis-stream-listener");
+        worker.start();
+
+        System.out.println("🟢 Consumindo stream Redis: " + CrudTransport.STREAM_KEY
+            + " (grupo " + GROUP + ", consumidor " + consumer.getName() + ")");
+    }
+
+    /**
+     * Cria o grupo (e o stream, se preciso) a partir do início do stream;
+     * um grupo já existente é mantido com a posição que tinha.
+     */
+    private void createGroup(RedisCommands<String, byte[]> redis) {
+        try {
+            redis.xgroupCreate(StreamOffset.from(CrudTransport.STREAM_KEY, "0"), GROUP,
+                XGroupCreateArgs.Builder.mkstream());
+        } catch (RedisCommandExecutionException e) {
+            if (e.getMessage() == null || !e.getMessage().startsWith("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    private void run() {
+        RedisCommands<String, byte[]> redis = connection.sync();
+        // pendências desta mesma identidade, de uma execução anterior
+        drainPending(redis);
+        long nextClaim = System.currentTimeMillis() + CLAIM_INTERVAL_MILLIS;
+        while (running) {
+            try {
+                List<StreamMessage<String, byte[]>> messages = readGroup(redis,
+                    XReadArgs.Builder.block(BLOCK).count(BATCH_SIZE),
+                    StreamOffset.lastConsumed(CrudTransport.STREAM_KEY));
+                process(redis, messages);
+                if (System.currentTimeMillis() >= nextClaim) {
+                    claimIdle(redis);
+                    nextClaim = System.currentTimeMillis() + CLAIM_INTERVAL_MILLIS;
+                }
+            } catch (RuntimeException e) {
+                if (running) {
+                    System.out.println(e);
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Relê, em lotes, as mensagens entregues a este consumidor e ainda não
+     * confirmadas. Para se um lote inteiro falhar, deixando o restante para
+     * o {@code XAUTOCLAIM}.
+     */
+    private void drainPending(RedisCommands<String, byte[]> redis) {
+        String lastId = "0";
+        while (running) {
+            List<StreamMessage<String, byte[]>> messages;
+            try {
+                messages = readGroup(redis, XReadArgs.Builder.count(BATCH_SIZE),
+                    StreamOffset.from(CrudTransport.STREAM_KEY, lastId));
+            } catch (RuntimeException e) {
+                System.out.println(e);
+                return;
+            }
+            if (messages.isEmpty() || process(redis, messages) == 0) {
+                return;
+            }
+            lastId = messages.get(messages.size() - 1).getId();
+        }
+    }
+
+    /**
+     * {@code XREADGROUP} de um único stream. O parâmetro varargs de
+     * {@code xreadgroup} é genérico, o que obriga a criar um array genérico
+     * a cada chamada; aqui ele tem sempre um só elemento, do tipo declarado,
+     * e o Lettuce apenas o percorre, então a conversão não verificada é
+     * segura.
+     */
+    @SuppressWarnings("unchecked")
+    private List<StreamMessage<String, byte[]>> readGroup(RedisCommands<String, byte[]> redis,
+            XReadArgs args, StreamOffset<String> offset) {
+        return redis.xreadgroup(consumer, args, offset);
+    }
+
+    /**
+     * Assume as pendências paradas há mais de {@link #CLAIM_MIN_IDLE}, de
+     * consumidores que caíram ou travaram, e as processa.
+     */
+    private void claimIdle(RedisCommands<String, byte[]> redis) {
+        String start = "0-0";
+        do {
+            ClaimedMessages<String, byte[]> claimed = redis.xautoclaim(CrudTransport.STREAM_KEY,
+                XAutoClaimArgs.Builder.xautoclaim(consumer, CLAIM_MIN_IDLE, start).count(BATCH_SIZE));
+            if (!claimed.getMessages().isEmpty()) {
+                System.out.println("♻️ Retomando " + claimed.getMessages().size() + " mensagens pendentes");
+                process(redis, claimed.getMessages());
+            }
+            start = claimed.getId();
+        } while (running && !"0-0".equals(start));
+    }
+
+    /**
+     * Entrega as mensagens à rota e confirma as processadas em um único
+     * {@code XACK}, junto com as que esgotaram as entregas e foram para
+     * {@link #DEAD_LETTER_KEY}.
+     * @return Número de mensagens confirmadas
+     */
+    private int process(RedisCommands<String, byte[]> redis, List<StreamMessage<String, byte[]>> messages) {
+        List<String> done = new ArrayList<>(messages.size());
+        for (StreamMessage<String, byte[]> message : messages) {
+            byte[] body = message.getBody().get(CrudTransport.FIELD);
+            try {
+                if (body != null) {
+                    for (CrudOperation op : CrudOperationCodec.decodeAll(body)) {
+                        System.out.printf("🔔 [%s] %s%n", message.getId(), op);
+                        producer.sendBody("direct:crud", op);
+                    }
+                }
+                done.add(message.getId());
+            } catch (RuntimeException e) {
+                System.out.println("❌ Falha ao processar " + message.getId() + ": " + e);
+                if (deadLetter(redis, message, e)) {
+                    done.add(message.getId());
+                }
+            }
+        }
+        if (!done.isEmpty()) {
+            redis.xack(CrudTransport.STREAM_KEY, GROUP, done.toArray(new String[0]));
+        }
+        return done.size();
+    }
+
+    /**
+     * Copia para {@link #DEAD_LETTER_KEY} a mensagem que já falhou em
+     * {@link #maxDeliveries} entregas. A contagem é a do grupo
+     * ({@code XPENDING}), que inclui as entregas a outros consumidores e as
+     * retomadas por {@code XAUTOCLAIM}.
+     * @return true se a mensagem foi para o dead letter e pode ser confirmada
+     */
+    private boolean deadLetter(RedisCommands<String, byte[]> redis, StreamMessage<String, byte[]> message,
+            RuntimeException error) {
+        try {
+            List<PendingMessage> pending = redis.xpending(CrudTransport.STREAM_KEY, GROUP,
+                Range.create(message.getId(), message.getId()), Limit.from(1));
+            if (pending.isEmpty() || pending.get(0).getRedeliveryCount() < maxDeliveries) {
+                return false;
+            }
+            long deliveries = pending.get(0).getRedeliveryCount();
+            Map<String, byte[]> body = new LinkedHashMap<>(message.getBody());
+            body.put("id", utf8(message.getId()));
+            body.put("deliveries", utf8(Long.toString(deliveries)));
+            body.put("error", utf8(String.valueOf(error)));
+            redis.xadd(DEAD_LETTER_KEY, DEAD_LETTER_ARGS, body);
+            System.out.println("☠️ " + message.getId() + " falhou em " + deliveries
+                + " entregas; movida para " + DEAD_LETTER_KEY);
+            return true;
+        } catch (RuntimeException e) {
+            // continua pendente; nova tentativa no próximo XAUTOCLAIM
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(BLOCK.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Interrompe o consumo; mensagens lidas e não confirmadas permanecem
+     * pendentes no grupo.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(BLOCK.toMillis() * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+        if (client != null) {
+            client.shutdown();
+            client = null;
+        }
+    }
+}
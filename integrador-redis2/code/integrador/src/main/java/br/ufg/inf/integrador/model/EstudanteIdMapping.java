@@ -10,10 +10,10 @@ public class EstudanteIdMapping {
     @DatabaseField(id = true)
     private String idCanonico;
 
-    @DatabaseField
+    @DatabaseField(index = true)
     private String idSGA;
 
-    @DatabaseField
+    @DatabaseField(index = true)
     private String idSB;
 
     @DatabaseField
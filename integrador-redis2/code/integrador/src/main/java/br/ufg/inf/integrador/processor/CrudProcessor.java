@@ -2,6 +2,7 @@ package br.ufg.inf.integrador.processor;
 
 import br.ufg.inf.publicador.CrudOperation;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 
@@ -12,14 +13,18 @@ public class CrudProcessor implements Processor {
 
     @Override
     public void process(Exchange exchange) throws Exception {
-        String json = exchange.getIn().getBody(String.class);
-        System.out.println("🔍 JSON recebido no processador: " + json);
-        
-        CrudOperation op = gson.fromJson(json, CrudOperation.class);
-        System.out.println("🔍 CrudOperation parseada: " + op);
+        // Reaproveita a operação já decodificada pela rota, se houver
+        CrudOperation op = exchange.getProperty("CrudOriginal", CrudOperation.class);
+        if (op == null) {
+            String json = exchange.getIn().getBody(String.class);
+            System.out.println("🔍 JSON recebido no processador: " + json);
+
+            op = gson.fromJson(json, CrudOperation.class);
 
-        // Armazena a operação original no Exchange para uso posterior
-        exchange.setProperty("CrudOriginal", op);
+            // Armazena a operação original no Exchange para uso posterior
+            exchange.setProperty("CrudOriginal", op);
+        }
+        System.out.println("🔍 CrudOperation parseada: " + op);
 
         // Verifica se é uma operação CREATE do ORM
         if (op.getOperation() == CrudOperation.OperationType.CREATE
@@ -55,7 +60,15 @@ public class CrudProcessor implements Processor {
         String entidade = op.getEntity();
         
         if ("Estudante".equalsIgnoreCase(entidade)) {
-            return estudanteProcessor.estudanteParaUsuario(op.getData());
+            // Árvore JSON da entidade: convertida uma vez e reaproveitada na persistência
+            JsonObject dados;
+            try {
+                dados = op.getDataJson().getAsJsonObject();
+            } catch (RuntimeException e) {
+                System.err.println("❌ Dados da entidade inválidos: " + e.getMessage());
+                return null;
+            }
+            return estudanteProcessor.estudanteParaUsuario(dados);
         }
 
         // Futuro: suporte a outras entidades como Professor, Disciplina, etc.
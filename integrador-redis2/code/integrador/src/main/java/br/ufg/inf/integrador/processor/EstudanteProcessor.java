@@ -24,7 +24,22 @@ public class EstudanteProcessor {
      */
     public String estudanteParaUsuario(String dadosJson) {
         try {
-            JsonObject estudanteJson = JsonParser.parseString(dadosJson).getAsJsonObject();
+            return estudanteParaUsuario(JsonParser.parseString(dadosJson).getAsJsonObject());
+        } catch (Exception e) {
+            System.err.println("❌ [EstudanteProcessor] Erro ao transformar estudante para usuario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Transforma os dados de um estudante, já em árvore JSON (ver
+     * {@link br.ufg.inf.publicador.CrudOperation#getDataJson()}), em um objeto Usuario.
+     * 
+     * @param estudanteJson Objeto JSON com os dados do estudante
+     * @return JSON do objeto Usuario serializado, ou null em caso de erro
+     */
+    public String estudanteParaUsuario(JsonObject estudanteJson) {
+        try {
 
             String nomeCompleto = estudanteJson.has("nomeCompleto") ? 
                 estudanteJson.get("nomeCompleto").getAsString() : "";
@@ -69,7 +84,22 @@ public class EstudanteProcessor {
      */
     public EstudanteCanonico estudanteParaEstudanteCanonico(String dadosJson, String idCanonico) {
         try {
-            JsonObject estudanteJson = JsonParser.parseString(dadosJson).getAsJsonObject();
+            return estudanteParaEstudanteCanonico(JsonParser.parseString(dadosJson).getAsJsonObject(), idCanonico);
+        } catch (Exception e) {
+            System.err.println("❌ [EstudanteProcessor] Erro ao transformar estudante para EstudanteCanonico: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Transforma os dados de um estudante, já em árvore JSON, em um objeto EstudanteCanonico.
+     * 
+     * @param estudanteJson Objeto JSON com os dados do estudante
+     * @param idCanonico ID canônico a ser atribuído ao estudante
+     * @return Objeto EstudanteCanonico populado, ou null em caso de erro
+     */
+    public EstudanteCanonico estudanteParaEstudanteCanonico(JsonObject estudanteJson, String idCanonico) {
+        try {
 
             String nomeCompleto = estudanteJson.has("nomeCompleto") ? 
                 estudanteJson.get("nomeCompleto").getAsString() : "";
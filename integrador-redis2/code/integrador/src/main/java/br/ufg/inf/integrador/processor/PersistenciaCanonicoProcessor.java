@@ -2,9 +2,9 @@ package br.ufg.inf.integrador.processor;
 
 import br.ufg.inf.integrador.model.EstudanteCanonico;
 import br.ufg.inf.integrador.model.EstudanteIdMapping;
+import br.ufg.inf.integrador.service.EstudanteCanonicoService;
 import br.ufg.inf.publicador.CrudOperation;
 import br.ufg.inf.repositorio.Database;
-import br.ufg.inf.repositorio.Repositorio;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -18,15 +18,10 @@ public class PersistenciaCanonicoProcessor implements Processor {
 
     private final Gson gson = new Gson();
     private final EstudanteProcessor estudanteProcessor = new EstudanteProcessor();
-    private final Repositorio<EstudanteCanonico, String> estudanteRepo;
-    private final Repositorio<EstudanteIdMapping, String> mappingRepo;
+    private final EstudanteCanonicoService estudanteService;
 
     public PersistenciaCanonicoProcessor() {
-        Database db = new Database("integrador.db");
-        this.estudanteRepo = new Repositorio<>(db, EstudanteCanonico.class);
-        this.estudanteRepo.setEnableCrudPublishing(false); // Desabilita publicação de CRUD para evitar loops
-        this.mappingRepo = new Repositorio<>(db, EstudanteIdMapping.class);
-        this.mappingRepo.setEnableCrudPublishing(false); // Desabilita publicação de CRUD para evitar loops
+        this.estudanteService = new EstudanteCanonicoService(new Database("integrador.db"));
     }
 
     @Override
@@ -44,7 +39,7 @@ public class PersistenciaCanonicoProcessor implements Processor {
 
         CrudOperation op = exchange.getProperty("CrudOriginal", CrudOperation.class);
         String idSGA = null;
-        JsonObject json = JsonParser.parseString(op.getData()).getAsJsonObject();
+        JsonObject json = op.getDataJson().getAsJsonObject();
         if (json.has("id")) {
             idSGA = json.get("id").getAsString();
         }
@@ -52,7 +47,7 @@ public class PersistenciaCanonicoProcessor implements Processor {
         String idCanonico = UUID.randomUUID().toString();
 
         // Usa o EstudanteProcessor para criar o EstudanteCanonico
-        EstudanteCanonico ec = estudanteProcessor.estudanteParaEstudanteCanonico(op.getData(), idCanonico);
+        EstudanteCanonico ec = estudanteProcessor.estudanteParaEstudanteCanonico(json, idCanonico);
         
         if (ec == null) {
             System.err.println("❌ Erro ao criar EstudanteCanonico");
@@ -65,8 +60,7 @@ public class PersistenciaCanonicoProcessor implements Processor {
         map.setIdSB(idSB);
         map.setUltimaAtualizacao(Instant.now().toString());
 
-        estudanteRepo.create(ec);
-        mappingRepo.create(map);
+        estudanteService.salvar(ec, map);
 
         System.out.println("✅ EstudanteCanonico persistido no SQLite");
         System.out.println("✅ EstudanteIdMapping persistido no SQLite");
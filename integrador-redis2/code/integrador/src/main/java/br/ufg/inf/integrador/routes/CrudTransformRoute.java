@@ -3,6 +3,7 @@ package br.ufg.inf.integrador.routes;
 import br.ufg.inf.integrador.processor.CrudProcessor;
 import br.ufg.inf.integrador.processor.PersistenciaCanonicoProcessor;
 import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudOperationCodec;
 import com.google.gson.Gson;
 import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
@@ -49,8 +50,10 @@ public class CrudTransformRoute extends RouteBuilder {
      * e configurar os headers apropriados para o método HTTP e endpoint
      */
     private void setOperationHeaders(Exchange exchange) throws Exception {
-        String json = exchange.getIn().getBody(String.class);
-        CrudOperation op = gson.fromJson(json, CrudOperation.class);
+        CrudOperation op = toCrudOperation(exchange.getIn().getBody());
+
+        // Operação decodificada uma única vez; os processadores a reutilizam
+        exchange.setProperty("CrudOriginal", op);
         
         // Mapear operação CRUD para método HTTP
         String httpMethod = mapOperationToHttpMethod(op.getOperation());
@@ -67,6 +70,20 @@ public class CrudTransformRoute extends RouteBuilder {
         System.out.println("Headers configurados - Método: " + httpMethod + ", Endpoint: " + endpoint);
     }
 
+    /**
+     * Aceita a operação já decodificada pelos listeners ou a mensagem
+     * original, em JSON ou no formato binário.
+     */
+    private CrudOperation toCrudOperation(Object body) {
+        if (body instanceof CrudOperation) {
+            return (CrudOperation) body;
+        }
+        if (body instanceof byte[]) {
+            return CrudOperationCodec.decode((byte[]) body);
+        }
+        return gson.fromJson(body.toString(), CrudOperation.class);
+    }
+
     private String mapOperationToHttpMethod(CrudOperation.OperationType operation) {
         switch (operation) {
             case CREATE: return "POST";
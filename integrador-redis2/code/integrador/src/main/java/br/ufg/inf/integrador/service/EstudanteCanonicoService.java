@@ -0,0 +1,52 @@
+package br.ufg.inf.integrador.service;
+
+import br.ufg.inf.integrador.model.EstudanteCanonico;
+import br.ufg.inf.integrador.model.EstudanteIdMapping;
+import br.ufg.inf.repositorio.Database;
+import br.ufg.inf.repositorio.Repositorio;
+
+import java.util.List;
+
+/**
+ * Acesso aos estudantes canônicos do integrador e ao mapeamento entre os
+ * IDs do SGA, do SB e o ID canônico.
+ *
+ * A busca por nome usa o índice textual do {@link Repositorio}. Como a
+ * chave de {@link EstudanteCanonico} é texto, o índice aponta para o rowid
+ * implícito da tabela, que um VACUUM pode renumerar; por isso o índice é
+ * reconstruído sempre que o serviço é criado.
+ */
+public class EstudanteCanonicoService {
+
+    private final Repositorio<EstudanteCanonico, String> estudanteRepo;
+    private final Repositorio<EstudanteIdMapping, String> mappingRepo;
+
+    public EstudanteCanonicoService(Database db) {
+        this.estudanteRepo = new Repositorio<>(db, EstudanteCanonico.class);
+        this.estudanteRepo.setEnableCrudPublishing(false); // Desabilita publicação de CRUD para evitar loops
+        this.estudanteRepo.enableFullTextSearch("nomeCompleto", "prenome", "sobrenome");
+        this.estudanteRepo.rebuildFullTextIndex();
+        this.mappingRepo = new Repositorio<>(db, EstudanteIdMapping.class);
+        this.mappingRepo.setEnableCrudPublishing(false); // Desabilita publicação de CRUD para evitar loops
+    }
+
+    /**
+     * Grava um estudante canônico e o mapeamento dos seus IDs.
+     * @param estudante Estudante canônico
+     * @param mapping Mapeamento entre os IDs do SGA, do SB e o canônico
+     */
+    public void salvar(EstudanteCanonico estudante, EstudanteIdMapping mapping) {
+        estudanteRepo.create(estudante);
+        mappingRepo.create(mapping);
+    }
+
+    /**
+     * Busca estudantes canônicos por nome, com as palavras tratadas como prefixo.
+     * @param nome Nome ou parte do nome
+     * @param limite Número máximo de resultados
+     * @return Estudantes mais relevantes primeiro
+     */
+    public List<EstudanteCanonico> buscarPorNome(String nome, int limite) {
+        return estudanteRepo.search(nome, limite);
+    }
+}
@@ -0,0 +1,97 @@
+package br.ufg.inf.integrador;
+
+import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudOperationCodec;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mede, por mensagem, o custo de CPU e de alocação da leitura de uma
+ * operação CRUD nos passos da rota {@code crud-transformer}, para cada
+ * formato de {@link CrudOperationCodec}.
+ *
+ * O caso "json (antes)" repete o que a rota fazia: o envelope convertido
+ * duas vezes (cabeçalhos e {@code CrudProcessor}) e o JSON da entidade três
+ * vezes ({@code CrudProcessor} e duas em {@code PersistenciaCanonicoProcessor}).
+ * Os demais decodificam uma vez e usam {@link CrudOperation#getDataJson()}.
+ * Os processadores em si (que escrevem no console e chamam o SB) ficam de fora.
+ *
+ * Não é executado pelo surefire. Para rodar:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=br.ufg.inf.integrador.CrudEnvelopeBenchmark \
+ *     -Dexec.classpathScope=test -Dexec.args="200000"
+ * </pre>
+ */
+public class CrudEnvelopeBenchmark {
+
+    private static final String DATA = "{\"id\":4217,\"nomeCompleto\":\"Maria \\\"Duda\\\" Souza\","
+        + "\"dataDeNascimento\":\"2001-03-14\",\"matricula\":202504217,\"versao\":3}";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private interface Route {
+        int run(byte[] message);
+    }
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        CrudOperation op = new CrudOperation("Estudante", CrudOperation.OperationType.CREATE,
+            CrudOperation.Source.ORM, DATA, "2025-07-25T10:30:00.123456");
+
+        byte[] json = CrudOperationCodec.encode(op, CrudOperationCodec.Format.JSON);
+        byte[] envelope = CrudOperationCodec.encode(op, CrudOperationCodec.Format.ENVELOPE);
+        byte[] binary = CrudOperationCodec.encode(op, CrudOperationCodec.Format.BINARY);
+
+        System.out.printf("%-16s %8s %10s %12s%n", "formato", "bytes", "ns/msg", "alocado/msg");
+        run("json (antes)", json, messages, CrudEnvelopeBenchmark::antes);
+        run("json", json, messages, CrudEnvelopeBenchmark::depois);
+        run("envelope", envelope, messages, CrudEnvelopeBenchmark::depois);
+        run("binary", binary, messages, CrudEnvelopeBenchmark::depois);
+    }
+
+    /** Rota original: envelope e dados convertidos várias vezes. */
+    private static int antes(byte[] message) {
+        CrudOperation cabecalhos = CrudOperationCodec.decode(message);
+        CrudOperation op = CrudOperationCodec.decode(message);
+        int total = cabecalhos.getEntity().length();
+        for (int i = 0; i < 3; i++) {
+            total += campos(JsonParser.parseString(op.getData()).getAsJsonObject());
+        }
+        return total;
+    }
+
+    /** Rota atual: uma decodificação e a árvore dos dados reaproveitada. */
+    private static int depois(byte[] message) {
+        CrudOperation op = CrudOperationCodec.decode(message);
+        int total = op.getEntity().length();
+        for (int i = 0; i < 3; i++) {
+            total += campos(op.getDataJson().getAsJsonObject());
+        }
+        return total;
+    }
+
+    private static int campos(JsonObject json) {
+        return json.get("nomeCompleto").getAsString().length() + json.get("matricula").getAsInt();
+    }
+
+    private static void run(String name, byte[] message, int messages, Route route) {
+        long sink = 0;
+        for (int i = 0; i < messages / 2; i++) {
+            sink += route.run(message);
+        }
+        long thread = Thread.currentThread().getId();
+        long allocated = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            sink += route.run(message);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+
+        System.out.printf("%-16s %8d %10.0f %12d%s%n", name, message.length,
+            (double) elapsed / messages, allocated / messages, sink == 42 ? " " : "");
+    }
+}
@@ -0,0 +1,93 @@
+package br.ufg.inf.integrador;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+
+import br.ufg.inf.integrador.model.EstudanteCanonico;
+import br.ufg.inf.integrador.model.EstudanteIdMapping;
+import br.ufg.inf.integrador.service.EstudanteCanonicoService;
+import br.ufg.inf.repositorio.Database;
+
+/**
+ * Classe de teste para EstudanteCanonicoService, sobre um banco SQLite
+ * temporário.
+ */
+public class EstudanteCanonicoServiceTest {
+
+    private static final String BANCO = "test_integrador.sqlite";
+
+    private Database database;
+
+    @BeforeEach
+    public void setUp() {
+        new File(BANCO).delete();
+        database = new Database(BANCO);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.close();
+        new File(BANCO).delete();
+    }
+
+    private static EstudanteCanonico estudante(String id, String prenome, String sobrenome) {
+        EstudanteCanonico estudante = new EstudanteCanonico();
+        estudante.setIdCanonico(id);
+        estudante.setPrenome(prenome);
+        estudante.setSobrenome(sobrenome);
+        estudante.setNomeCompleto(prenome + " " + sobrenome);
+        return estudante;
+    }
+
+    private static EstudanteIdMapping mapping(String id) {
+        EstudanteIdMapping mapping = new EstudanteIdMapping();
+        mapping.setIdCanonico(id);
+        mapping.setIdSGA(id + "-sga");
+        return mapping;
+    }
+
+    @Test
+    public void testBuscarPorNome() {
+        EstudanteCanonicoService service = new EstudanteCanonicoService(database);
+        service.salvar(estudante("a", "Maria", "da Silva"), mapping("a"));
+        service.salvar(estudante("b", "Mário", "Souza"), mapping("b"));
+
+        List<EstudanteCanonico> encontrados = service.buscarPorNome("mar sil", 10);
+        assertEquals(1, encontrados.size());
+        assertEquals("a", encontrados.get(0).getIdCanonico());
+        // acentos ignorados
+        encontrados = service.buscarPorNome("mario", 10);
+        assertEquals(1, encontrados.size());
+        assertEquals("b", encontrados.get(0).getIdCanonico());
+    }
+
+    @Test
+    public void testIndiceReconstruidoAoIniciar() throws Exception {
+        EstudanteCanonicoService service = new EstudanteCanonicoService(database);
+        service.salvar(estudante("a", "Ana", "Lima"), mapping("a"));
+        service.salvar(estudante("b", "Bruno", "Costa"), mapping("b"));
+        service.salvar(estudante("c", "Carla", "Rocha"), mapping("c"));
+
+        // simula um VACUUM que renumera os rowids: ele não passa pelos
+        // gatilhos, e o índice fica apontando para os rowids antigos
+        Dao<EstudanteCanonico, String> dao = DaoManager.createDao(database.getConnection(), EstudanteCanonico.class);
+        dao.executeRaw("DROP TRIGGER estudante_canonico_fts_au");
+        dao.executeRaw("UPDATE estudante_canonico SET rowid = rowid + 10");
+        assertTrue(service.buscarPorNome("carla", 10).isEmpty());
+
+        // ao reiniciar, o serviço reconstrói o índice
+        service = new EstudanteCanonicoService(database);
+        List<EstudanteCanonico> encontrados = service.buscarPorNome("carla", 10);
+        assertEquals(1, encontrados.size());
+        assertEquals("c", encontrados.get(0).getIdCanonico());
+        assertEquals("b", service.buscarPorNome("bruno", 10).get(0).getIdCanonico());
+    }
+}
@@ -0,0 +1,210 @@
+package br.ufg.inf.integrador;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.gson.Gson;
+
+import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudPublisher;
+import br.ufg.inf.publicador.QueuedPublisher;
+
+/**
+ * Classe de teste para QueuedPublisher, com um destino que só publica
+ * depois de liberado (um broker lento).
+ */
+public class QueuedPublisherTest {
+
+    private static final Path SPILL = Paths.get("test-crud-spill.jsonl");
+
+    /** Destino que bloqueia a thread de envio até {@link #liberar()}. */
+    private static class DestinoLento implements CrudPublisher {
+        final CountDownLatch portao = new CountDownLatch(1);
+        final CountDownLatch ocupado = new CountDownLatch(1);
+        final List<String> recebidas = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletionStage<?> publishOperationAsync(CrudOperation op) {
+            ocupado.countDown();
+            try {
+                portao.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recebidas.add(op.getData());
+            return CompletableFuture.completedFuture(1L);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        void liberar() {
+            portao.countDown();
+        }
+
+        /** Espera a thread de envio ficar presa no destino, com a fila já lida. */
+        void aguardarOcupado() throws InterruptedException {
+            assertTrue(ocupado.await(5, TimeUnit.SECONDS), "Thread de envio não chegou ao destino");
+        }
+    }
+
+    private DestinoLento destino;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        destino = new DestinoLento();
+        Files.deleteIfExists(SPILL);
+        Files.deleteIfExists(Paths.get(SPILL + ".draining"));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        destino.liberar();
+        Files.deleteIfExists(SPILL);
+        Files.deleteIfExists(Paths.get(SPILL + ".draining"));
+        Files.deleteIfExists(Paths.get(SPILL + ".draining.tmp"));
+    }
+
+    private static CrudOperation operacao(int i) {
+        return new CrudOperation("Estudante", CrudOperation.OperationType.CREATE,
+            CrudOperation.Source.ORM, "{\"id\":" + i + "}", "2025-07-25T10:30:00");
+    }
+
+    @Test
+    public void testDropOldestNaoBloqueiaQuemPublica() throws Exception {
+        try (QueuedPublisher fila = new QueuedPublisher(destino, 2,
+                QueuedPublisher.OverflowPolicy.DROP_OLDEST, 0, SPILL)) {
+            try {
+                fila.publishOperationAsync(operacao(0));
+                destino.aguardarOcupado();
+
+                long inicio = System.nanoTime();
+                List<CompletableFuture<?>> futuros = new ArrayList<>();
+                for (int i = 1; i <= 10; i++) {
+                    futuros.add(fila.publishOperationAsync(operacao(i)).toCompletableFuture());
+                }
+                assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(1), "Publicação não deve esperar pelo broker");
+                assertEquals(8, fila.getDropped());
+                assertEquals(2, fila.getQueueDepth());
+                assertEquals(2, fila.getMaxQueueDepth());
+                for (int i = 0; i < 8; i++) {
+                    assertTrue(futuros.get(i).isCompletedExceptionally(), "Operação " + (i + 1) + " deveria ter sido descartada");
+                }
+            } finally {
+                destino.liberar();
+            }
+            // só as mais recentes sobrevivem, depois da que já estava no destino
+            waitFor(() -> destino.recebidas.size() == 3);
+            assertEquals(List.of("{\"id\":0}", "{\"id\":9}", "{\"id\":10}"), destino.recebidas);
+        }
+    }
+
+    @Test
+    public void testBlockWithTimeoutRespeitaOPrazo() throws Exception {
+        try (QueuedPublisher fila = new QueuedPublisher(destino, 1,
+                QueuedPublisher.OverflowPolicy.BLOCK_WITH_TIMEOUT, 30, SPILL)) {
+            try {
+                fila.publishOperationAsync(operacao(0));
+                destino.aguardarOcupado();
+                fila.publishOperationAsync(operacao(1));
+
+                long inicio = System.nanoTime();
+                CompletableFuture<?> descartada = fila.publishOperationAsync(operacao(2)).toCompletableFuture();
+                long esperaMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+                assertTrue(esperaMillis >= 25 && esperaMillis < 1000, "Espera fora do prazo: " + esperaMillis + " ms");
+                assertTrue(descartada.isCompletedExceptionally());
+                assertEquals(1, fila.getDropped());
+                assertTrue(fila.getBlockedMillis() >= 25);
+            } finally {
+                destino.liberar();
+            }
+            waitFor(() -> destino.recebidas.size() == 2);
+        }
+    }
+
+    @Test
+    public void testSpillToDiskPreservaOrdem() throws Exception {
+        try (QueuedPublisher fila = new QueuedPublisher(destino, 2,
+                QueuedPublisher.OverflowPolicy.SPILL_TO_DISK, 0, SPILL)) {
+            try {
+                fila.publishOperationAsync(operacao(0));
+                destino.aguardarOcupado();
+                for (int i = 1; i < 20; i++) {
+                    fila.publishOperationAsync(operacao(i));
+                }
+                assertEquals(0, fila.getDropped());
+                assertEquals(17, fila.getSpilled());
+            } finally {
+                destino.liberar();
+            }
+            waitFor(() -> destino.recebidas.size() == 20);
+            for (int i = 0; i < 20; i++) {
+                assertEquals("{\"id\":" + i + "}", destino.recebidas.get(i));
+            }
+            assertEquals(fila.getSpilled(), fila.getReplayed());
+            assertTrue(fila.getAverageWaitMillis() > 0);
+        }
+    }
+
+    @Test
+    public void testReenvioDoDiscoEsperaConfirmacao() throws Exception {
+        // sobras de uma execução anterior
+        Files.write(SPILL, List.of(
+            new Gson().toJson(operacao(1)), new Gson().toJson(operacao(2))));
+        List<String> recebidas = new CopyOnWriteArrayList<>();
+        AtomicBoolean foraDoAr = new AtomicBoolean(true);
+        CrudPublisher instavel = new CrudPublisher() {
+            @Override
+            public CompletionStage<?> publishOperationAsync(CrudOperation op) {
+                if (foraDoAr.get()) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Redis fora do ar"));
+                }
+                recebidas.add(op.getData());
+                return CompletableFuture.completedFuture(1L);
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+
+        try (QueuedPublisher fila = new QueuedPublisher(instavel, 2,
+                QueuedPublisher.OverflowPolicy.SPILL_TO_DISK, 0, SPILL)) {
+            Path reenvio = Paths.get(SPILL + ".draining");
+            waitFor(() -> Files.exists(reenvio));
+            Thread.sleep(300); // algumas tentativas com o destino fora do ar
+            assertEquals(0, fila.getReplayed());
+            assertEquals(2, Files.readAllLines(reenvio).size());
+
+            foraDoAr.set(false);
+            waitFor(() -> recebidas.size() == 2);
+            assertEquals(List.of("{\"id\":1}", "{\"id\":2}"), recebidas);
+            waitFor(() -> !Files.exists(reenvio));
+            assertEquals(2, fila.getReplayed());
+        }
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (!condicao.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < limite, "Condição não atingida em 5 s");
+            Thread.sleep(10);
+        }
+    }
+}
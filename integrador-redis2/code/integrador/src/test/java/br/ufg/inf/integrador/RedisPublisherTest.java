@@ -6,7 +6,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import com.google.gson.Gson;
 
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import br.ufg.inf.publicador.BatchingPublisher;
 import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudOperationCodec;
 import br.ufg.inf.publicador.RedisPublisher;
 
 /**
@@ -50,6 +58,7 @@ public class RedisPublisherTest {
      */
     @AfterEach
     public void tearDown() {
+        redisPublisher.close();
         redisPublisher = null;
         operacaoTeste = null;
     }
@@ -108,6 +117,25 @@ public class RedisPublisherTest {
         }
     }
     
+    @Test
+    public void testPublishOperationAsyncNaoBloqueiaSemRedis() throws Exception {
+        // Um servidor que aceita a conexão TCP e nunca responde prende a
+        // conexão Lettuce até o timeout; quem publica não pode esperar por ela
+        try (ServerSocket mudo = new ServerSocket(0);
+             RedisPublisher publicador = new RedisPublisher(
+                 "redis://localhost:" + mudo.getLocalPort() + "?timeout=2s")) {
+            long inicio = System.nanoTime();
+            CompletableFuture<Long> resultado = publicador.publishOperationAsync(operacaoTeste).toCompletableFuture();
+            long esperaMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+            assertTrue(esperaMillis < 500, "Publicação esperou pela conexão: " + esperaMillis + " ms");
+            assertFalse(resultado.isDone(), "Publicação deve aguardar a conexão em segundo plano");
+            // a falha da conexão chega pelo CompletionStage
+            assertThrows(ExecutionException.class, () -> resultado.get(15, TimeUnit.SECONDS));
+            assertFalse(publicador.isConnected());
+        }
+    }
+
     @Test
     public void testCrudOperationComTodosOsTiposDeOperacao() {
         // Testa serialização com todos os tipos de operação
@@ -149,4 +177,152 @@ public class RedisPublisherTest {
             assertTrue(json.contains(fonte.toString()), "JSON deve conter o tipo de fonte " + fonte);
         }
     }
+
+    @Test
+    public void testCodecBinarioIdaEVolta() {
+        // Entidade conhecida e timestamp ISO usam a forma compacta;
+        // os demais casos caem para texto e nulos são preservados
+        CrudOperation[] operacoes = {
+            operacaoTeste,
+            new CrudOperation("TestEntity", CrudOperation.OperationType.UPDATE, CrudOperation.Source.ODM,
+                "{\"nome\":\"Ação \\\"teste\\\"\"}", "2025-07-25T10:30:00.123456"),
+            new CrudOperation("Turma", CrudOperation.OperationType.DELETE, CrudOperation.Source.ORM,
+                "{\"id\":7}", "25/07/2025"),
+            new CrudOperation()
+        };
+
+        for (CrudOperation op : operacoes) {
+            byte[] binario = CrudOperationCodec.encode(op, CrudOperationCodec.Format.BINARY);
+            assertTrue(CrudOperationCodec.isBinary(binario), "Mensagem binária deve começar pelo byte mágico");
+
+            CrudOperation decodificada = CrudOperationCodec.decode(binario);
+            assertEquals(op.getEntity(), decodificada.getEntity());
+            assertEquals(op.getOperation(), decodificada.getOperation());
+            assertEquals(op.getSource(), decodificada.getSource());
+            assertEquals(op.getData(), decodificada.getData());
+            assertEquals(op.getTimestamp(), decodificada.getTimestamp());
+        }
+    }
+
+    @Test
+    public void testCodecBinarioMenorQueJson() {
+        byte[] json = CrudOperationCodec.encode(operacaoTeste, CrudOperationCodec.Format.JSON);
+        byte[] binario = CrudOperationCodec.encode(operacaoTeste, CrudOperationCodec.Format.BINARY);
+
+        assertTrue(binario.length < json.length / 2,
+            "Binário (" + binario.length + " bytes) deve ter menos da metade do JSON (" + json.length + " bytes)");
+    }
+
+    @Test
+    public void testCodecDecodificaJsonLegado() {
+        // Consumidores atualizados continuam aceitando publicadores em JSON
+        byte[] json = new Gson().toJson(operacaoTeste).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        assertFalse(CrudOperationCodec.isBinary(json));
+
+        CrudOperation decodificada = CrudOperationCodec.decode(json);
+        assertEquals(operacaoTeste.getData(), decodificada.getData());
+        assertEquals(operacaoTeste.getTimestamp(), decodificada.getTimestamp());
+    }
+
+    @Test
+    public void testCodecRejeitaVersaoFutura() {
+        byte[] binario = CrudOperationCodec.encode(operacaoTeste, CrudOperationCodec.Format.BINARY);
+        binario[1] = (byte) (CrudOperationCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> CrudOperationCodec.decode(binario));
+    }
+
+    @Test
+    public void testCodecRejeitaOperacaoEOrigemDesconhecidas() {
+        byte[] binario = CrudOperationCodec.encode(operacaoTeste, CrudOperationCodec.Format.BINARY);
+        // [0] marcador, [1] versão, [2] operação, [3] origem
+        byte[] operacao = binario.clone();
+        operacao[2] = (byte) (CrudOperation.OperationType.values().length + 1);
+        assertThrows(IllegalArgumentException.class, () -> CrudOperationCodec.decode(operacao));
+        byte[] origem = binario.clone();
+        origem[3] = (byte) (CrudOperation.Source.values().length + 1);
+        assertThrows(IllegalArgumentException.class, () -> CrudOperationCodec.decode(origem));
+
+        // varint de 64 bits, negativo como long
+        byte[] negativa = new byte[binario.length + 9];
+        negativa[0] = binario[0];
+        negativa[1] = binario[1];
+        Arrays.fill(negativa, 2, 11, (byte) 0xFF);
+        negativa[11] = 0x01;
+        System.arraycopy(binario, 3, negativa, 12, binario.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> CrudOperationCodec.decode(negativa));
+    }
+
+    @Test
+    public void testEnvelopeComDadosAninhados() {
+        byte[] envelope = CrudOperationCodec.encode(operacaoTeste, CrudOperationCodec.Format.ENVELOPE);
+        String json = new String(envelope, java.nio.charset.StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"data\":{\"id\":1"), "data deve ir como objeto, sem escape: " + json);
+
+        // A árvore dos dados vem pronta da decodificação e é reaproveitada
+        CrudOperation decodificada = CrudOperationCodec.decode(envelope);
+        assertTrue(decodificada.hasDataJson());
+        assertSame(decodificada.getDataJson(), decodificada.getDataJson());
+        assertEquals("João", decodificada.getDataJson().getAsJsonObject().get("nome").getAsString());
+        assertEquals("João", decodificada.getData(java.util.Map.class).get("nome"));
+        assertEquals(operacaoTeste.getData(), decodificada.getData());
+    }
+
+    @Test
+    public void testJsonPadraoMantemDataComoTexto() {
+        // Consumidores antigos continuam recebendo data como texto
+        CrudOperation comArvore = new CrudOperation();
+        comArvore.setEntity("Estudante");
+        comArvore.setDataJson(com.google.gson.JsonParser.parseString(operacaoTeste.getData()));
+
+        com.google.gson.JsonObject json = com.google.gson.JsonParser
+            .parseString(new Gson().toJson(comArvore)).getAsJsonObject();
+        assertTrue(json.get("data").isJsonPrimitive());
+        assertEquals(operacaoTeste.getData(), json.get("data").getAsString());
+    }
+
+    @Test
+    public void testQuadroDecodificadoEmTodosOsFormatos() {
+        CrudOperation outra = new CrudOperation("Turma", CrudOperation.OperationType.DELETE,
+            CrudOperation.Source.ORM, "{\"id\":7}", "2025-07-25T10:31:00");
+
+        for (CrudOperationCodec.Format formato : CrudOperationCodec.Format.values()) {
+            java.util.List<byte[]> mensagens = java.util.List.of(
+                CrudOperationCodec.encode(operacaoTeste, formato),
+                CrudOperationCodec.encode(outra, formato));
+            byte[] quadro = CrudOperationCodec.encodeFrame(mensagens, formato);
+            assertTrue(CrudOperationCodec.isFrame(quadro), "Quadro " + formato + " deve ser reconhecido");
+
+            java.util.List<CrudOperation> operacoes = CrudOperationCodec.decodeAll(quadro);
+            assertEquals(2, operacoes.size());
+            assertEquals(operacaoTeste.getData(), operacoes.get(0).getData());
+            assertEquals(outra.getEntity(), operacoes.get(1).getEntity());
+            assertEquals(outra.getOperation(), operacoes.get(1).getOperation());
+
+            // Mensagens avulsas continuam sendo lidas pelo mesmo método
+            assertEquals(1, CrudOperationCodec.decodeAll(mensagens.get(0)).size());
+        }
+    }
+
+    @Test
+    public void testBatchingPublisherFechaQuadrosPorTamanhoETempo() throws Exception {
+        try (BatchingPublisher batching = new BatchingPublisher(redisPublisher, 3, 50)) {
+            for (int i = 0; i < 7; i++) {
+                batching.publishOperationAsync(operacaoTeste);
+            }
+            assertEquals(2, batching.getFlushes(BatchingPublisher.FlushReason.SIZE));
+            assertEquals(3, batching.getMaxFrameSize());
+
+            // A sétima operação sai pelo prazo, sozinha
+            Thread.sleep(500);
+            assertEquals(1, batching.getFlushes(BatchingPublisher.FlushReason.TIME));
+            assertEquals(1, batching.getLastFrameSize());
+
+            batching.publishOperationAsync(operacaoTeste);
+            batching.flush();
+            assertEquals(1, batching.getFlushes(BatchingPublisher.FlushReason.FLUSH));
+            assertEquals(4, batching.getFrames());
+            assertEquals(8, batching.getEvents());
+            assertEquals(2.0, batching.getAverageFrameSize(), 0.001);
+        }
+    }
 }
@@ -0,0 +1,249 @@
+package br.ufg.inf.publicador;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agrupa operações CRUD em quadros antes de publicá-las por um
+ * {@link RedisPublisher}: cada quadro vira um único {@code PUBLISH} (ou
+ * {@code XADD}), em vez de um comando por operação.
+ *
+ * Um quadro é enviado quando junta {@code maxEvents} operações
+ * ({@link FlushReason#SIZE}), quando a operação mais antiga espera
+ * {@code maxDelayMillis} ms ({@link FlushReason#TIME}), em {@link #flush()}
+ * ou em {@link #close()}. Quadros de uma só operação seguem como mensagem
+ * avulsa. Os consumidores leem ambos com {@link CrudOperationCodec#decodeAll}.
+ *
+ * A ordem das operações é preservada entre quadros. Cada estágio devolvido
+ * por {@link #publishOperationAsync} é concluído com o resultado do quadro
+ * em que a operação seguiu.
+ */
+public class BatchingPublisher implements CrudPublisher, AutoCloseable {
+
+    /** Motivo do envio de um quadro. */
+    public enum FlushReason { SIZE, TIME, FLUSH, CLOSE }
+
+    public static final int DEFAULT_MAX_EVENTS = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+
+    private final RedisPublisher publisher;
+    private final int maxEvents;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService timer;
+
+    private List<byte[]> messages;
+    private List<CompletableFuture<Long>> futures;
+    private long generation;
+    private boolean closed;
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong frameBytes = new AtomicLong();
+    private volatile int lastFrameSize;
+    private volatile int maxFrameSize;
+    private final Map<FlushReason, AtomicLong> flushes = new EnumMap<>(FlushReason.class);
+
+    public BatchingPublisher(RedisPublisher publisher) {
+        this(publisher, DEFAULT_MAX_EVENTS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * @param publisher Publicador que envia os quadros
+     * @param maxEvents Número de operações que fecha um quadro
+     * @param maxDelayMillis Espera máxima da primeira operação de um quadro
+     */
+    public BatchingPublisher(RedisPublisher publisher, int maxEvents, long maxDelayMillis) {
+        if (maxEvents <= 0 || maxDelayMillis <= 0) {
+            throw new IllegalArgumentException("maxEvents e maxDelayMillis devem ser positivos");
+        }
+        this.publisher = publisher;
+        this.maxEvents = maxEvents;
+        this.maxDelayMillis = maxDelayMillis;
+        this.messages = new ArrayList<>(maxEvents);
+        this.futures = new ArrayList<>(maxEvents);
+        for (FlushReason reason : FlushReason.values()) {
+            flushes.put(reason, new AtomicLong());
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crud-batch-flush");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Acrescenta a operação ao quadro atual.
+     * @return Estágio concluído com o resultado da publicação do quadro
+     */
+    @Override
+    public CompletionStage<Long> publishOperationAsync(CrudOperation op) {
+        byte[] message;
+        try {
+            message = CrudOperationCodec.encode(op, publisher.getFormat());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("BatchingPublisher encerrado"));
+            }
+            messages.add(message);
+            futures.add(future);
+            if (messages.size() >= maxEvents) {
+                send(FlushReason.SIZE);
+            } else if (messages.size() == 1) {
+                long frame = generation;
+                timer.schedule(() -> flushFrame(frame), maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Envia o quadro cujo prazo venceu, se ele ainda não saiu por tamanho
+     * ou por {@link #flush()}.
+     */
+    private synchronized void flushFrame(long frame) {
+        if (frame == generation && !messages.isEmpty()) {
+            send(FlushReason.TIME);
+        }
+    }
+
+    /**
+     * Envia o quadro atual. Chamado com o monitor tomado, para que os
+     * quadros entrem no pipeline na ordem em que foram fechados.
+     */
+    private void send(FlushReason reason) {
+        List<byte[]> batch = messages;
+        List<CompletableFuture<Long>> pending = futures;
+        messages = new ArrayList<>(maxEvents);
+        futures = new ArrayList<>(maxEvents);
+        generation++;
+
+        byte[] frame = batch.size() == 1
+            ? batch.get(0)
+            : CrudOperationCodec.encodeFrame(batch, publisher.getFormat());
+        frames.incrementAndGet();
+        events.addAndGet(batch.size());
+        frameBytes.addAndGet(frame.length);
+        lastFrameSize = batch.size();
+        if (batch.size() > maxFrameSize) {
+            maxFrameSize = batch.size();
+        }
+        flushes.get(reason).incrementAndGet();
+
+        publisher.publishMessageAsync(frame).whenComplete((receivers, e) -> {
+            for (CompletableFuture<Long> future : pending) {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(receivers);
+                }
+            }
+        });
+        publisher.flush();
+    }
+
+    /**
+     * Os quadros saem por tamanho ou prazo.
+     */
+    @Override
+    public boolean isSelfFlushing() {
+        return true;
+    }
+
+    /**
+     * Envia imediatamente o quadro em formação, se houver.
+     */
+    @Override
+    public synchronized void flush() {
+        if (!messages.isEmpty()) {
+            send(FlushReason.FLUSH);
+        }
+    }
+
+    /**
+     * Envia o que restou e para o temporizador. O {@link RedisPublisher}
+     * continua aberto.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!messages.isEmpty()) {
+                send(FlushReason.CLOSE);
+            }
+        }
+        timer.shutdownNow();
+    }
+
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @return Número de quadros enviados
+     */
+    public long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * @return Número de operações enviadas
+     */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /**
+     * @return Total de bytes enviados nos quadros
+     */
+    public long getFrameBytes() {
+        return frameBytes.get();
+    }
+
+    /**
+     * @return Número de operações do último quadro enviado
+     */
+    public int getLastFrameSize() {
+        return lastFrameSize;
+    }
+
+    /**
+     * @return Maior número de operações em um quadro
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    /**
+     * @return Média de operações por quadro
+     */
+    public double getAverageFrameSize() {
+        long total = frames.get();
+        return total == 0 ? 0 : (double) events.get() / total;
+    }
+
+    /**
+     * @return Número de quadros enviados pelo motivo dado
+     */
+    public long getFlushes(FlushReason reason) {
+        return flushes.get(reason).get();
+    }
+}
@@ -1,5 +1,11 @@
 package br.ufg.inf.publicador;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.annotations.JsonAdapter;
+
+@JsonAdapter(CrudOperationAdapter.class)
 public class CrudOperation {
     public enum OperationType { CREATE, UPDATE, DELETE }
     public enum Source { ORM, ODM }
@@ -8,8 +14,11 @@ public class CrudOperation {
     private OperationType operation;
     private Source source;
     private String data; // JSON do objeto serializado
+    private transient JsonElement dataJson; // mesmo conteúdo, já em árvore
     private String timestamp;
 
+    private static final Gson GSON = new Gson();
+
     // Construtores
     public CrudOperation() {}
 
@@ -35,9 +44,39 @@ public class CrudOperation {
     }
 
     public String getData() {
+        if (data == null && dataJson != null) {
+            data = dataJson.toString();
+        }
         return data;
     }
 
+    /**
+     * Dados da entidade como árvore JSON. Se a operação chegou no formato
+     * envelope, a árvore já veio pronta; senão, o texto é convertido na
+     * primeira chamada e o resultado reaproveitado nas seguintes.
+     */
+    public JsonElement getDataJson() {
+        if (dataJson == null && data != null) {
+            dataJson = JsonParser.parseString(data);
+        }
+        return dataJson;
+    }
+
+    /**
+     * Dados da entidade convertidos para o tipo dado, a partir da árvore JSON.
+     */
+    public <T> T getData(Class<T> type) {
+        JsonElement json = getDataJson();
+        return json == null ? null : GSON.fromJson(json, type);
+    }
+
+    /**
+     * Indica se os dados já estão disponíveis como árvore JSON.
+     */
+    public boolean hasDataJson() {
+        return dataJson != null;
+    }
+
     public String getTimestamp() {
         return timestamp;
     }
@@ -57,6 +96,12 @@ public class CrudOperation {
 
     public void setData(String data) {
         this.data = data;
+        this.dataJson = null;
+    }
+
+    public void setDataJson(JsonElement dataJson) {
+        this.dataJson = dataJson;
+        this.data = null;
     }
 
     public void setTimestamp(String timestamp) {
@@ -70,7 +115,7 @@ public class CrudOperation {
                 "entity='" + entity + '\'' +
                 ", operation=" + operation +
                 ", source=" + source +
-                ", data='" + data + '\'' +
+                ", data='" + getData() + '\'' +
                 ", timestamp='" + timestamp + '\'' +
                 '}';
     }
@@ -0,0 +1,112 @@
+package br.ufg.inf.publicador;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Serialização de {@link CrudOperation} por {@link JsonWriter}/{@link JsonReader},
+ * sem reflexão.
+ *
+ * Na leitura, {@code data} pode vir nos dois formatos: como texto com o
+ * JSON da entidade (formato original) ou como objeto JSON aninhado
+ * ("envelope"). No segundo caso o objeto é lido direto para um
+ * {@link JsonElement}, sem passar por um texto escapado.
+ *
+ * Na escrita, o adaptador padrão (o de {@code @JsonAdapter}) mantém o
+ * formato original, que os consumidores antigos entendem; o de
+ * {@link #envelope()} grava {@code data} como objeto aninhado.
+ */
+public class CrudOperationAdapter extends TypeAdapter<CrudOperation> {
+
+    private static final CrudOperationAdapter ENVELOPE = new CrudOperationAdapter(true);
+    private static final TypeAdapter<JsonElement> ELEMENT = new Gson().getAdapter(JsonElement.class);
+
+    private final boolean structuredData;
+
+    public CrudOperationAdapter() {
+        this(false);
+    }
+
+    private CrudOperationAdapter(boolean structuredData) {
+        this.structuredData = structuredData;
+    }
+
+    /**
+     * @return Adaptador que grava {@code data} como objeto JSON aninhado
+     */
+    public static CrudOperationAdapter envelope() {
+        return ENVELOPE;
+    }
+
+    @Override
+    public void write(JsonWriter out, CrudOperation op) throws IOException {
+        if (op == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("entity").value(op.getEntity());
+        out.name("operation").value(op.getOperation() == null ? null : op.getOperation().name());
+        out.name("source").value(op.getSource() == null ? null : op.getSource().name());
+        out.name("data");
+        if (!structuredData) {
+            out.value(op.getData());
+        } else if (op.hasDataJson()) {
+            ELEMENT.write(out, op.getDataJson());
+        } else {
+            // o texto já é JSON: copiado como está, sem escapar
+            out.jsonValue(op.getData());
+        }
+        out.name("timestamp").value(op.getTimestamp());
+        out.endObject();
+    }
+
+    @Override
+    public CrudOperation read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        CrudOperation op = new CrudOperation();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "entity":
+                    op.setEntity(in.nextString());
+                    break;
+                case "operation":
+                    op.setOperation(CrudOperation.OperationType.valueOf(in.nextString()));
+                    break;
+                case "source":
+                    op.setSource(CrudOperation.Source.valueOf(in.nextString()));
+                    break;
+                case "data":
+                    if (in.peek() == JsonToken.STRING) {
+                        op.setData(in.nextString());
+                    } else {
+                        op.setDataJson(JsonParser.parseReader(in));
+                    }
+                    break;
+                case "timestamp":
+                    op.setTimestamp(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return op;
+    }
+}
@@ -0,0 +1,441 @@
+package br.ufg.inf.publicador;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Codificação de {@link CrudOperation} para o Redis, em JSON (Gson), em
+ * JSON com os dados da entidade aninhados ({@link Format#ENVELOPE}) ou em
+ * um formato binário compacto.
+ *
+ * O formato binário evita o JSON da entidade escapado dentro do JSON do
+ * envelope. Layout da versão {@value #VERSION}, com inteiros em varint
+ * (LEB128 sem sinal):
+ * <pre>
+ * magic 0xCB | versão | operação | origem | tipo da entidade | timestamp | dados
+ * </pre>
+ * <ul>
+ *   <li>operação e origem: ordinal + 1 (0 = nulo);</li>
+ *   <li>tipo da entidade: 0 = nulo, 1 = nome em seguida como texto,
+ *       n &ge; 2 = posição n - 2 na tabela de tipos conhecidos;</li>
+ *   <li>timestamp: 0 = nulo, 1 = texto, 2 = data/hora ISO local como
+ *       segundos desde a época (zigzag) e nanossegundos;</li>
+ *   <li>dados: o JSON da entidade como bytes UTF-8, precedido do tamanho.</li>
+ * </ul>
+ * Textos são gravados como tamanho + 1 (0 = nulo) seguido dos bytes UTF-8.
+ *
+ * Um quadro ({@link #encodeFrame}) agrupa várias mensagens em uma só: nos
+ * formatos JSON, um array; no binário, o byte {@code 0xCF}, a versão, o
+ * número de mensagens e cada mensagem precedida do tamanho. Use
+ * {@link #decodeAll} para ler tanto mensagens avulsas quanto quadros.
+ *
+ * A tabela de tipos só cresce: acrescentar um tipo exige uma nova versão,
+ * e o decodificador aceita qualquer versão até a sua. Para migrar, atualize
+ * primeiro os consumidores (que sempre aceitam JSON e binário, distinguidos
+ * pelo primeiro byte) e depois troque o formato dos publicadores com
+ * {@value #PROPERTY}.
+ */
+public final class CrudOperationCodec {
+
+    /** Formato usado na publicação. */
+    public enum Format {
+        /** JSON com {@code data} como texto (formato original). */
+        JSON,
+        /** JSON com {@code data} como objeto aninhado, sem escape. */
+        ENVELOPE,
+        BINARY;
+
+        /**
+         * @return Formato definido em {@value CrudOperationCodec#PROPERTY}, ou {@link #JSON}
+         */
+        public static Format fromSystemProperty() {
+            String value = System.getProperty(PROPERTY);
+            if (value == null || value.isBlank()) {
+                return JSON;
+            }
+            return valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    /** Propriedade de sistema que escolhe o formato ({@code json}, {@code envelope} ou {@code binary}). */
+    public static final String PROPERTY = "crud.format";
+
+    /** Primeiro byte de uma mensagem binária; um JSON começa por {@code '{'}. */
+    public static final byte MAGIC = (byte) 0xCB;
+
+    /** Primeiro byte de um quadro binário; um quadro JSON começa por {@code '['}. */
+    public static final byte FRAME_MAGIC = (byte) 0xCF;
+
+    /** Versão do formato binário gravada pelo codificador. */
+    public static final int VERSION = 1;
+
+    /** Tipos de entidade com código fixo, na ordem da versão 1. */
+    private static final List<String> ENTITY_TYPES = List.of("Estudante", "Matricula", "Turma", "Disciplina");
+
+    /** Número de tipos conhecidos em cada versão, indexado pela versão. */
+    private static final int[] ENTITY_TYPES_BY_VERSION = {0, 4};
+
+    private static final Map<String, Integer> ENTITY_CODES = new HashMap<>();
+    static {
+        for (int i = 0; i < ENTITY_TYPES.size(); i++) {
+            ENTITY_CODES.put(ENTITY_TYPES.get(i), i + 2);
+        }
+    }
+
+    private static final CrudOperation.OperationType[] OPERATIONS = CrudOperation.OperationType.values();
+    private static final CrudOperation.Source[] SOURCES = CrudOperation.Source.values();
+    private static final Gson GSON = new Gson();
+    private static final TypeToken<List<CrudOperation>> LIST_TYPE = new TypeToken<List<CrudOperation>>() { };
+
+    private CrudOperationCodec() {
+    }
+
+    /**
+     * Codifica a operação no formato dado.
+     */
+    public static byte[] encode(CrudOperation op, Format format) {
+        if (format == Format.BINARY) {
+            return encodeBinary(op);
+        }
+        if (format == Format.ENVELOPE) {
+            return encodeEnvelope(op);
+        }
+        return GSON.toJson(op).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Grava o envelope com {@link JsonWriter}, copiando o JSON da entidade
+     * para dentro dele em vez de escapá-lo como texto.
+     */
+    public static byte[] encodeEnvelope(CrudOperation op) {
+        StringWriter buffer = new StringWriter(128 + (op.hasDataJson() ? 0 : lengthOf(op.getData())));
+        try (JsonWriter writer = new JsonWriter(buffer)) {
+            writer.setSerializeNulls(false);
+            CrudOperationAdapter.envelope().write(writer, op);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int lengthOf(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    public static byte[] encodeBinary(CrudOperation op) {
+        byte[] data = utf8(op.getData());
+        Writer out = new Writer(32 + (data == null ? 0 : data.length));
+        out.write(MAGIC);
+        out.writeVarint(VERSION);
+        out.writeVarint(op.getOperation() == null ? 0 : op.getOperation().ordinal() + 1);
+        out.writeVarint(op.getSource() == null ? 0 : op.getSource().ordinal() + 1);
+
+        String entity = op.getEntity();
+        Integer code = entity == null ? null : ENTITY_CODES.get(entity);
+        if (entity == null) {
+            out.writeVarint(0);
+        } else if (code != null) {
+            out.writeVarint(code);
+        } else {
+            out.writeVarint(1);
+            out.writeBytes(utf8(entity));
+        }
+
+        writeTimestamp(out, op.getTimestamp());
+        out.writeBytes(data);
+        return out.toByteArray();
+    }
+
+    /**
+     * Grava o timestamp como número quando a conversão de volta reproduz o
+     * mesmo texto; caso contrário, como texto.
+     */
+    private static void writeTimestamp(Writer out, String timestamp) {
+        if (timestamp == null) {
+            out.writeVarint(0);
+            return;
+        }
+        try {
+            LocalDateTime time = LocalDateTime.parse(timestamp, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            if (timestamp.equals(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time))) {
+                long seconds = time.toEpochSecond(ZoneOffset.UTC);
+                out.writeVarint(2);
+                out.writeVarint((seconds << 1) ^ (seconds >> 63));
+                out.writeVarint(time.getNano());
+                return;
+            }
+        } catch (DateTimeParseException e) {
+            // formato livre: segue como texto
+        }
+        out.writeVarint(1);
+        out.writeBytes(utf8(timestamp));
+    }
+
+    /**
+     * Decodifica uma mensagem em JSON (com {@code data} como texto ou
+     * aninhado) ou binário, conforme o primeiro byte.
+     * @throws IllegalArgumentException Se a mensagem binária for inválida ou
+     *         de uma versão mais nova que {@link #VERSION}
+     */
+    public static CrudOperation decode(byte[] message) {
+        if (isBinary(message)) {
+            return decodeBinary(message);
+        }
+        return GSON.fromJson(new String(message, StandardCharsets.UTF_8), CrudOperation.class);
+    }
+
+    public static boolean isBinary(byte[] message) {
+        return message.length > 0 && message[0] == MAGIC;
+    }
+
+    /**
+     * Agrupa mensagens já codificadas, todas no formato dado, em um quadro.
+     */
+    public static byte[] encodeFrame(List<byte[]> messages, Format format) {
+        int size = 0;
+        for (byte[] message : messages) {
+            size += message.length;
+        }
+        if (format == Format.BINARY) {
+            Writer out = new Writer(size + 5 * messages.size() + 8);
+            out.write(FRAME_MAGIC);
+            out.writeVarint(VERSION);
+            out.writeVarint(messages.size());
+            for (byte[] message : messages) {
+                out.writeBytes(message);
+            }
+            return out.toByteArray();
+        }
+        // formatos JSON: as mensagens já são objetos JSON, basta o array
+        byte[] frame = new byte[size + Math.max(messages.size() - 1, 0) + 2];
+        int pos = 0;
+        frame[pos++] = '[';
+        for (byte[] message : messages) {
+            if (pos > 1) {
+                frame[pos++] = ',';
+            }
+            System.arraycopy(message, 0, frame, pos, message.length);
+            pos += message.length;
+        }
+        frame[pos] = ']';
+        return frame;
+    }
+
+    public static boolean isFrame(byte[] message) {
+        return message.length > 0 && (message[0] == FRAME_MAGIC || message[0] == '[');
+    }
+
+    /**
+     * Decodifica uma mensagem avulsa ou um quadro, em qualquer formato.
+     * @return Operações na ordem em que foram publicadas
+     */
+    public static List<CrudOperation> decodeAll(byte[] message) {
+        if (!isFrame(message)) {
+            return List.of(decode(message));
+        }
+        if (message[0] == '[') {
+            return GSON.fromJson(new String(message, StandardCharsets.UTF_8), LIST_TYPE);
+        }
+        Reader in = new Reader(message);
+        in.read();
+        int version = in.readInt(Integer.MAX_VALUE, "Versão");
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Versão do formato binário não suportada: " + version);
+        }
+        // cada mensagem ocupa ao menos um byte
+        int count = in.readInt(message.length, "Número de mensagens do quadro");
+        List<CrudOperation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            operations.add(decode(in.readBytes()));
+        }
+        return operations;
+    }
+
+    private static CrudOperation decodeBinary(byte[] message) {
+        Reader in = new Reader(message);
+        in.read();
+        int version = in.readInt(Integer.MAX_VALUE, "Versão");
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Versão do formato binário não suportada: " + version);
+        }
+        CrudOperation op = new CrudOperation();
+        int operation = in.readInt(OPERATIONS.length, "Operação");
+        if (operation > 0) {
+            op.setOperation(OPERATIONS[operation - 1]);
+        }
+        int source = in.readInt(SOURCES.length, "Origem");
+        if (source > 0) {
+            op.setSource(SOURCES[source - 1]);
+        }
+
+        int entity = in.readInt(ENTITY_TYPES_BY_VERSION[version] + 1, "Tipo de entidade");
+        if (entity == 1) {
+            op.setEntity(in.readString());
+        } else if (entity >= 2) {
+            op.setEntity(ENTITY_TYPES.get(entity - 2));
+        }
+
+        switch (in.readInt(2, "Timestamp")) {
+            case 0:
+                break;
+            case 1:
+                op.setTimestamp(in.readString());
+                break;
+            case 2:
+                long zigzag = in.readVarint();
+                long seconds = (zigzag >>> 1) ^ -(zigzag & 1);
+                int nanos = in.readInt(999_999_999, "Nanossegundos do timestamp");
+                try {
+                    op.setTimestamp(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(
+                        LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC)));
+                } catch (DateTimeException e) {
+                    throw new IllegalArgumentException("Timestamp inválido na mensagem binária", e);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Timestamp inválido na mensagem binária");
+        }
+
+        op.setData(in.readString());
+        return op;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Buffer de escrita que cresce sob demanda. */
+    private static final class Writer {
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void write(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        /** Tamanho + 1 (0 = nulo) seguido dos bytes. */
+        void writeBytes(byte[] bytes) {
+            if (bytes == null) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        byte read() {
+            if (pos >= buf.length) {
+                throw new IllegalArgumentException("Mensagem binária truncada");
+            }
+            return buf[pos++];
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Varint inválido na mensagem binária");
+        }
+
+        /**
+         * Lê um varint que deve estar entre 0 e {@code max}; valores maiores
+         * (inclusive os que ficariam negativos ao virar {@code int}) tornam
+         * a mensagem inválida.
+         */
+        int readInt(long max, String field) {
+            long value = readVarint();
+            if (value < 0 || value > max) {
+                throw new IllegalArgumentException(field + " inválido na mensagem binária: " + Long.toUnsignedString(value));
+            }
+            return (int) value;
+        }
+
+        String readString() {
+            int size = readLength();
+            if (size < 0) {
+                return null;
+            }
+            String value = new String(buf, pos, size, StandardCharsets.UTF_8);
+            pos += size;
+            return value;
+        }
+
+        byte[] readBytes() {
+            int size = readLength();
+            if (size < 0) {
+                throw new IllegalArgumentException("Mensagem nula dentro do quadro");
+            }
+            byte[] value = Arrays.copyOfRange(buf, pos, pos + size);
+            pos += size;
+            return value;
+        }
+
+        /** Tamanho do próximo campo, ou -1 se for nulo. */
+        private int readLength() {
+            long length = readVarint();
+            if (length == 0) {
+                return -1;
+            }
+            if (length - 1 > buf.length - pos) {
+                throw new IllegalArgumentException("Mensagem binária truncada");
+            }
+            return (int) (length - 1);
+        }
+    }
+}
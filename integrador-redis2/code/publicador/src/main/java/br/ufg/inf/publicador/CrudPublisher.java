@@ -0,0 +1,35 @@
+package br.ufg.inf.publicador;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Destino das operações CRUD publicadas por um repositório.
+ *
+ * @see RedisPublisher
+ * @see BatchingPublisher
+ */
+public interface CrudPublisher {
+
+    /**
+     * Publica a operação sem esperar pela resposta do broker.
+     * @return Estágio concluído quando a publicação for confirmada
+     */
+    CompletionStage<?> publishOperationAsync(CrudOperation op);
+
+    /**
+     * Envia imediatamente o que estiver acumulado.
+     */
+    void flush();
+
+    /**
+     * Indica se o publicador decide sozinho quando enviar o que acumula,
+     * como o {@link BatchingPublisher} (por tamanho ou prazo). Nesse caso,
+     * quem publica não deve chamar {@link #flush()} ao fim de cada lote,
+     * o que anularia esse critério.
+     * @return true se {@link #flush()} só deve ser chamado quando for
+     *         preciso enviar já
+     */
+    default boolean isSelfFlushing() {
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package br.ufg.inf.publicador;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+
+/**
+ * Meio de transporte das operações CRUD no Redis, compartilhado pelo
+ * publicador e pelo integrador.
+ *
+ * <ul>
+ *   <li>{@link #PUBSUB}: {@code PUBLISH} no canal {@link #CHANNEL}. Sem
+ *       persistência: quem não estiver inscrito no momento perde o evento.</li>
+ *   <li>{@link #STREAM}: {@code XADD} no stream {@link #STREAM_KEY}. Os
+ *       eventos ficam no Redis até serem confirmados por um grupo de
+ *       consumidores, que pode retomar após uma queda.</li>
+ * </ul>
+ *
+ * O modo é escolhido pela propriedade de sistema {@value #PROPERTY}
+ * ({@code pubsub} ou {@code stream}); o padrão é {@link #PUBSUB}.
+ */
+public enum CrudTransport {
+    PUBSUB,
+    STREAM;
+
+    /** Propriedade de sistema que escolhe o transporte. */
+    public static final String PROPERTY = "crud.transport";
+
+    /** Canal do modo pub/sub. */
+    public static final String CHANNEL = "crud-channel";
+
+    /** Chave do stream do modo {@link #STREAM}. */
+    public static final String STREAM_KEY = "crud-stream";
+
+    /** Campo da entrada do stream que guarda a operação em JSON. */
+    public static final String FIELD = "op";
+
+    /**
+     * Tamanho aproximado ({@code MAXLEN ~}) a que o stream é aparado a cada
+     * {@code XADD}, para que um consumidor parado não esgote a memória do
+     * Redis.
+     */
+    public static final long STREAM_MAXLEN = 100_000;
+
+    /**
+     * Codec das conexões Lettuce: chaves em texto e mensagens em bytes, já
+     * que o conteúdo pode ser JSON ou binário ({@link CrudOperationCodec}).
+     */
+    public static final RedisCodec<String, byte[]> REDIS_CODEC =
+        RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    /**
+     * @return Transporte definido em {@value #PROPERTY}, ou {@link #PUBSUB}
+     */
+    public static CrudTransport fromSystemProperty() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.isBlank()) {
+            return PUBSUB;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,503 @@
+package br.ufg.inf.publicador;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Fila limitada entre quem escreve e o broker: as operações entram em uma
+ * fila de capacidade fixa e uma thread própria as repassa ao publicador de
+ * destino ({@link RedisPublisher} ou {@link BatchingPublisher}). Um Redis
+ * lento ou fora do ar atrasa só essa thread, nunca a escrita no banco.
+ *
+ * Com a fila cheia, vale a {@link OverflowPolicy}:
+ * <ul>
+ *   <li>{@link OverflowPolicy#BLOCK_WITH_TIMEOUT}: quem publica espera uma
+ *       vaga por até {@code blockTimeoutMillis} ms; depois, a operação é
+ *       descartada;</li>
+ *   <li>{@link OverflowPolicy#DROP_OLDEST}: a operação mais antiga da fila
+ *       é descartada para dar lugar à nova;</li>
+ *   <li>{@link OverflowPolicy#SPILL_TO_DISK}: a operação é gravada em um
+ *       arquivo (uma linha JSON por operação) e, a partir daí, as seguintes
+ *       também, até que a fila esvazie e a thread reenvie o arquivo. A ordem
+ *       é preservada, e um arquivo deixado por uma execução anterior é
+ *       reenviado ao iniciar (entrega "pelo menos uma vez").</li>
+ * </ul>
+ * O estágio devolvido por {@link #publishOperationAsync} termina com o
+ * resultado do destino; para operações gravadas em disco, quando a
+ * gravação termina; para descartadas, com erro.
+ */
+public class QueuedPublisher implements CrudPublisher, AutoCloseable {
+
+    /** O que fazer quando a fila está cheia. */
+    public enum OverflowPolicy { BLOCK_WITH_TIMEOUT, DROP_OLDEST, SPILL_TO_DISK }
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 50;
+    public static final String DEFAULT_SPILL_FILE = "crud-spill.jsonl";
+
+    private static final int SEND_BATCH = 256;
+    private static final long POLL_MILLIS = 100;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+    private static final long REPLAY_TIMEOUT_MILLIS = 5_000;
+    private static final Gson GSON = new Gson();
+
+    /** Operação na fila, com o instante em que entrou. */
+    private record Entry(CrudOperation op, CompletableFuture<Object> future, long enqueuedAt) {
+    }
+
+    private final CrudPublisher target;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final Path spillFile;
+    private final Path drainingFile;
+    private final BlockingQueue<Entry> queue;
+    private final Thread sender;
+    private volatile boolean running = true;
+
+    private final Object spillLock = new Object();
+    private volatile boolean spilling;
+    private BufferedWriter spillWriter;
+
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    public QueuedPublisher(CrudPublisher target, OverflowPolicy policy) {
+        this(target, DEFAULT_CAPACITY, policy, DEFAULT_BLOCK_TIMEOUT_MILLIS, Paths.get(DEFAULT_SPILL_FILE));
+    }
+
+    /**
+     * @param target Publicador que envia ao broker
+     * @param capacity Capacidade da fila
+     * @param policy Política com a fila cheia
+     * @param blockTimeoutMillis Espera máxima por vaga em {@link OverflowPolicy#BLOCK_WITH_TIMEOUT}
+     * @param spillFile Arquivo de {@link OverflowPolicy#SPILL_TO_DISK}
+     */
+    public QueuedPublisher(CrudPublisher target, int capacity, OverflowPolicy policy,
+                           long blockTimeoutMillis, Path spillFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity deve ser positiva: " + capacity);
+        }
+        this.target = target;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.spillFile = spillFile;
+        this.drainingFile = spillFile.resolveSibling(spillFile.getFileName() + ".draining");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        // sobras de uma execução anterior são reenviadas antes das novas
+        this.spilling = hasContent(spillFile);
+
+        this.sender = new Thread(this::run, "crud-publish-sender");
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /**
+     * Enfileira a operação. Só espera em {@link OverflowPolicy#BLOCK_WITH_TIMEOUT},
+     * e no máximo pelo prazo configurado.
+     */
+    @Override
+    public CompletionStage<Object> publishOperationAsync(CrudOperation op) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new RejectedExecutionException("QueuedPublisher encerrado"));
+            return future;
+        }
+        Entry entry = new Entry(op, future, System.nanoTime());
+        enqueued.incrementAndGet();
+        switch (policy) {
+            case BLOCK_WITH_TIMEOUT:
+                offerWithTimeout(entry);
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(entry)) {
+                    Entry oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest, new RejectedExecutionException("Operação descartada: fila cheia"));
+                    }
+                }
+                break;
+            case SPILL_TO_DISK:
+                if (spilling || !queue.offer(entry)) {
+                    spill(entry);
+                }
+                break;
+        }
+        updateMaxDepth();
+        return future;
+    }
+
+    private void offerWithTimeout(Entry entry) {
+        if (queue.offer(entry)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!queue.offer(entry, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                drop(entry, new TimeoutException("Fila cheia por mais de "
+                    + TimeUnit.NANOSECONDS.toMillis(blockTimeoutNanos) + " ms"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drop(entry, e);
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void drop(Entry entry, Throwable reason) {
+        dropped.incrementAndGet();
+        entry.future().completeExceptionally(reason);
+    }
+
+    /**
+     * Grava a operação no fim do arquivo. Enquanto houver operações em
+     * disco, as novas também vão para lá, para não passarem à frente.
+     */
+    private void spill(Entry entry) {
+        synchronized (spillLock) {
+            try {
+                if (spillWriter == null) {
+                    spillWriter = Files.newBufferedWriter(spillFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                spillWriter.write(GSON.toJson(entry.op()));
+                spillWriter.newLine();
+                spillWriter.flush();
+                spilling = true;
+            } catch (IOException e) {
+                drop(entry, e);
+                return;
+            }
+        }
+        spilled.incrementAndGet();
+        entry.future().complete(null);
+    }
+
+    private void updateMaxDepth() {
+        int depth = queue.size();
+        int max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+            // outra thread atualizou o máximo; tenta de novo
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(SEND_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (running && Files.exists(drainingFile)) {
+                    if (!replay()) {
+                        // destino fora do ar: a fila espera, para não passar à frente do disco
+                        Thread.sleep(POLL_MILLIS);
+                    }
+                    continue;
+                }
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    rotateSpill();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, SEND_BATCH - 1);
+                for (Entry entry : batch) {
+                    send(entry);
+                }
+                if (!target.isSelfFlushing()) {
+                    target.flush();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Erro ao enviar operações da fila: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(Entry entry) {
+        long wait = System.nanoTime() - entry.enqueuedAt();
+        totalWaitNanos.addAndGet(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        sent.incrementAndGet();
+        try {
+            target.publishOperationAsync(entry.op()).whenComplete((result, e) -> {
+                if (e != null) {
+                    entry.future().completeExceptionally(e);
+                } else {
+                    entry.future().complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            entry.future().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Com a fila vazia e o reenvio anterior concluído, passa o arquivo de
+     * transbordo para reenvio; as operações seguintes voltam a entrar na fila.
+     */
+    private void rotateSpill() throws IOException {
+        synchronized (spillLock) {
+            if (!spilling || Files.exists(drainingFile)) {
+                return;
+            }
+            if (spillWriter != null) {
+                spillWriter.close();
+                spillWriter = null;
+            }
+            Files.move(spillFile, drainingFile, StandardCopyOption.REPLACE_EXISTING);
+            spilling = false;
+        }
+    }
+
+    /**
+     * Reenvia as operações do arquivo, em ordem e em lotes, esperando a
+     * confirmação do destino a cada lote. O arquivo só é removido quando
+     * tudo foi confirmado; se um lote falhar, o que não foi confirmado e o
+     * que ainda não foi lido são regravados nele para a próxima tentativa.
+     * @return true se o arquivo foi todo reenviado
+     */
+    private boolean replay() throws IOException, InterruptedException {
+        List<String> pending = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(drainingFile)) {
+            List<String> lines = new ArrayList<>(SEND_BATCH);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!pending.isEmpty()) {
+                    pending.add(line);
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == SEND_BATCH) {
+                    pending.addAll(replayBatch(lines));
+                    lines.clear();
+                }
+            }
+            if (pending.isEmpty() && !lines.isEmpty()) {
+                pending.addAll(replayBatch(lines));
+            }
+        }
+        if (pending.isEmpty()) {
+            Files.delete(drainingFile);
+            return true;
+        }
+        Path rewrite = drainingFile.resolveSibling(drainingFile.getFileName() + ".tmp");
+        Files.write(rewrite, pending);
+        Files.move(rewrite, drainingFile, StandardCopyOption.REPLACE_EXISTING);
+        System.err.println(pending.size() + " operações do disco ainda não confirmadas pelo destino");
+        return false;
+    }
+
+    /**
+     * Publica um lote de linhas do arquivo e aguarda as confirmações.
+     * @return Linhas não confirmadas, na ordem original
+     */
+    private List<String> replayBatch(List<String> lines) throws InterruptedException {
+        List<CompletableFuture<?>> futures = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            CompletableFuture<?> future;
+            try {
+                future = target.publishOperationAsync(GSON.fromJson(line, CrudOperation.class)).toCompletableFuture();
+            } catch (JsonParseException e) {
+                // linha corrompida: repeti-la não adianta
+                System.err.println("Linha inválida no arquivo de transbordo descartada: " + e.getMessage());
+                dropped.incrementAndGet();
+                future = null;
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            futures.add(future);
+        }
+        target.flush();
+
+        List<String> failed = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLAY_TIMEOUT_MILLIS);
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i) == null) {
+                continue;
+            }
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                replayed.incrementAndGet();
+            } catch (ExecutionException | TimeoutException e) {
+                failed.add(lines.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private static boolean hasContent(Path file) {
+        try {
+            return Files.exists(file) && Files.size(file) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Não há fila a descarregar aqui: a thread de envio já esvazia a fila
+     * continuamente. Repassa o pedido ao destino.
+     */
+    @Override
+    public void flush() {
+        target.flush();
+    }
+
+    /**
+     * A thread de envio descarrega o destino a cada lote lido da fila, ou
+     * deixa que ele decida, se também for {@link #isSelfFlushing()}.
+     */
+    @Override
+    public boolean isSelfFlushing() {
+        return true;
+    }
+
+    /**
+     * Para de aceitar operações e aguarda o envio do que está na fila. Se
+     * o prazo vencer, a thread de envio é interrompida antes de a fila ser
+     * descartada. O que estiver em disco fica para a próxima execução.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            sender.join(CLOSE_TIMEOUT_MILLIS);
+            if (sender.isAlive()) {
+                sender.interrupt();
+                sender.join(CLOSE_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (sender.isAlive()) {
+            System.err.println("Thread de envio não terminou; as operações na fila serão descartadas");
+        }
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            drop(entry, new RejectedExecutionException("QueuedPublisher encerrado"));
+        }
+        synchronized (spillLock) {
+            if (spillWriter != null) {
+                try {
+                    spillWriter.close();
+                } catch (IOException e) {
+                    System.err.println("Erro ao fechar arquivo de transbordo: " + e.getMessage());
+                }
+                spillWriter = null;
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return Operações aguardando na fila
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return Maior profundidade observada da fila
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return Operações recebidas
+     */
+    public long getEnqueued() {
+        return enqueued.get();
+    }
+
+    /**
+     * @return Operações repassadas ao destino a partir da fila
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * @return Operações descartadas (fila cheia, prazo vencido ou falha de disco)
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Operações gravadas em disco
+     */
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    /**
+     * @return Operações reenviadas a partir do disco
+     */
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    /**
+     * @return Tempo médio, em ms, entre a entrada na fila e o envio
+     */
+    public double getAverageWaitMillis() {
+        long count = sent.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (count * 1_000_000.0);
+    }
+
+    /**
+     * @return Maior tempo, em ms, entre a entrada na fila e o envio
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return Tempo total, em ms, que quem publica passou esperando vaga
+     */
+    public long getBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedNanos.get());
+    }
+}
@@ -10,16 +10,18 @@ public class RedisListenerServer {
 
     public void start() throws InterruptedException {
         RedisClient client = RedisClient.create("redis://localhost:6379");
-        StatefulRedisPubSubConnection<String, String> connection = client.connectPubSub();
+        StatefulRedisPubSubConnection<String, byte[]> connection = client.connectPubSub(CrudTransport.REDIS_CODEC);
 
         connection.addListener(new RedisPubSubAdapter<>() {
             @Override
-            public void message(String channel, String message) {
-                System.out.printf("🔔 [%s] %s%n", channel, message);
+            public void message(String channel, byte[] message) {
+                for (CrudOperation op : CrudOperationCodec.decodeAll(message)) {
+                    System.out.printf("🔔 [%s] %s%n", channel, op);
+                }
             }
         });
 
-        connection.sync().subscribe("crud-channel");
+        connection.sync().subscribe(CrudTransport.CHANNEL);
 
         System.out.println("🟢 Escutando notificações Redis de forma assíncrona...");
 
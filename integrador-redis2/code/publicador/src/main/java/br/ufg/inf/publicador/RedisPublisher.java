@@ -1,18 +1,375 @@
 package br.ufg.inf.publicador;
 
-import com.google.gson.Gson;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+
+/**
+ * Publica operações CRUD no Redis, no canal {@code crud-channel} (pub/sub)
+ * ou no stream {@code crud-stream}, conforme o {@link CrudTransport}.
+ *
+ * Mantém uma única conexão Lettuce de longa duração, compartilhada entre
+ * threads, aberta de forma assíncrona na primeira publicação; até ela ficar
+ * pronta, as mensagens aguardam em ordem, sem prender quem publica. Os comandos são enviados em pipeline: ficam no buffer da conexão
+ * e são descarregados quando acumulam {@link #MAX_PENDING} comandos ou, no
+ * máximo, a cada {@link #FLUSH_INTERVAL_MILLIS} ms.
+ *
+ * No modo {@link CrudTransport#STREAM}, cada operação vira um {@code XADD}
+ * com {@code MAXLEN ~} {@link CrudTransport#STREAM_MAXLEN}; o pipeline é o
+ * mesmo do pub/sub.
+ *
+ * As operações são codificadas por {@link CrudOperationCodec}, em JSON ou
+ * no formato binário, conforme o {@link CrudOperationCodec.Format}.
+ */
+public class RedisPublisher implements CrudPublisher, AutoCloseable {
+
+    public static final String CHANNEL = CrudTransport.CHANNEL;
+
+    private static final Duration PUBLISH_TIMEOUT = Duration.ofSeconds(10);
+    private static final int MAX_PENDING = 64;
+    private static final long FLUSH_INTERVAL_MILLIS = 2;
+    private static final long RECONNECT_BACKOFF_MILLIS = 1000;
+
+    private static RedisPublisher shared;
+
+    private static final XAddArgs STREAM_ARGS =
+        XAddArgs.Builder.maxlen(CrudTransport.STREAM_MAXLEN).approximateTrimming();
+
+    private final String redisUri;
+    private final CrudTransport transport;
+    private final CrudOperationCodec.Format format;
+    private final AtomicInteger pending = new AtomicInteger();
+    private RedisClient client;
+    private volatile StatefulRedisConnection<String, byte[]> connection;
+    private ScheduledExecutorService flusher;
+    private boolean connecting;
+    private List<Waiting> waiting = new ArrayList<>();
+    private RuntimeException lastConnectError;
+    private long nextConnectAttempt;
+
+    public RedisPublisher() {
+        this("redis://localhost:6379");
+    }
+
+    /**
+     * @param redisUri Endereço do Redis
+     * @see CrudTransport#fromSystemProperty()
+     * @see CrudOperationCodec.Format#fromSystemProperty()
+     */
+    public RedisPublisher(String redisUri) {
+        this(redisUri, CrudTransport.fromSystemProperty());
+    }
+
+    public RedisPublisher(String redisUri, CrudTransport transport) {
+        this(redisUri, transport, CrudOperationCodec.Format.fromSystemProperty());
+    }
+
+    public RedisPublisher(String redisUri, CrudTransport transport, CrudOperationCodec.Format format) {
+        this.redisUri = redisUri;
+        this.transport = transport;
+        this.format = format;
+    }
+
+    /**
+     * Instância compartilhada por toda a JVM, fechada automaticamente no
+     * desligamento.
+     */
+    public static synchronized RedisPublisher shared() {
+        if (shared == null) {
+            RedisPublisher publisher = new RedisPublisher();
+            Runtime.getRuntime().addShutdownHook(new Thread(publisher::close, "redis-publisher-shutdown"));
+            shared = publisher;
+        }
+        return shared;
+    }
+
+    /**
+     * Inicia a abertura da conexão, sem esperar por ela; o descarregamento
+     * periódico do pipeline começa quando a conexão fica pronta. Chamadas
+     * repetidas não têm efeito. Depois de uma falha de conexão, novas
+     * tentativas só ocorrem após {@link #RECONNECT_BACKOFF_MILLIS} ms, para
+     * que quem publica não fique preso a um Redis fora do ar.
+     */
+    public synchronized void start() {
+        if (connection != null || connecting) {
+            return;
+        }
+        if (lastConnectError != null && System.currentTimeMillis() < nextConnectAttempt) {
+            throw lastConnectError;
+        }
+        if (client == null) {
+            client = RedisClient.create(redisUri);
+        }
+        RedisClient target = client;
+        connecting = true;
+        try {
+            target.connectAsync(CrudTransport.REDIS_CODEC, RedisURI.create(redisUri))
+                .whenComplete((conn, e) -> onConnect(target, conn, e));
+        } catch (RuntimeException e) {
+            connecting = false;
+            lastConnectError = e;
+            nextConnectAttempt = System.currentTimeMillis() + RECONNECT_BACKOFF_MILLIS;
+            throw e;
+        }
+    }
+
+    /**
+     * Conclui a abertura da conexão na thread do Lettuce: envia, na ordem de
+     * chegada, as mensagens que aguardavam a conexão, ou as falha.
+     */
+    private synchronized void onConnect(RedisClient target, StatefulRedisConnection<String, byte[]> conn, Throwable e) {
+        if (target != client) {
+            // fechado enquanto conectava
+            if (conn != null) {
+                conn.closeAsync();
+            }
+            return;
+        }
+        connecting = false;
+        List<Waiting> queued = waiting;
+        waiting = new ArrayList<>();
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        if (e != null) {
+            lastConnectError = e instanceof RuntimeException
+                ? (RuntimeException) e : new RedisConnectionException(e.getMessage(), e);
+            nextConnectAttempt = System.currentTimeMillis() + RECONNECT_BACKOFF_MILLIS;
+            for (Waiting w : queued) {
+                w.result.completeExceptionally(lastConnectError);
+            }
+            return;
+        }
+        lastConnectError = null;
+        conn.setAutoFlushCommands(false);
+        for (Waiting w : queued) {
+            send(conn, w.message).whenComplete((receivers, error) -> {
+                if (error != null) {
+                    w.result.completeExceptionally(error);
+                } else {
+                    w.result.complete(receivers);
+                }
+            });
+        }
+        conn.flushCommands();
+        connection = conn;
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "redis-publisher-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleAtFixedRate(this::flushIfPending,
+            FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mensagem publicada antes de a conexão ficar pronta.
+     */
+    private static class Waiting {
+        final byte[] message;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+
+        Waiting(byte[] message) {
+            this.message = message;
+        }
+    }
 
-public class RedisPublisher {
+    /**
+     * Enfileira a mensagem até a conexão ficar pronta. A verificação da
+     * conexão é refeita com o monitor tomado, que é o mesmo de
+     * {@link #onConnect}: ou a mensagem entra na fila antes de ela ser
+     * esvaziada, ou a conexão já está publicada.
+     * @return Estágio da mensagem, ou {@code null} se a conexão já está pronta
+     */
+    private synchronized CompletionStage<Long> enqueue(byte[] message) {
+        if (connection != null) {
+            return null;
+        }
+        start();
+        if (connection != null) {
+            return null;
+        }
+        if (!connecting) {
+            // a tentativa falhou antes mesmo de começar
+            throw lastConnectError;
+        }
+        Waiting w = new Waiting(message);
+        waiting.add(w);
+        return w.result;
+    }
+
+    private CompletionStage<Long> send(StatefulRedisConnection<String, byte[]> conn, byte[] message) {
+        if (transport == CrudTransport.STREAM) {
+            RedisFuture<String> id = conn.async()
+                .xadd(CrudTransport.STREAM_KEY, STREAM_ARGS, CrudTransport.FIELD, message);
+            return id.thenApply(entryId -> 1L);
+        }
+        return conn.async().publish(CHANNEL, message);
+    }
+
+    /**
+     * Publica a operação sem esperar pela resposta do Redis.
+     * @return Estágio concluído com o número de assinantes que receberam a
+     *         mensagem; no modo stream, 1 quando a entrada foi gravada
+     */
+    @Override
+    public CompletionStage<Long> publishOperationAsync(CrudOperation op) {
+        try {
+            return publishMessageAsync(CrudOperationCodec.encode(op, format));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-    private final RedisClient client = RedisClient.create("redis://localhost:6379");
+    /**
+     * Publica uma mensagem já codificada (uma operação ou um quadro de
+     * {@link BatchingPublisher}) sem esperar pela resposta do Redis.
+     * @return Estágio concluído com o número de assinantes que receberam a
+     *         mensagem; no modo stream, 1 quando a entrada foi gravada
+     */
+    public CompletionStage<Long> publishMessageAsync(byte[] message) {
+        try {
+            StatefulRedisConnection<String, byte[]> conn = connection;
+            if (conn == null) {
+                CompletionStage<Long> queued = enqueue(message);
+                if (queued != null) {
+                    return queued;
+                }
+                conn = connection;
+            }
+            CompletionStage<Long> future = send(conn, message);
+            if (pending.incrementAndGet() >= MAX_PENDING) {
+                flush();
+            }
+            return future;
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Publica um lote de operações no mesmo pipeline.
+     * @return Estágio concluído quando todas as publicações forem confirmadas
+     */
+    public CompletionStage<Void> publishOperationsAsync(List<CrudOperation> ops) {
+        if (ops.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Long>> futures = new ArrayList<>(ops.size());
+        for (CrudOperation op : ops) {
+            futures.add(publishOperationAsync(op).toCompletableFuture());
+        }
+        flush();
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
 
     public void publishOperation(CrudOperation op) throws Exception {
-        try (var connection = client.connect()) {
+        CompletionStage<Long> result = publishOperationAsync(op);
+        flush();
+        await(result);
+    }
 
-            Gson gson = new Gson();
-            String json = gson.toJson(op);
-            connection.sync().publish("crud-channel", json);
+    /**
+     * Publica um lote de operações em pipeline: todos os PUBLISH são enviados
+     * juntos e as respostas aguardadas uma única vez.
+     */
+    public void publishOperations(List<CrudOperation> ops) throws Exception {
+        await(publishOperationsAsync(ops));
+    }
+
+    /**
+     * Descarrega imediatamente os comandos pendentes no pipeline.
+     */
+    @Override
+    public void flush() {
+        StatefulRedisConnection<String, byte[]> conn = connection;
+        if (conn != null) {
+            pending.set(0);
+            conn.flushCommands();
         }
     }
+
+    private void flushIfPending() {
+        if (pending.get() > 0) {
+            flush();
+        }
+    }
+
+    private static void await(CompletionStage<?> stage) throws Exception {
+        try {
+            stage.toCompletableFuture().get(PUBLISH_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Descarrega o pipeline e libera a conexão e o cliente Redis. O cliente
+     * é desligado fora do monitor, porque uma conexão em andamento conclui
+     * em {@link #onConnect}, que precisa dele.
+     */
+    @Override
+    public void close() {
+        RedisClient closing;
+        synchronized (this) {
+            if (flusher != null) {
+                flusher.shutdownNow();
+                flusher = null;
+            }
+            if (connection != null) {
+                try {
+                    flush();
+                    connection.close();
+                } catch (RuntimeException e) {
+                    System.err.println("Erro ao fechar conexão Redis: " + e.getMessage());
+                }
+                connection = null;
+            }
+            connecting = false;
+            for (Waiting w : waiting) {
+                w.result.completeExceptionally(new IllegalStateException("RedisPublisher encerrado"));
+            }
+            waiting = new ArrayList<>();
+            closing = client;
+            client = null;
+        }
+        if (closing != null) {
+            closing.shutdown();
+        }
+    }
+
+    public CrudTransport getTransport() {
+        return transport;
+    }
+
+    public CrudOperationCodec.Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Indica se a conexão persistente está aberta.
+     */
+    public boolean isConnected() {
+        StatefulRedisConnection<String, byte[]> conn = connection;
+        return conn != null && conn.isOpen();
+    }
 }
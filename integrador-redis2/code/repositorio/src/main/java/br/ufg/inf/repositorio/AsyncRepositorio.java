@@ -0,0 +1,258 @@
+package br.ufg.inf.repositorio;
+
+import br.ufg.inf.publicador.CrudOperation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fachada assíncrona para um {@link Repositorio}: cada operação roda em
+ * outra thread e devolve um {@link CompletableFuture}, de modo que rotas
+ * Camel e controladores JavaFX não fiquem bloqueados no I/O do SQLite.
+ *
+ * Quando a JVM oferece threads virtuais (Java 21+), cada operação ganha a
+ * sua; caso contrário, usa um pool fixo de threads. Em ambos os casos um
+ * semáforo limita quantas operações usam o banco ao mesmo tempo, por
+ * padrão o tamanho do pool de conexões.
+ *
+ * Ao contrário do {@link Repositorio}, os erros não são apenas impressos:
+ * o futuro é concluído com a exceção (em geral {@link java.sql.SQLException}).
+ * @param <T> Tipo da entidade
+ * @param <ID> Tipo da chave primária
+ */
+public class AsyncRepositorio<T, ID> implements AutoCloseable {
+
+    private final Repositorio<T, ID> repositorio;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    /**
+     * Cria a fachada limitando a concorrência ao pool de conexões do banco
+     * (uma única operação por vez quando o banco não usa pool).
+     * @param repositorio Repositório síncrono
+     */
+    public AsyncRepositorio(Repositorio<T, ID> repositorio) {
+        this(repositorio, defaultConcurrency(repositorio.getDatabase()));
+    }
+
+    /**
+     * @param repositorio Repositório síncrono
+     * @param maxConcurrency Número máximo de operações simultâneas no banco
+     */
+    public AsyncRepositorio(Repositorio<T, ID> repositorio, int maxConcurrency) {
+        this(repositorio, newExecutor(maxConcurrency), maxConcurrency, true);
+    }
+
+    /**
+     * Usa um executor fornecido por quem chama, que continua responsável
+     * por encerrá-lo.
+     * @param repositorio Repositório síncrono
+     * @param executor Executor das operações
+     * @param maxConcurrency Número máximo de operações simultâneas no banco
+     */
+    public AsyncRepositorio(Repositorio<T, ID> repositorio, ExecutorService executor, int maxConcurrency) {
+        this(repositorio, executor, maxConcurrency, false);
+    }
+
+    private AsyncRepositorio(Repositorio<T, ID> repositorio, ExecutorService executor,
+                             int maxConcurrency, boolean ownsExecutor) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency deve ser positivo: " + maxConcurrency);
+        }
+        this.repositorio = repositorio;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Cria uma nova entidade no banco de dados.
+     * @param entity Entidade a ser criada
+     * @return Futuro com a entidade criada, já com o ID gerado
+     */
+    public CompletableFuture<T> create(T entity) {
+        return submit(() -> {
+            repositorio.write(CrudOperation.OperationType.CREATE, entity);
+            return entity;
+        });
+    }
+
+    /**
+     * Atualiza uma entidade existente no banco de dados.
+     * @param entity Entidade a ser atualizada
+     * @return Futuro com o número de linhas atualizadas
+     */
+    public CompletableFuture<Integer> update(T entity) {
+        return submit(() -> repositorio.write(CrudOperation.OperationType.UPDATE, entity));
+    }
+
+    /**
+     * Remove uma entidade do banco de dados.
+     * @param entity Entidade a ser removida
+     * @return Futuro com o número de linhas removidas
+     */
+    public CompletableFuture<Integer> delete(T entity) {
+        return submit(() -> repositorio.write(CrudOperation.OperationType.DELETE, entity));
+    }
+
+    /**
+     * Cria várias entidades em uma única transação.
+     * @param entities Entidades a serem criadas
+     * @return Futuro com o número de linhas inseridas
+     */
+    public CompletableFuture<Integer> createAll(Collection<T> entities) {
+        return submit(() -> repositorio.writeAll(CrudOperation.OperationType.CREATE, entities));
+    }
+
+    /**
+     * Atualiza várias entidades em uma única transação.
+     * @param entities Entidades a serem atualizadas
+     * @return Futuro com o número de linhas atualizadas
+     */
+    public CompletableFuture<Integer> updateAll(Collection<T> entities) {
+        return submit(() -> repositorio.writeAll(CrudOperation.OperationType.UPDATE, entities));
+    }
+
+    /**
+     * Remove várias entidades em uma única transação.
+     * @param entities Entidades a serem removidas
+     * @return Futuro com o número de linhas removidas
+     */
+    public CompletableFuture<Integer> deleteAll(Collection<T> entities) {
+        return submit(() -> repositorio.writeAll(CrudOperation.OperationType.DELETE, entities));
+    }
+
+    /**
+     * Carrega uma entidade pelo seu ID.
+     * @param id ID da entidade
+     * @return Futuro com a entidade, ou null se não encontrada
+     */
+    public CompletableFuture<T> loadFromId(ID id) {
+        return submit(() -> repositorio.find(id));
+    }
+
+    /**
+     * Carrega várias entidades pelo ID, com as consultas em paralelo
+     * (respeitando o limite de concorrência).
+     * @param ids IDs das entidades
+     * @return Futuro com as entidades na ordem dos IDs; null para IDs não encontrados
+     */
+    public CompletableFuture<List<T>> loadAllById(Collection<ID> ids) {
+        List<CompletableFuture<T>> lookups = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            lookups.add(loadFromId(id));
+        }
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<T> entities = new ArrayList<>(lookups.size());
+                for (CompletableFuture<T> lookup : lookups) {
+                    entities.add(lookup.join());
+                }
+                return entities;
+            });
+    }
+
+    /**
+     * Carrega todas as entidades do banco de dados.
+     * @return Futuro com a lista de entidades
+     */
+    public CompletableFuture<List<T>> loadAll() {
+        return submit(repositorio::findAll);
+    }
+
+    /**
+     * Carrega uma página de entidades ordenadas pela chave primária.
+     * @param afterId ID da última entidade da página anterior, ou null para a primeira página
+     * @param limit Número máximo de entidades na página
+     * @return Futuro com as entidades da página
+     * @see Repositorio#loadPage(Object, int)
+     */
+    public CompletableFuture<List<T>> loadPage(ID afterId, int limit) {
+        return submit(() -> repositorio.findPage(afterId, limit));
+    }
+
+    /**
+     * Obtém o repositório síncrono por trás desta fachada.
+     * @return Repositório síncrono
+     */
+    public Repositorio<T, ID> getRepositorio() {
+        return repositorio;
+    }
+
+    /**
+     * @return Número máximo de operações simultâneas no banco
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Encerra o executor, se foi criado por esta fachada. Operações já
+     * submetidas terminam normalmente.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private <V> CompletableFuture<V> submit(Callable<V> operation) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    future.complete(operation.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static int defaultConcurrency(Database database) {
+        DatabaseOptions options = database.getOptions();
+        return options.isPooled() ? options.getMaxPoolSize() : 1;
+    }
+
+    /**
+     * Usa {@code Executors.newVirtualThreadPerTaskExecutor()} quando
+     * disponível. O método é obtido por reflexão porque o projeto ainda
+     * compila para o Java 17.
+     */
+    private static ExecutorService newExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(maxConcurrency, r -> {
+                Thread t = new Thread(r, "async-repositorio");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * INSERT em lote por JDBC ({@code addBatch}/{@code executeBatch}) para
+ * entidades que já têm a chave atribuída por um {@link IdAllocator}: um
+ * único comando preparado para todas as linhas, sem leitura de chaves
+ * geradas.
+ *
+ * Usa a mesma conexão de {@link com.j256.ormlite.misc.TransactionManager},
+ * portanto participa da transação em andamento.
+ * @param <T> Tipo da entidade
+ */
+final class BatchInserter<T> {
+
+    private final Dao<T, ?> dao;
+    private final String table;
+    private final FieldType[] fields;
+    private final FieldType versionField;
+    private final String sql;
+
+    BatchInserter(Dao<T, ?> dao) {
+        this.dao = dao;
+        this.table = dao.getTableInfo().getTableName();
+        List<FieldType> columns = new ArrayList<>();
+        FieldType version = null;
+        for (FieldType field : dao.getTableInfo().getFieldTypes()) {
+            if (field.isForeignCollection()) {
+                continue;
+            }
+            if (field.isVersion()) {
+                version = field;
+            }
+            columns.add(field);
+        }
+        this.fields = columns.toArray(new FieldType[0]);
+        this.versionField = version;
+
+        StringBuilder names = new StringBuilder();
+        StringBuilder params = new StringBuilder();
+        for (FieldType field : fields) {
+            if (names.length() > 0) {
+                names.append(", ");
+                params.append(", ");
+            }
+            names.append('`').append(field.getColumnName()).append('`');
+            params.append('?');
+        }
+        this.sql = "INSERT INTO `" + table + "` (" + names + ") VALUES (" + params + ")";
+    }
+
+    /**
+     * Indica se o lote JDBC grava o mesmo que {@code dao.create}. Campos
+     * com {@code defaultValue} dependem do ORMLite e ficam de fora.
+     */
+    boolean isSupported() {
+        for (FieldType field : fields) {
+            if (field.getDefaultValue() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Insere as entidades, na ordem dada. Assim como {@code dao.create},
+     * inicia o campo de versão nulo ou zerado.
+     * @param entities Entidades com chave já atribuída
+     * @return Número de linhas inseridas
+     * @throws SQLException Se alguma inserção falhar
+     */
+    int insert(List<T> entities) throws SQLException {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        ConnectionSource connectionSource = dao.getConnectionSource();
+        DatabaseConnection connection = connectionSource.getReadWriteConnection(table);
+        try (PreparedStatement statement = connection.getUnderlyingConnection().prepareStatement(sql)) {
+            for (T entity : entities) {
+                if (versionField != null) {
+                    Object version = versionField.extractJavaFieldValue(entity);
+                    if (version == null || (version instanceof Number number && number.longValue() == 0)) {
+                        versionField.assignField(connectionSource, entity, versionField.moveToNextValue(null), false, null);
+                    }
+                }
+                for (int i = 0; i < fields.length; i++) {
+                    statement.setObject(i + 1, fields[i].extractJavaFieldToSqlArgValue(entity));
+                }
+                statement.addBatch();
+            }
+            int total = 0;
+            for (int count : statement.executeBatch()) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        } finally {
+            connectionSource.releaseConnection(connection);
+        }
+    }
+}
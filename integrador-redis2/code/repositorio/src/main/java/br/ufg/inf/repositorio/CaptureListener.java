@@ -0,0 +1,18 @@
+package br.ufg.inf.repositorio;
+
+import java.util.List;
+
+/**
+ * Ouvinte da captura de alterações ({@link ChangeCapture}): recebe, a cada
+ * commit, as linhas alteradas de uma tabela.
+ * @param <T> Tipo da entidade mapeada para a tabela
+ */
+@FunctionalInterface
+public interface CaptureListener<T> {
+
+    /**
+     * @param changes Alterações da transação, uma por linha, na ordem em
+     *                que cada linha foi alterada pela primeira vez
+     */
+    void onCommit(List<CapturedChange<T>> changes);
+}
@@ -0,0 +1,64 @@
+package br.ufg.inf.repositorio;
+
+import br.ufg.inf.publicador.CrudOperation;
+import com.j256.ormlite.dao.Dao;
+
+import java.sql.SQLException;
+
+/**
+ * Linha alterada em uma transação, capturada pelo hook do SQLite.
+ *
+ * Só o tipo da operação, a tabela e o rowid são guardados. A entidade é
+ * lida do banco apenas se {@link #getEntity()} for chamado, e reflete o
+ * estado atual da linha, não o do momento do commit.
+ * @param <T> Tipo da entidade
+ */
+public final class CapturedChange<T> {
+
+    private final CrudOperation.OperationType type;
+    private final String table;
+    private final long rowId;
+    private final Dao<T, ?> dao;
+    private T entity;
+    private boolean loaded;
+
+    CapturedChange(CrudOperation.OperationType type, String table, long rowId, Dao<T, ?> dao) {
+        this.type = type;
+        this.table = table;
+        this.rowId = rowId;
+        this.dao = dao;
+    }
+
+    public CrudOperation.OperationType getType() {
+        return type;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    /**
+     * Carrega a entidade pelo rowid na primeira chamada.
+     * @return Entidade, ou null para DELETE e para linhas que já não existem
+     * @throws SQLException Se a consulta falhar
+     */
+    public synchronized T getEntity() throws SQLException {
+        if (!loaded) {
+            if (type != CrudOperation.OperationType.DELETE) {
+                entity = dao.queryRaw("SELECT * FROM `" + table + "` WHERE rowid = ?",
+                    dao.getRawRowMapper(), Long.toString(rowId)).getFirstResult();
+            }
+            loaded = true;
+        }
+        return entity;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + table + "#" + rowId;
+    }
+}
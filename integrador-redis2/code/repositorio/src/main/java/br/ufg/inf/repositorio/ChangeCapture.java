@@ -0,0 +1,432 @@
+package br.ufg.inf.repositorio;
+
+import br.ufg.inf.publicador.CrudOperation;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseConnectionProxy;
+import org.sqlite.SQLiteCommitListener;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteUpdateListener;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Captura de alterações (CDC) pelo update hook do SQLite.
+ *
+ * Habilitada com {@link DatabaseOptions#setChangeCapture(boolean)}: cada
+ * conexão aberta pelo {@link Database} registra um update hook e um commit
+ * hook. Toda escrita é vista, venha ela do {@link Repositorio}, de SQL
+ * bruto, do {@code TableUtils} ou de qualquer DAO. As linhas alteradas são
+ * acumuladas por transação (várias alterações da mesma linha viram uma só)
+ * e entregues em um lote após o commit; um rollback descarta o lote.
+ *
+ * O commit hook do SQLite roda antes de o commit terminar, quando outras
+ * conexões ainda não enxergam as linhas. Por isso o lote só segue para os
+ * ouvintes depois que o commit retorna: ao fim da transação do ORMLite ou,
+ * em autocommit, quando a conexão é devolvida à fonte.
+ *
+ * Só tabelas com ouvintes são acompanhadas, e a entidade de cada linha só
+ * é lida do banco se o ouvinte pedir ({@link CapturedChange#getEntity()}).
+ * Os ouvintes rodam em uma thread própria, pois o hook não pode consultar
+ * o banco.
+ */
+public class ChangeCapture implements AutoCloseable {
+
+    private record TableListener(Class<?> entityClass, CaptureListener<Object> listener) {
+    }
+
+    private record RowKey(String table, long rowId) {
+    }
+
+    private final Database database;
+    private volatile Map<String, List<TableListener>> listeners = Map.of();
+    /** Candidatos de {@link #subscribeExclusive}, por tabela; o primeiro está ativo. */
+    private final Map<String, List<TableListener>> exclusive = new HashMap<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "change-capture");
+        t.setDaemon(true);
+        return t;
+    });
+
+    ChangeCapture(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Inscreve um ouvinte para as alterações da tabela de uma entidade.
+     * @param entityClass Classe da entidade
+     * @param listener Ouvinte
+     * @return Inscrição, para cancelamento
+     */
+    public synchronized <T> ChangeFeed.Subscription subscribe(Class<T> entityClass, CaptureListener<T> listener) {
+        String table = tableOf(entityClass);
+        TableListener entry = tableListener(entityClass, listener);
+        addListener(table, entry);
+        return () -> unsubscribe(table, entry);
+    }
+
+    /**
+     * Inscreve um ouvinte que, entre os inscritos desta forma para a mesma
+     * tabela, é o único a receber as alterações: o primeiro inscrito está
+     * ativo e os demais ficam de reserva, assumindo na ordem de inscrição
+     * quando o ativo cancela. Usado pelos {@link Repositorio} de uma mesma
+     * tabela para que cada alteração seja publicada uma só vez.
+     */
+    synchronized <T> ChangeFeed.Subscription subscribeExclusive(Class<T> entityClass, CaptureListener<T> listener) {
+        String table = tableOf(entityClass);
+        TableListener entry = tableListener(entityClass, listener);
+        List<TableListener> candidates = exclusive.computeIfAbsent(table, t -> new ArrayList<>());
+        candidates.add(entry);
+        if (candidates.size() == 1) {
+            addListener(table, entry);
+        }
+        return () -> unsubscribeExclusive(table, entry);
+    }
+
+    private synchronized void unsubscribeExclusive(String table, TableListener entry) {
+        List<TableListener> candidates = exclusive.get(table);
+        if (candidates == null) {
+            return;
+        }
+        int index = candidates.indexOf(entry);
+        if (index < 0) {
+            return;
+        }
+        candidates.remove(index);
+        if (index == 0) {
+            unsubscribe(table, entry);
+            if (candidates.isEmpty()) {
+                exclusive.remove(table);
+            } else {
+                addListener(table, candidates.get(0));
+            }
+        }
+    }
+
+    private String tableOf(Class<?> entityClass) {
+        try {
+            return DaoManager.createDao(database.getConnection(), entityClass).getTableInfo().getTableName();
+        } catch (SQLException e) {
+            throw new IllegalArgumentException("Entidade sem mapeamento: " + entityClass.getName(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TableListener tableListener(Class<T> entityClass, CaptureListener<T> listener) {
+        return new TableListener(entityClass, (CaptureListener<Object>) (CaptureListener<?>) listener);
+    }
+
+    private synchronized void addListener(String table, TableListener entry) {
+        Map<String, List<TableListener>> updated = new HashMap<>(listeners);
+        List<TableListener> forTable = new ArrayList<>(updated.getOrDefault(table, List.of()));
+        forTable.add(entry);
+        updated.put(table, List.copyOf(forTable));
+        listeners = updated;
+    }
+
+    private synchronized void unsubscribe(String table, TableListener entry) {
+        Map<String, List<TableListener>> updated = new HashMap<>(listeners);
+        List<TableListener> forTable = new ArrayList<>(updated.getOrDefault(table, List.of()));
+        forTable.remove(entry);
+        if (forTable.isEmpty()) {
+            updated.remove(table);
+        } else {
+            updated.put(table, List.copyOf(forTable));
+        }
+        listeners = updated;
+    }
+
+    /**
+     * Registra os hooks em uma conexão recém-aberta.
+     * @return Conexão que acompanha os savepoints do ORMLite
+     */
+    DatabaseConnection attach(DatabaseConnection connection) throws SQLException {
+        SQLiteConnection sqlite = ((JdbcDatabaseConnection) connection)
+            .getUnderlyingConnection().unwrap(SQLiteConnection.class);
+        TransactionBuffer buffer = new TransactionBuffer();
+        sqlite.addUpdateListener(buffer);
+        sqlite.addCommitListener(buffer);
+        return new CapturingConnection(connection, buffer);
+    }
+
+    /**
+     * Alterações pendentes de uma conexão. Uma conexão é usada por uma
+     * thread de cada vez, então não há concorrência aqui.
+     */
+    private final class TransactionBuffer implements SQLiteUpdateListener, SQLiteCommitListener {
+
+        private Map<RowKey, CrudOperation.OperationType> pending = new LinkedHashMap<>();
+        private final List<Map<RowKey, CrudOperation.OperationType>> committed = new ArrayList<>();
+        private final Deque<Map<RowKey, CrudOperation.OperationType>> savePoints = new ArrayDeque<>();
+
+        void savePoint() {
+            savePoints.push(new LinkedHashMap<>(pending));
+        }
+
+        void releaseSavePoint() {
+            savePoints.poll();
+        }
+
+        void rollbackToSavePoint() {
+            Map<RowKey, CrudOperation.OperationType> snapshot = savePoints.poll();
+            if (snapshot != null) {
+                pending = snapshot;
+            }
+        }
+
+        @Override
+        public void onUpdate(Type type, String databaseName, String table, long rowId) {
+            if (!listeners.containsKey(table)) {
+                return;
+            }
+            RowKey key = new RowKey(table, rowId);
+            CrudOperation.OperationType merged = merge(pending.get(key), toOperation(type));
+            if (merged == null) {
+                pending.remove(key);
+            } else {
+                pending.put(key, merged);
+            }
+        }
+
+        @Override
+        public void onCommit() {
+            savePoints.clear();
+            if (pending.isEmpty()) {
+                return;
+            }
+            // ainda dentro do COMMIT: a entrega espera por dispatchCommitted()
+            committed.add(pending);
+            pending = new LinkedHashMap<>();
+        }
+
+        /**
+         * Entrega os lotes cujo commit já terminou.
+         */
+        void dispatchCommitted() {
+            if (committed.isEmpty()) {
+                return;
+            }
+            List<Map<RowKey, CrudOperation.OperationType>> batches = new ArrayList<>(committed);
+            committed.clear();
+            dispatcher.execute(() -> batches.forEach(ChangeCapture.this::deliver));
+        }
+
+        @Override
+        public void onRollback() {
+            savePoints.clear();
+            pending.clear();
+        }
+    }
+
+    /**
+     * O SQLite não avisa o {@code ROLLBACK TO} de um savepoint, que o
+     * {@code TransactionManager} do ORMLite usa para desfazer uma transação.
+     * Esta conexão guarda o estado do buffer a cada savepoint e o restaura
+     * no rollback correspondente.
+     */
+    private static final class CapturingConnection extends DatabaseConnectionProxy {
+        private final TransactionBuffer buffer;
+
+        CapturingConnection(DatabaseConnection connection, TransactionBuffer buffer) {
+            super(connection);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public Savepoint setSavePoint(String name) throws SQLException {
+            Savepoint savePoint = super.setSavePoint(name);
+            if (savePoint != null) {
+                buffer.savePoint();
+            }
+            return savePoint;
+        }
+
+        @Override
+        public void releaseSavePoint(Savepoint savePoint) throws SQLException {
+            super.releaseSavePoint(savePoint);
+            if (savePoint != null) {
+                buffer.releaseSavePoint();
+            }
+        }
+
+        @Override
+        public void rollback(Savepoint savePoint) throws SQLException {
+            super.rollback(savePoint);
+            if (savePoint != null) {
+                buffer.rollbackToSavePoint();
+            }
+        }
+
+        @Override
+        public void commit(Savepoint savePoint) throws SQLException {
+            super.commit(savePoint);
+            buffer.dispatchCommitted();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            closeWithSQLException(super::close);
+        }
+    }
+
+    /**
+     * Entrega o que a conexão confirmou em autocommit. Chamado pelas fontes
+     * de conexão antes de devolvê-la, quando o commit já terminou.
+     */
+    private static void dispatchCommitted(DatabaseConnection connection) {
+        if (connection instanceof CapturingConnection) {
+            ((CapturingConnection) connection).buffer.dispatchCommitted();
+        }
+    }
+
+    /**
+     * Combina duas alterações da mesma linha na mesma transação.
+     * @return Alteração resultante, ou null se a linha nasceu e morreu na transação
+     */
+    private static CrudOperation.OperationType merge(CrudOperation.OperationType previous,
+                                                     CrudOperation.OperationType next) {
+        if (previous == null) {
+            return next;
+        }
+        switch (previous) {
+            case CREATE:
+                return next == CrudOperation.OperationType.DELETE ? null : CrudOperation.OperationType.CREATE;
+            case DELETE:
+                return next == CrudOperation.OperationType.CREATE ? CrudOperation.OperationType.UPDATE : next;
+            default:
+                return next == CrudOperation.OperationType.DELETE ? CrudOperation.OperationType.DELETE
+                    : CrudOperation.OperationType.UPDATE;
+        }
+    }
+
+    private static CrudOperation.OperationType toOperation(SQLiteUpdateListener.Type type) {
+        switch (type) {
+            case INSERT:
+                return CrudOperation.OperationType.CREATE;
+            case DELETE:
+                return CrudOperation.OperationType.DELETE;
+            default:
+                return CrudOperation.OperationType.UPDATE;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void deliver(Map<RowKey, CrudOperation.OperationType> batch) {
+        Map<String, List<TableListener>> current = listeners;
+        Map<String, List<CapturedChange<Object>>> byTable = new LinkedHashMap<>();
+        for (Map.Entry<RowKey, CrudOperation.OperationType> change : batch.entrySet()) {
+            String table = change.getKey().table();
+            List<TableListener> forTable = current.get(table);
+            if (forTable == null) {
+                continue;
+            }
+            Dao dao;
+            try {
+                // o DaoManager guarda os DAOs; a conexão pode ter sido reaberta desde a inscrição
+                dao = DaoManager.createDao(database.getConnection(), forTable.get(0).entityClass());
+            } catch (SQLException e) {
+                System.out.println(e);
+                continue;
+            }
+            byTable.computeIfAbsent(table, t -> new ArrayList<>())
+                .add(new CapturedChange<>(change.getValue(), table, change.getKey().rowId(), dao));
+        }
+        for (Map.Entry<String, List<CapturedChange<Object>>> changes : byTable.entrySet()) {
+            List<CapturedChange<Object>> readOnly = List.copyOf(changes.getValue());
+            for (TableListener entry : current.get(changes.getKey())) {
+                try {
+                    entry.listener().onCommit(readOnly);
+                } catch (RuntimeException e) {
+                    System.err.println("Erro em ouvinte do ChangeCapture: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Encerra a thread de entrega; lotes ainda não entregues são descartados.
+     */
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+    }
+
+    /**
+     * Fecha um recurso do ORMLite cujo {@code close()} declara
+     * {@code Exception}, propagando apenas {@link SQLException}.
+     */
+    static void closeWithSQLException(AutoCloseable resource) throws SQLException {
+        try {
+            resource.close();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Conexão única com os hooks da captura.
+     */
+    static final class SingleConnectionSource extends SharedConnectionSource {
+        private final ChangeCapture capture;
+
+        SingleConnectionSource(String url, ChangeCapture capture) throws SQLException {
+            super(url);
+            this.capture = capture;
+        }
+
+        @Override
+        protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+            return capture.attach(super.makeConnection(logger));
+        }
+
+        @Override
+        public void releaseConnection(DatabaseConnection connection) throws SQLException {
+            dispatchCommitted(connection);
+            super.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * Pool de conexões em que cada conexão nova recebe os hooks da captura.
+     */
+    static final class PooledConnectionSource extends JdbcPooledConnectionSource {
+        private final ChangeCapture capture;
+
+        PooledConnectionSource(String url, ChangeCapture capture) throws SQLException {
+            super(url);
+            this.capture = capture;
+        }
+
+        @Override
+        protected DatabaseConnection makeConnection(Logger logger) throws SQLException {
+            return capture.attach(super.makeConnection(logger));
+        }
+
+        @Override
+        public void releaseConnection(DatabaseConnection connection) throws SQLException {
+            dispatchCommitted(connection);
+            super.releaseConnection(connection);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            closeWithSQLException(super::close);
+        }
+    }
+}
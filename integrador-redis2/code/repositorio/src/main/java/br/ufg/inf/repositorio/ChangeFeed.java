@@ -0,0 +1,306 @@
+package br.ufg.inf.repositorio;
+
+import br.ufg.inf.publicador.CrudOperation;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feed de alterações dentro da JVM, no estilo do Disruptor: um buffer
+ * circular pré-alocado, sem locks, entre as threads que gravam e uma
+ * thread que entrega os eventos aos ouvintes.
+ *
+ * Quem publica reserva uma posição com um incremento atômico, preenche a
+ * posição e a marca como publicada; nenhum objeto é alocado por evento e
+ * nada é serializado. A thread do feed entrega em ordem tudo o que estiver
+ * disponível e, ao esvaziar, avisa os ouvintes com
+ * {@link ChangeListener#onEndOfBatch()}. Se o buffer encher, quem publica
+ * espera a thread do feed liberar espaço.
+ *
+ * Cada {@link Database} tem o seu feed ({@link Database#getChangeFeed()}),
+ * e o {@link Repositorio} publica nele cada escrita confirmada. A
+ * publicação no Redis é apenas um dos ouvintes.
+ *
+ * Ouvintes não devem gravar de forma síncrona no mesmo {@link Database}:
+ * a thread do feed não pode esperar por espaço que só ela libera. Se um
+ * ouvinte gravar mesmo assim, o evento dessa gravação é entregue na hora,
+ * dentro do {@code onChange} que a causou, antes dos eventos que ainda
+ * estão no buffer.
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** Tentativas ativas antes de a thread do feed dormir. */
+    private static final int SPIN_TRIES = 200;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Inscrição de um ouvinte; {@link #close()} cancela a inscrição.
+     */
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Slot {
+        private Object source;
+        private CrudOperation.OperationType type;
+        private Object entity;
+        private Set<String> changedFields;
+        private CrudOperation operation;
+    }
+
+    private static final class Subscriber {
+        private final Object source;
+        private final Class<?> entityClass;
+        private final ChangeListener<Object> listener;
+        private boolean pending;
+
+        private Subscriber(Object source, Class<?> entityClass, ChangeListener<Object> listener) {
+            this.source = source;
+            this.entityClass = entityClass;
+            this.listener = listener;
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    /** Sequência publicada em cada posição; -1 enquanto vazia. */
+    private final AtomicLongArray published;
+    /** Última sequência reservada por quem publica. */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /** Última sequência entregue pela thread do feed. */
+    private volatile long consumed = -1;
+    private volatile Subscriber[] subscribers = new Subscriber[0];
+    private volatile Thread dispatcher;
+    private volatile boolean waiting;
+    private volatile boolean running = true;
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Número de posições do buffer; deve ser potência de 2
+     */
+    public ChangeFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity deve ser potência de 2: " + capacity);
+        }
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Inscreve um ouvinte para as alterações de um tipo de entidade
+     * (incluindo subclasses).
+     * @param entityClass Classe das entidades observadas
+     * @param listener Ouvinte
+     * @return Inscrição, para cancelamento
+     */
+    public <T> Subscription subscribe(Class<T> entityClass, ChangeListener<? super T> listener) {
+        return subscribe(null, entityClass, listener);
+    }
+
+    /**
+     * Inscreve um ouvinte apenas para os eventos publicados por {@code source}.
+     */
+    @SuppressWarnings("unchecked")
+    synchronized <T> Subscription subscribe(Object source, Class<T> entityClass, ChangeListener<? super T> listener) {
+        Subscriber subscriber = new Subscriber(source, entityClass, (ChangeListener<Object>) listener);
+        Subscriber[] current = subscribers;
+        Subscriber[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscriber;
+        subscribers = updated;
+        if (dispatcher == null && running) {
+            Thread thread = new Thread(this::dispatch, "change-feed");
+            thread.setDaemon(true);
+            dispatcher = thread;
+            thread.start();
+        }
+        return () -> unsubscribe(subscriber);
+    }
+
+    private synchronized void unsubscribe(Subscriber subscriber) {
+        Subscriber[] current = subscribers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscriber) {
+                Subscriber[] updated = new Subscriber[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscribers = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publica uma alteração. Sem ouvintes inscritos, não faz nada.
+     * @param source Quem gravou (em geral o {@link Repositorio})
+     * @param operationType Tipo da operação
+     * @param entity Entidade gravada
+     */
+    public void publish(Object source, CrudOperation.OperationType operationType, Object entity) {
+        publish(source, operationType, entity, null);
+    }
+
+    /**
+     * Publica uma alteração com os campos alterados por um UPDATE parcial.
+     * @param source Quem gravou (em geral o {@link Repositorio})
+     * @param operationType Tipo da operação
+     * @param entity Entidade gravada
+     * @param changedFields Nomes dos campos alterados, ou null se todos
+     */
+    public void publish(Object source, CrudOperation.OperationType operationType, Object entity,
+                        Set<String> changedFields) {
+        publish(source, operationType, entity, changedFields, null);
+    }
+
+    /**
+     * Publica uma alteração junto com a operação CRUD já montada na thread
+     * da escrita ({@link ChangeListener#onChange(CrudOperation.OperationType, Object, Set, CrudOperation)}).
+     * @param operation Operação com o estado do momento da escrita, ou null
+     */
+    public void publish(Object source, CrudOperation.OperationType operationType, Object entity,
+                        Set<String> changedFields, CrudOperation operation) {
+        if (subscribers.length == 0 || !running) {
+            return;
+        }
+        if (Thread.currentThread() == dispatcher) {
+            // publicado por um ouvinte: esperar por espaço no buffer seria
+            // esperar pela própria thread
+            Slot slot = new Slot();
+            slot.source = source;
+            slot.type = operationType;
+            slot.entity = entity;
+            slot.changedFields = changedFields;
+            slot.operation = operation;
+            deliver(subscribers, slot);
+            return;
+        }
+        long sequence = cursor.incrementAndGet();
+        while (sequence - slots.length > consumed) {
+            // Buffer cheio: espera a thread do feed avançar
+            if (!running) {
+                return;
+            }
+            LockSupport.parkNanos(1_000);
+        }
+        int index = (int) sequence & mask;
+        Slot slot = slots[index];
+        slot.source = source;
+        slot.type = operationType;
+        slot.entity = entity;
+        slot.changedFields = changedFields;
+        slot.operation = operation;
+        published.set(index, sequence);
+        if (waiting) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private void dispatch() {
+        long next = consumed + 1;
+        int idle = 0;
+        while (true) {
+            // lido antes de procurar eventos: ao encerrar, entrega o que já foi publicado
+            boolean stopping = !running;
+            long last = next - 1;
+            while (published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+            }
+            if (last < next) {
+                if (stopping) {
+                    return;
+                }
+                if (idle++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                waiting = true;
+                if (published.get((int) next & mask) != next && running) {
+                    LockSupport.park(this);
+                }
+                waiting = false;
+                idle = 0;
+                continue;
+            }
+            idle = 0;
+            Subscriber[] current = subscribers;
+            for (long sequence = next; sequence <= last; sequence++) {
+                Slot slot = slots[(int) sequence & mask];
+                deliver(current, slot);
+                slot.source = null;
+                slot.entity = null;
+                slot.changedFields = null;
+                slot.operation = null;
+            }
+            consumed = last;
+            next = last + 1;
+            for (Subscriber subscriber : current) {
+                if (subscriber.pending) {
+                    subscriber.pending = false;
+                    try {
+                        subscriber.listener.onEndOfBatch();
+                    } catch (RuntimeException e) {
+                        System.err.println("Erro em ouvinte do ChangeFeed: " + e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void deliver(Subscriber[] current, Slot slot) {
+        for (Subscriber subscriber : current) {
+            if ((subscriber.source == null || subscriber.source == slot.source)
+                    && subscriber.entityClass.isInstance(slot.entity)) {
+                subscriber.pending = true;
+                try {
+                    subscriber.listener.onChange(slot.type, slot.entity, slot.changedFields, slot.operation);
+                } catch (RuntimeException e) {
+                    System.err.println("Erro em ouvinte do ChangeFeed: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Número de eventos publicados e ainda não entregues
+     */
+    public long getLag() {
+        return Math.max(0, cursor.get() - consumed);
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Para de aceitar eventos e encerra a thread do feed depois de entregar
+     * os já publicados.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        Thread thread = dispatcher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package br.ufg.inf.repositorio;
+
+import br.ufg.inf.publicador.CrudOperation;
+
+import java.util.Set;
+
+/**
+ * Ouvinte de alterações publicadas no {@link ChangeFeed}.
+ *
+ * Os métodos rodam na thread do feed, depois do commit da escrita. Devem
+ * ser rápidos: enquanto um ouvinte trabalha, os demais esperam.
+ * Também não devem gravar de forma síncrona por um {@link Repositorio} do
+ * mesmo {@link Database}; para isso, entregue a gravação a outra thread
+ * (um executor, por exemplo).
+ * @param <T> Tipo da entidade observada
+ */
+@FunctionalInterface
+public interface ChangeListener<T> {
+
+    /**
+     * Chamado para cada entidade criada, atualizada ou removida.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entity A própria entidade gravada (não uma cópia)
+     */
+    void onChange(CrudOperation.OperationType operationType, T entity);
+
+    /**
+     * Versão de {@link #onChange(CrudOperation.OperationType, Object)} que
+     * recebe também os campos alterados por um UPDATE parcial. Por padrão,
+     * ignora os campos.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entity A própria entidade gravada (não uma cópia)
+     * @param changedFields Nomes dos campos Java alterados, ou null se a
+     *                      entidade foi gravada por inteiro
+     */
+    default void onChange(CrudOperation.OperationType operationType, T entity, Set<String> changedFields) {
+        onChange(operationType, entity);
+    }
+
+    /**
+     * Versão que recebe também a operação CRUD montada por quem publicou,
+     * na thread da escrita. Ao contrário da entidade, que pode ter sido
+     * alterada em memória desde então, a operação guarda o estado e o
+     * instante da escrita. Por padrão, ignora a operação.
+     * @param operation Operação montada na escrita, ou null se não houver
+     */
+    default void onChange(CrudOperation.OperationType operationType, T entity, Set<String> changedFields,
+                          CrudOperation operation) {
+        onChange(operationType, entity, changedFields);
+    }
+
+    /**
+     * Chamado quando o feed esvazia, depois de um lote de eventos. Útil para
+     * descarregar buffers.
+     */
+    default void onEndOfBatch() {
+    }
+}
@@ -0,0 +1,45 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.SelectArg;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * {@link PreparedQuery} do ORMLite guardado no cache do {@link Repositorio},
+ * com os {@link SelectArg} que recebem os valores a cada execução. Como os
+ * argumentos são compartilhados, execuções da mesma consulta são
+ * serializadas.
+ * @param <T> Tipo da entidade
+ */
+final class CompiledQuery<T> {
+
+    private final PreparedQuery<T> prepared;
+    private final SelectArg[] args;
+    private final String statement;
+
+    CompiledQuery(PreparedQuery<T> prepared, SelectArg[] args) throws SQLException {
+        this.prepared = prepared;
+        this.args = args;
+        this.statement = prepared.getStatement();
+    }
+
+    /**
+     * @return SQL da consulta, com {@code ?} no lugar dos valores
+     */
+    String getStatement() {
+        return statement;
+    }
+
+    synchronized List<T> execute(Dao<T, ?> dao, Object[] values) throws SQLException {
+        if (values.length != args.length) {
+            throw new SQLException("Esperados " + args.length + " parâmetros, recebidos " + values.length);
+        }
+        for (int i = 0; i < args.length; i++) {
+            args[i].setValue(values[i]);
+        }
+        return dao.query(prepared);
+    }
+}
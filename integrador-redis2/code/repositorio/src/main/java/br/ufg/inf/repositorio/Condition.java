@@ -0,0 +1,202 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.Where;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Condição de uma {@link Query}, criada a partir de um {@link FieldRef} e
+ * combinada com {@link #and(Condition)} e {@link #or(Condition)}.
+ *
+ * A condição separa o formato (colunas, operadores e quantidade de
+ * parâmetros) dos valores. O formato identifica a consulta compilada no
+ * cache; os valores são ligados a cada execução.
+ * @param <T> Tipo da entidade
+ */
+public final class Condition<T> {
+
+    enum Operator {
+        EQ("="), NE("<>"), GT(">"), GE(">="), LT("<"), LE("<="), LIKE(" LIKE "),
+        IN(" IN "), BETWEEN(" BETWEEN "), IS_NULL(" IS NULL"), AND(" AND "), OR(" OR ");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    private final Operator operator;
+    private final String column;
+    private final List<Object> values;
+    private final List<Condition<T>> children;
+
+    private Condition(Operator operator, String column, List<Object> values, List<Condition<T>> children) {
+        this.operator = operator;
+        this.column = column;
+        this.values = values;
+        this.children = children;
+    }
+
+    static <T> Condition<T> compare(Operator operator, String column, Object value) {
+        List<Object> values = new ArrayList<>(1);
+        values.add(value);
+        return new Condition<>(operator, column, values, List.of());
+    }
+
+    static <T> Condition<T> between(String column, Object low, Object high) {
+        return new Condition<>(Operator.BETWEEN, column, Arrays.asList(low, high), List.of());
+    }
+
+    static <T> Condition<T> in(String column, Collection<?> values) {
+        return new Condition<>(Operator.IN, column, new ArrayList<>(values), List.of());
+    }
+
+    static <T> Condition<T> isNull(String column) {
+        return new Condition<>(Operator.IS_NULL, column, List.of(), List.of());
+    }
+
+    /**
+     * @return Condição verdadeira quando esta e a outra forem verdadeiras
+     */
+    public Condition<T> and(Condition<T> other) {
+        return all(this, other);
+    }
+
+    /**
+     * @return Condição verdadeira quando esta ou a outra forem verdadeiras
+     */
+    public Condition<T> or(Condition<T> other) {
+        return any(this, other);
+    }
+
+    /**
+     * @return Condição verdadeira quando todas forem verdadeiras
+     */
+    @SafeVarargs
+    public static <T> Condition<T> all(Condition<T>... conditions) {
+        // copiado elemento a elemento: o array genérico não sai deste método
+        List<Condition<T>> children = new ArrayList<>(conditions.length);
+        for (Condition<T> condition : conditions) {
+            children.add(condition);
+        }
+        return new Condition<>(Operator.AND, null, List.of(), List.copyOf(children));
+    }
+
+    /**
+     * @return Condição verdadeira quando ao menos uma for verdadeira
+     */
+    @SafeVarargs
+    public static <T> Condition<T> any(Condition<T>... conditions) {
+        List<Condition<T>> children = new ArrayList<>(conditions.length);
+        for (Condition<T> condition : conditions) {
+            children.add(condition);
+        }
+        return new Condition<>(Operator.OR, null, List.of(), List.copyOf(children));
+    }
+
+    /**
+     * Escreve o formato da condição, sem os valores.
+     */
+    void appendShape(StringBuilder shape) {
+        if (operator == Operator.AND || operator == Operator.OR) {
+            shape.append('(');
+            for (int i = 0; i < children.size(); i++) {
+                if (i > 0)
+                    shape.append(operator.symbol);
+                children.get(i).appendShape(shape);
+            }
+            shape.append(')');
+        } else {
+            shape.append(column).append(operator.symbol);
+            if (operator == Operator.IN) {
+                shape.append('(').append(values.size()).append(')');
+            } else if (!values.isEmpty()) {
+                shape.append('?');
+            }
+        }
+    }
+
+    /**
+     * Acrescenta os valores na mesma ordem em que {@link #apply} cria os
+     * parâmetros.
+     */
+    void collectValues(List<Object> target) {
+        target.addAll(values);
+        for (Condition<T> child : children) {
+            child.collectValues(target);
+        }
+    }
+
+    /**
+     * Empilha esta condição no {@link Where} do ORMLite, usando um
+     * {@link SelectArg} para cada valor.
+     */
+    void apply(Where<T, ?> where, List<SelectArg> args) throws SQLException {
+        switch (operator) {
+            case AND:
+            case OR:
+                for (Condition<T> child : children) {
+                    child.apply(where, args);
+                }
+                if (children.size() > 1) {
+                    if (operator == Operator.AND)
+                        where.and(children.size());
+                    else
+                        where.or(children.size());
+                }
+                return;
+            case IS_NULL:
+                where.isNull(column);
+                return;
+            case IN:
+                if (values.isEmpty()) {
+                    where.raw("1 = 0");
+                    return;
+                }
+                Object[] inArgs = new Object[values.size()];
+                for (int i = 0; i < inArgs.length; i++) {
+                    inArgs[i] = arg(args);
+                }
+                where.in(column, inArgs);
+                return;
+            case BETWEEN:
+                where.between(column, arg(args), arg(args));
+                return;
+            case EQ:
+                where.eq(column, arg(args));
+                return;
+            case NE:
+                where.ne(column, arg(args));
+                return;
+            case GT:
+                where.gt(column, arg(args));
+                return;
+            case GE:
+                where.ge(column, arg(args));
+                return;
+            case LT:
+                where.lt(column, arg(args));
+                return;
+            case LE:
+                where.le(column, arg(args));
+                return;
+            case LIKE:
+                where.like(column, arg(args));
+                return;
+            default:
+                throw new SQLException("Operador não suportado: " + operator);
+        }
+    }
+
+    private static SelectArg arg(List<SelectArg> args) {
+        SelectArg arg = new SelectArg();
+        args.add(arg);
+        return arg;
+    }
+}
@@ -1,37 +1,74 @@
 package br.ufg.inf.repositorio;
 
 import java.sql.*;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.table.TableUtils;
 
 /**
  * Classe responsável por gerenciar a conexão com o banco de dados SQLite.
  * Esta classe é reutilizável e pode ser utilizada em diferentes componentes.
+ * O comportamento do SQLite (journal, synchronous, cache, pool de conexões)
+ * é definido por um {@link DatabaseOptions}.
  */
 public class Database {
     private String databaseName = null;
+    private DatabaseOptions options;
     private JdbcConnectionSource connection = null;
+    private Dao<OutboxEntry, Long> outboxDao = null;
+    private WriteExecutor writeExecutor = null;
+    private ChangeFeed changeFeed = null;
+    private ChangeCapture changeCapture = null;
     
     /**
      * Construtor que inicializa o banco de dados com o nome especificado.
      * @param databaseName Nome do arquivo de banco de dados SQLite
      */
     public Database(String databaseName) {
-        this.databaseName = databaseName;
+        this(databaseName, DatabaseOptions.defaults());
     }    
+
+    /**
+     * Construtor que inicializa o banco de dados com um perfil de configuração.
+     * @param databaseName Nome do arquivo de banco de dados SQLite
+     * @param options Perfil de configuração, por exemplo {@link DatabaseOptions#throughput()}
+     */
+    public Database(String databaseName, DatabaseOptions options) {
+        this.databaseName = databaseName;
+        this.options = options;
+    }
     
     /**
      * Obtém a conexão com o banco de dados.
-     * Se a conexão não existir, cria uma nova.
+     * Se a conexão não existir, cria uma nova. Com {@link DatabaseOptions#isPooled()},
+     * a fonte devolvida é um pool: leitores concorrentes usam conexões
+     * próprias em vez de se enfileirar em uma só. Bancos em memória
+     * ({@code :memory:}) sempre usam conexão única, pois cada conexão
+     * enxergaria um banco diferente.
      * @return Conexão JDBC do ORMLite
      * @throws SQLException Se houver erro na conexão
      */
-    public JdbcConnectionSource getConnection() throws SQLException {
+    public synchronized JdbcConnectionSource getConnection() throws SQLException {
         if (databaseName == null) {
             throw new SQLException("database name is null");
         }
         if (connection == null) {
             try {
-                connection = new JdbcConnectionSource("jdbc:sqlite:" + databaseName);             
+                String url = options.toJdbcUrl(databaseName);
+                ChangeCapture capture = getChangeCapture();
+                if (options.isPooled() && !isInMemory()) {
+                    JdbcPooledConnectionSource pool = capture != null
+                        ? new ChangeCapture.PooledConnectionSource(url, capture)
+                        : new JdbcPooledConnectionSource(url);
+                    pool.setMaxConnectionsFree(options.getMaxPoolSize());
+                    connection = pool;
+                } else {
+                    connection = capture != null
+                        ? new ChangeCapture.SingleConnectionSource(url, capture)
+                        : new SharedConnectionSource(url);
+                }
             } catch (Exception e) {
                 System.err.println(e.getClass().getName() + ": " + e.getMessage());
                 System.exit(0);
@@ -40,14 +77,119 @@ public class Database {
         return connection;
     }
     
+    /**
+     * Obtém o perfil de configuração deste banco.
+     * @return Opções do SQLite
+     */
+    public DatabaseOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Abre uma fonte de conexão própria para o mesmo arquivo, separada da
+     * conexão compartilhada: quem a usa só enxerga transações já
+     * confirmadas pelas demais. Quem chama deve fechá-la.
+     * @return Nova fonte de conexão única
+     * @throws SQLException Se o banco for em memória ou houver erro na conexão
+     */
+    JdbcConnectionSource openSeparateConnection() throws SQLException {
+        if (databaseName == null) {
+            throw new SQLException("database name is null");
+        }
+        if (isInMemory()) {
+            throw new SQLException("Banco em memória não admite conexão separada: " + databaseName);
+        }
+        return new JdbcConnectionSource(options.toJdbcUrl(databaseName));
+    }
+
+    boolean isInMemory() {
+        return databaseName != null
+            && (databaseName.startsWith(":memory:") || databaseName.contains("mode=memory"));
+    }
+
+    /**
+     * Obtém o DAO da tabela {@code outbox}, criando a tabela se necessário.
+     * @return DAO das operações CRUD pendentes de publicação
+     * @throws SQLException Se houver erro ao criar a tabela
+     */
+    public synchronized Dao<OutboxEntry, Long> getOutboxDao() throws SQLException {
+        if (outboxDao == null) {
+            TableUtils.createTableIfNotExists(getConnection(), OutboxEntry.class);
+            outboxDao = DaoManager.createDao(getConnection(), OutboxEntry.class);
+        }
+        return outboxDao;
+    }
+
+    /**
+     * Passa a gravar por um escritor único com commit em grupo: as escritas
+     * dos repositórios deste banco são enfileiradas e confirmadas em lotes
+     * de até {@code maxBatchSize} por transação. Chamadas repetidas
+     * substituem a configuração anterior.
+     * @param maxBatchSize Número máximo de escritas por transação
+     * @param maxLatencyMillis Tempo máximo de espera para formar um grupo
+     * @return Executor de escritas
+     * @throws SQLException Se houver erro na conexão
+     */
+    public synchronized WriteExecutor enableWriteExecutor(int maxBatchSize, long maxLatencyMillis) throws SQLException {
+        disableWriteExecutor();
+        writeExecutor = new WriteExecutor(getConnection(), maxBatchSize, maxLatencyMillis);
+        return writeExecutor;
+    }
+
+    /**
+     * Volta às escritas diretas, gravando antes as que já estão na fila.
+     */
+    public synchronized void disableWriteExecutor() {
+        if (writeExecutor != null) {
+            writeExecutor.close();
+            writeExecutor = null;
+        }
+    }
+
+    /**
+     * Obtém o executor de escritas, se habilitado.
+     * @return Executor de escritas ou null
+     */
+    public synchronized WriteExecutor getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    /**
+     * Obtém o feed de alterações deste banco, no qual os repositórios
+     * publicam cada escrita confirmada. O feed continua ativo depois de
+     * {@link #close()}, pois a conexão é reaberta sob demanda.
+     * @return Feed de alterações
+     */
+    public synchronized ChangeFeed getChangeFeed() {
+        if (changeFeed == null) {
+            changeFeed = new ChangeFeed();
+        }
+        return changeFeed;
+    }
+
+    /**
+     * Obtém a captura de alterações pelo update hook do SQLite, que vê
+     * toda escrita feita nas conexões deste banco, inclusive SQL bruto.
+     * Assim como o feed, continua ativa depois de {@link #close()}.
+     * @return Captura de alterações, ou null sem {@link DatabaseOptions#isChangeCapture()}
+     */
+    public synchronized ChangeCapture getChangeCapture() {
+        if (changeCapture == null && options.isChangeCapture()) {
+            changeCapture = new ChangeCapture(this);
+        }
+        return changeCapture;
+    }
+
     /**
      * Fecha a conexão com o banco de dados.
      */
-    public void close() {
+    public synchronized void close() {
+        disableWriteExecutor();
         if (connection != null) {
             try {
                 connection.close();
                 this.connection = null;
+                this.outboxDao = null;
             } catch (java.lang.Exception e) {
                 System.err.println(e);
             }
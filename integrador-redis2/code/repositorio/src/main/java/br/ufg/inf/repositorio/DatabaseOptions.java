@@ -0,0 +1,182 @@
+package br.ufg.inf.repositorio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Perfil de configuração do SQLite usado por {@link Database}.
+ *
+ * Cada opção não definida (null) mantém o padrão do SQLite. As opções são
+ * aplicadas como parâmetros da URL JDBC, de modo que o driver as executa
+ * como PRAGMA em toda conexão aberta, inclusive nas conexões do pool.
+ *
+ * Há dois perfis prontos:
+ * <ul>
+ *   <li>{@link #throughput()}: WAL com {@code synchronous=NORMAL}, cache e
+ *   mmap grandes. Um commit não faz fsync; uma queda de energia pode perder
+ *   as últimas transações, mas nunca corrompe o banco.</li>
+ *   <li>{@link #durability()}: WAL com {@code synchronous=FULL}. Todo
+ *   commit é durável, ao custo de um fsync por transação.</li>
+ * </ul>
+ */
+public class DatabaseOptions {
+
+    public enum JournalMode { DELETE, TRUNCATE, PERSIST, MEMORY, WAL, OFF }
+
+    public enum Synchronous { OFF, NORMAL, FULL, EXTRA }
+
+    public enum TempStore { DEFAULT, FILE, MEMORY }
+
+    private JournalMode journalMode;
+    private Synchronous synchronous;
+    private Long mmapSize;
+    private Integer cacheSize;
+    private Integer busyTimeoutMillis;
+    private TempStore tempStore;
+    private boolean pooled = false;
+    private int maxPoolSize = 8;
+    private boolean changeCapture = false;
+
+    /**
+     * Perfil sem nenhuma opção: conexão única e padrões do SQLite
+     * (journal em modo rollback). É o comportamento histórico de {@link Database}.
+     */
+    public static DatabaseOptions defaults() {
+        return new DatabaseOptions();
+    }
+
+    /**
+     * Perfil voltado para vazão de escrita e leituras concorrentes.
+     */
+    public static DatabaseOptions throughput() {
+        DatabaseOptions options = new DatabaseOptions();
+        options.setJournalMode(JournalMode.WAL);
+        options.setSynchronous(Synchronous.NORMAL);
+        options.setMmapSize(256L * 1024 * 1024);
+        options.setCacheSize(-64 * 1024);
+        options.setBusyTimeoutMillis(5000);
+        options.setTempStore(TempStore.MEMORY);
+        options.setPooled(true);
+        return options;
+    }
+
+    /**
+     * Perfil voltado para durabilidade: todo commit confirmado sobrevive a
+     * uma queda de energia.
+     */
+    public static DatabaseOptions durability() {
+        DatabaseOptions options = new DatabaseOptions();
+        options.setJournalMode(JournalMode.WAL);
+        options.setSynchronous(Synchronous.FULL);
+        options.setCacheSize(-16 * 1024);
+        options.setBusyTimeoutMillis(10000);
+        options.setTempStore(TempStore.DEFAULT);
+        options.setPooled(true);
+        return options;
+    }
+
+    /**
+     * Monta a URL JDBC com as opções definidas como parâmetros.
+     * @param databaseName Nome do arquivo de banco de dados SQLite
+     * @return URL no formato {@code jdbc:sqlite:arquivo?pragma=valor&...}
+     */
+    public String toJdbcUrl(String databaseName) {
+        List<String> params = new ArrayList<>();
+        if (journalMode != null)
+            params.add("journal_mode=" + journalMode.name());
+        if (synchronous != null)
+            params.add("synchronous=" + synchronous.name());
+        if (mmapSize != null)
+            params.add("mmap_size=" + mmapSize);
+        if (cacheSize != null)
+            params.add("cache_size=" + cacheSize);
+        if (busyTimeoutMillis != null)
+            params.add("busy_timeout=" + busyTimeoutMillis);
+        if (tempStore != null)
+            params.add("temp_store=" + tempStore.name());
+
+        String url = "jdbc:sqlite:" + databaseName;
+        return params.isEmpty() ? url : url + "?" + String.join("&", params);
+    }
+
+    public JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    public void setJournalMode(JournalMode journalMode) {
+        this.journalMode = journalMode;
+    }
+
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(Synchronous synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    /** Tamanho máximo, em bytes, do arquivo mapeado em memória. */
+    public Long getMmapSize() {
+        return mmapSize;
+    }
+
+    public void setMmapSize(Long mmapSize) {
+        this.mmapSize = mmapSize;
+    }
+
+    /** Tamanho do cache de páginas; valores negativos são em KiB. */
+    public Integer getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(Integer cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /** Tempo que uma conexão espera por um lock antes de SQLITE_BUSY. */
+    public Integer getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    public void setBusyTimeoutMillis(Integer busyTimeoutMillis) {
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    public TempStore getTempStore() {
+        return tempStore;
+    }
+
+    public void setTempStore(TempStore tempStore) {
+        this.tempStore = tempStore;
+    }
+
+    /** Indica se {@link Database} deve usar um pool de conexões. */
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    /** Número máximo de conexões livres mantidas no pool. */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    /**
+     * Indica se as conexões registram o update hook do SQLite para a
+     * {@link ChangeCapture} de {@link Database#getChangeCapture()}.
+     */
+    public boolean isChangeCapture() {
+        return changeCapture;
+    }
+
+    public void setChangeCapture(boolean changeCapture) {
+        this.changeCapture = changeCapture;
+    }
+}
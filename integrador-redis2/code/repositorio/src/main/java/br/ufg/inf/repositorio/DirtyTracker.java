@@ -0,0 +1,136 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.UpdateBuilder;
+import com.j256.ormlite.stmt.Where;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Verificação de alterações por campo ("dirty checking") do
+ * {@link Repositorio}.
+ *
+ * Guarda, por ID, uma cópia dos valores das colunas de cada entidade lida
+ * ou gravada (o último estado conhecido no banco). Em um UPDATE, compara a
+ * entidade com a cópia: só as colunas alteradas entram no {@code SET}, e
+ * sem alterações nenhum comando é enviado. Entidades sem cópia (despejadas
+ * ou nunca lidas) são gravadas por inteiro.
+ *
+ * As cópias são limitadas por um {@link EntityCache}; escritas feitas fora
+ * deste repositório não são vistas até a próxima leitura da entidade.
+ * @param <T> Tipo da entidade
+ * @param <ID> Tipo da chave primária
+ */
+final class DirtyTracker<T, ID> {
+
+    private final Dao<T, ID> dao;
+    private final FieldType idField;
+    private final FieldType versionField;
+    private final FieldType[] fields;
+    private final EntityCache<ID, Object[]> snapshots;
+
+    DirtyTracker(Dao<T, ID> dao, int maxEntities) {
+        this.dao = dao;
+        this.idField = dao.getTableInfo().getIdField();
+        FieldType version = null;
+        List<FieldType> columns = new ArrayList<>();
+        for (FieldType field : dao.getTableInfo().getFieldTypes()) {
+            if (field.isVersion()) {
+                version = field;
+            } else if (field != idField && !field.isForeignCollection()) {
+                columns.add(field);
+            }
+        }
+        this.versionField = version;
+        this.fields = columns.toArray(new FieldType[0]);
+        this.snapshots = new EntityCache<>(maxEntities);
+    }
+
+    /**
+     * Registra o estado atual das entidades como o estado do banco.
+     */
+    void track(List<T> entities) throws SQLException {
+        for (T entity : entities) {
+            track(entity);
+        }
+    }
+
+    void track(T entity) throws SQLException {
+        ID id = dao.extractId(entity);
+        if (id == null) {
+            return;
+        }
+        Object[] values = new Object[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = fields[i].extractJavaFieldValue(entity);
+        }
+        snapshots.put(id, values);
+    }
+
+    void forget(T entity) throws SQLException {
+        forgetId(dao.extractId(entity));
+    }
+
+    void forgetId(ID id) {
+        if (id != null) {
+            snapshots.invalidate(id);
+        }
+    }
+
+    /**
+     * Compara a entidade com o último estado conhecido.
+     * @return Campos alterados (vazio se nada mudou), ou null sem estado conhecido
+     */
+    FieldType[] dirtyFields(T entity) throws SQLException {
+        ID id = dao.extractId(entity);
+        Object[] snapshot = id == null ? null : snapshots.get(id);
+        if (snapshot == null) {
+            return null;
+        }
+        List<FieldType> dirty = new ArrayList<>();
+        for (int i = 0; i < fields.length; i++) {
+            if (!Objects.deepEquals(snapshot[i], fields[i].extractJavaFieldValue(entity))) {
+                dirty.add(fields[i]);
+            }
+        }
+        return dirty.toArray(new FieldType[0]);
+    }
+
+    /**
+     * Executa {@code UPDATE ... SET} apenas com os campos informados. Com
+     * campo de versão, faz como o {@code dao.update} do ORMLite: compara a
+     * versão no {@code WHERE}, grava a seguinte e, se a linha for
+     * atualizada, a copia para a entidade.
+     * @param entity Entidade
+     * @param dirty Campos alterados; não deve ser vazio
+     * @return Número de linhas atualizadas; 0 em conflito de versão
+     */
+    int update(T entity, FieldType[] dirty) throws SQLException {
+        UpdateBuilder<T, ID> update = dao.updateBuilder();
+        for (FieldType field : dirty) {
+            update.updateColumnValue(field.getColumnName(), new SelectArg(field.extractJavaFieldValue(entity)));
+        }
+        Where<T, ID> where = update.where().eq(idField.getColumnName(), new SelectArg(dao.extractId(entity)));
+        Object nextVersion = null;
+        if (versionField != null) {
+            Object version = versionField.extractJavaFieldValue(entity);
+            nextVersion = versionField.moveToNextValue(version);
+            update.updateColumnValue(versionField.getColumnName(), new SelectArg(nextVersion));
+            where.and().eq(versionField.getColumnName(), new SelectArg(version));
+        }
+        int nrows = update.update();
+        if (nrows > 0 && versionField != null) {
+            versionField.assignField(dao.getConnectionSource(), entity, nextVersion, false, null);
+        }
+        return nrows;
+    }
+
+    EntityCache<ID, Object[]> getSnapshots() {
+        return snapshots;
+    }
+}
@@ -0,0 +1,147 @@
+package br.ufg.inf.repositorio;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache de identidade com tamanho limitado e despejo LRU (menos usado
+ * recentemente), usado pelo {@link Repositorio} para evitar idas ao banco
+ * em {@code loadFromId}.
+ *
+ * Os contadores de acertos, faltas e despejos podem ser lidos a qualquer
+ * momento para ajustar o tamanho do cache.
+ *
+ * Cada invalidação avança a versão do cache. Quem carrega uma entidade do
+ * banco guarda a versão antes da consulta e a entrega com
+ * {@link #putIfUnchanged}: se uma escrita invalidou o cache nesse meio
+ * tempo, a linha lida pode ser anterior a ela e não é guardada.
+ *
+ * @param <K> Tipo da chave (ID da entidade)
+ * @param <V> Tipo do valor (entidade)
+ */
+public class EntityCache<K, V> {
+
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long version;
+
+    /**
+     * @param maxSize Número máximo de entidades mantidas no cache
+     */
+    public EntityCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize deve ser positivo: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Busca uma entidade no cache, contabilizando acerto ou falta.
+     * @param key ID da entidade
+     * @return Entidade em cache, ou null se ausente
+     */
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Guarda uma entidade carregada do banco, a menos que o cache tenha
+     * sido invalidado depois de {@code version} ser lida.
+     * @param key ID da entidade
+     * @param value Entidade carregada
+     * @param version Valor de {@link #version()} lido antes da consulta
+     * @return true se a entidade foi guardada
+     */
+    public synchronized boolean putIfUnchanged(K key, V value, long version) {
+        if (this.version != version) {
+            return false;
+        }
+        entries.put(key, value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        version++;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        version++;
+    }
+
+    /**
+     * @return Número de invalidações feitas até agora
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Cópia das entradas atuais, da menos para a mais usada
+     */
+    public synchronized Map<K, V> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Fração de buscas atendidas pelo cache, entre 0 e 1
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{size=" + size() + "/" + maxSize
+            + ", hits=" + getHits()
+            + ", misses=" + getMisses()
+            + ", evictions=" + getEvictions() + "}";
+    }
+}
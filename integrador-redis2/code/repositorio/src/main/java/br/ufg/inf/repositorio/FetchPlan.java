@@ -0,0 +1,153 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plano de carga das associações estrangeiras de uma entidade.
+ *
+ * Com {@code foreignAutoRefresh = true}, o ORMLite faz uma consulta por
+ * linha para cada associação (o problema N+1). O plano faz o contrário:
+ * depois de carregar uma lista de entidades, junta os IDs distintos de cada
+ * associação e os busca com {@code WHERE id IN (...)}, em blocos de
+ * {@link #IN_CHUNK_SIZE}. Entidades que apontam para o mesmo registro
+ * recebem a mesma instância.
+ *
+ * Os caminhos seguem os nomes dos campos Java, separados por ponto, por
+ * exemplo {@code "turma.disciplina"}.
+ */
+final class FetchPlan {
+
+    /**
+     * Número de IDs por consulta; fica abaixo do limite histórico de 999 parâmetros do SQLite.
+     */
+    static final int IN_CHUNK_SIZE = 900;
+
+    private final ConnectionSource connectionSource;
+    private final Map<FieldType, FetchPlan> associations = new LinkedHashMap<>();
+
+    private FetchPlan(ConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+    }
+
+    /**
+     * Monta o plano, validando cada caminho contra o mapeamento do ORMLite.
+     * @param connectionSource Fonte de conexões do banco
+     * @param entityClass Classe da entidade raiz
+     * @param paths Caminhos das associações, por exemplo "turma.disciplina"
+     * @return Plano de carga
+     * @throws SQLException Se não for possível obter o mapeamento de alguma classe
+     * @throws IllegalArgumentException Se um caminho não corresponder a um campo estrangeiro
+     */
+    static FetchPlan of(ConnectionSource connectionSource, Class<?> entityClass, String... paths) throws SQLException {
+        FetchPlan root = new FetchPlan(connectionSource);
+        for (String path : paths) {
+            FetchPlan node = root;
+            Class<?> nodeClass = entityClass;
+            for (String fieldName : path.split("\\.")) {
+                FieldType field = node.foreignField(nodeClass, fieldName);
+                FetchPlan child = node.associations.get(field);
+                if (child == null) {
+                    child = new FetchPlan(connectionSource);
+                    node.associations.put(field, child);
+                }
+                node = child;
+                nodeClass = field.getType();
+            }
+        }
+        return root;
+    }
+
+    private FieldType foreignField(Class<?> entityClass, String fieldName) throws SQLException {
+        Dao<?, ?> dao = DaoManager.createDao(connectionSource, entityClass);
+        for (FieldType field : dao.getTableInfo().getFieldTypes()) {
+            if (field.getFieldName().equals(fieldName)) {
+                if (!field.isForeign()) {
+                    throw new IllegalArgumentException(
+                        entityClass.getSimpleName() + "." + fieldName + " não é um campo estrangeiro");
+                }
+                return field;
+            }
+        }
+        throw new IllegalArgumentException(
+            "Campo não encontrado: " + entityClass.getSimpleName() + "." + fieldName);
+    }
+
+    /**
+     * Carrega as associações do plano nas entidades dadas.
+     * @param entities Entidades já carregadas
+     * @throws SQLException Se alguma consulta falhar
+     */
+    void apply(Collection<?> entities) throws SQLException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<FieldType, FetchPlan> association : associations.entrySet()) {
+            Collection<Object> loaded = fetch(association.getKey(), entities);
+            association.getValue().apply(loaded);
+        }
+    }
+
+    /**
+     * Busca em lote os registros apontados por um campo estrangeiro e os
+     * atribui às entidades.
+     * @return Registros carregados, sem repetição
+     */
+    private Collection<Object> fetch(FieldType field, Collection<?> entities) throws SQLException {
+        FieldType foreignIdField = field.getForeignIdField();
+        Set<Object> ids = new LinkedHashSet<>();
+        for (Object entity : entities) {
+            Object reference = field.extractRawJavaFieldValue(entity);
+            if (reference != null) {
+                ids.add(foreignIdField.extractJavaFieldValue(reference));
+            }
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        @SuppressWarnings("unchecked")
+        Dao<Object, Object> dao = (Dao<Object, Object>) DaoManager.createDao(connectionSource, field.getType());
+        Map<Object, Object> byId = new LinkedHashMap<>(ids.size() * 2);
+        List<Object> chunk = new ArrayList<>(IN_CHUNK_SIZE);
+        for (Object id : ids) {
+            chunk.add(id);
+            if (chunk.size() == IN_CHUNK_SIZE) {
+                load(dao, foreignIdField, chunk, byId);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            load(dao, foreignIdField, chunk, byId);
+        }
+
+        for (Object entity : entities) {
+            Object reference = field.extractRawJavaFieldValue(entity);
+            if (reference != null) {
+                Object loaded = byId.get(foreignIdField.extractJavaFieldValue(reference));
+                if (loaded != null) {
+                    field.assignField(connectionSource, entity, loaded, true, null);
+                }
+            }
+        }
+        return byId.values();
+    }
+
+    private static void load(Dao<Object, Object> dao, FieldType idField, List<Object> ids,
+                             Map<Object, Object> byId) throws SQLException {
+        for (Object loaded : dao.queryBuilder().where().in(idField.getColumnName(), ids).query()) {
+            byId.put(idField.extractJavaFieldValue(loaded), loaded);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package br.ufg.inf.repositorio;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Referência tipada a uma coluna de uma entidade, ponto de partida das
+ * condições de {@link Query}. Costuma ser declarada como constante na
+ * própria entidade:
+ * <pre>
+ * public static final FieldRef&lt;Matricula, StatusMatricula&gt; STATUS = FieldRef.of("status");
+ * </pre>
+ * Para campos estrangeiros use o nome da coluna ({@code "turma_id"}); o
+ * valor pode ser a própria entidade referenciada.
+ * @param <T> Tipo da entidade
+ * @param <V> Tipo do valor da coluna
+ */
+public final class FieldRef<T, V> {
+
+    private final String column;
+
+    private FieldRef(String column) {
+        this.column = column;
+    }
+
+    /**
+     * @param column Nome da coluna no banco
+     * @return Referência à coluna
+     */
+    public static <T, V> FieldRef<T, V> of(String column) {
+        return new FieldRef<>(column);
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Condition<T> eq(V value) {
+        return Condition.compare(Condition.Operator.EQ, column, value);
+    }
+
+    public Condition<T> ne(V value) {
+        return Condition.compare(Condition.Operator.NE, column, value);
+    }
+
+    public Condition<T> gt(V value) {
+        return Condition.compare(Condition.Operator.GT, column, value);
+    }
+
+    public Condition<T> ge(V value) {
+        return Condition.compare(Condition.Operator.GE, column, value);
+    }
+
+    public Condition<T> lt(V value) {
+        return Condition.compare(Condition.Operator.LT, column, value);
+    }
+
+    public Condition<T> le(V value) {
+        return Condition.compare(Condition.Operator.LE, column, value);
+    }
+
+    /**
+     * @param low Limite inferior, inclusivo
+     * @param high Limite superior, inclusivo
+     * @return Condição {@code coluna BETWEEN low AND high}
+     */
+    public Condition<T> between(V low, V high) {
+        return Condition.between(column, low, high);
+    }
+
+    /**
+     * @param pattern Padrão SQL, com {@code %} e {@code _}
+     * @return Condição {@code coluna LIKE pattern}
+     */
+    public Condition<T> like(String pattern) {
+        return Condition.compare(Condition.Operator.LIKE, column, pattern);
+    }
+
+    /**
+     * @param values Valores aceitos; uma coleção vazia não seleciona nada
+     * @return Condição {@code coluna IN (...)}
+     */
+    public Condition<T> in(Collection<? extends V> values) {
+        return Condition.in(column, values);
+    }
+
+    @SafeVarargs
+    public final Condition<T> in(V... values) {
+        List<V> list = new ArrayList<>(values.length);
+        for (V value : values) {
+            list.add(value);
+        }
+        return in(list);
+    }
+
+    public Condition<T> isNull() {
+        return Condition.isNull(column);
+    }
+}
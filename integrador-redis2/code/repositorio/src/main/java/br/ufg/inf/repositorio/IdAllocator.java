@@ -0,0 +1,120 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Alocador de IDs em blocos (hi-lo) para tabelas com chave
+ * {@code INTEGER PRIMARY KEY AUTOINCREMENT}.
+ *
+ * Em vez de deixar o SQLite gerar a chave de cada INSERT (e o driver
+ * lê-la de volta), o alocador reserva um bloco de {@code blockSize} IDs em
+ * uma transação curta e os distribui sem locks, por um {@link AtomicLong}.
+ * Com as chaves conhecidas antes do INSERT, as inserções em lote podem ir
+ * ao banco em um único batch JDBC.
+ *
+ * A tabela de sequências é a própria {@code sqlite_sequence} do SQLite: a
+ * reserva avança o contador da tabela, de modo que INSERTs de outros
+ * processos, que usam AUTOINCREMENT, nunca caem dentro de um bloco
+ * reservado. IDs de blocos não usados até o fim do processo são perdidos,
+ * o que deixa lacunas na sequência.
+ */
+public class IdAllocator {
+
+    /** Tamanho padrão do bloco de IDs. */
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    /** Faixa reservada: {@code next} avança até passar de {@code last}. */
+    private record Block(AtomicLong next, long last) {
+    }
+
+    private final ConnectionSource connectionSource;
+    private final String table;
+    private final String idColumn;
+    private final int blockSize;
+    private volatile Block block = new Block(new AtomicLong(1), 0);
+    private final AtomicLong reservedBlocks = new AtomicLong();
+
+    /**
+     * @param connectionSource Conexão do banco
+     * @param table Tabela com chave AUTOINCREMENT
+     * @param idColumn Coluna da chave primária
+     * @param blockSize Número de IDs reservados por transação
+     */
+    public IdAllocator(ConnectionSource connectionSource, String table, String idColumn, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize deve ser positivo: " + blockSize);
+        }
+        this.connectionSource = connectionSource;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Obtém o próximo ID. Só acessa o banco quando o bloco atual se esgota.
+     * @return ID ainda não usado na tabela
+     * @throws SQLException Se a reserva de um novo bloco falhar
+     */
+    public long nextId() throws SQLException {
+        while (true) {
+            Block current = block;
+            long id = current.next().getAndIncrement();
+            if (id <= current.last()) {
+                return id;
+            }
+            reserve(current);
+        }
+    }
+
+    /**
+     * Reserva um novo bloco, se nenhuma outra thread já o fez depois de
+     * {@code exhausted} se esgotar.
+     */
+    private synchronized void reserve(Block exhausted) throws SQLException {
+        if (block != exhausted) {
+            return;
+        }
+        long last = TransactionManager.callInTransaction(connectionSource, () -> {
+            DatabaseConnection connection = connectionSource.getReadWriteConnection(table);
+            try {
+                String name = quote(table);
+                // primeira reserva: parte do maior ID já gravado
+                connection.executeStatement("INSERT INTO sqlite_sequence (name, seq) SELECT " + name
+                    + ", (SELECT COALESCE(MAX(`" + idColumn + "`), 0) FROM `" + table + "`) WHERE NOT EXISTS"
+                    + " (SELECT 1 FROM sqlite_sequence WHERE name = " + name + ")",
+                    DatabaseConnection.DEFAULT_RESULT_FLAGS);
+                connection.executeStatement("UPDATE sqlite_sequence SET seq = seq + " + blockSize
+                    + " WHERE name = " + name, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+                return connection.queryForLong("SELECT seq FROM sqlite_sequence WHERE name = " + name);
+            } finally {
+                connectionSource.releaseConnection(connection);
+            }
+        });
+        reservedBlocks.incrementAndGet();
+        block = new Block(new AtomicLong(last - blockSize + 1), last);
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return Número de blocos reservados desde a criação do alocador
+     */
+    public long getReservedBlocks() {
+        return reservedBlocks.get();
+    }
+}
@@ -0,0 +1,43 @@
+package br.ufg.inf.repositorio;
+
+import java.sql.SQLException;
+
+/**
+ * Conflito de concorrência otimista: o UPDATE de uma entidade versionada
+ * ({@code @DatabaseField(version = true)}) não encontrou a linha com a
+ * versão lida, porque outro escritor a alterou ou removeu antes.
+ *
+ * A entidade em memória está desatualizada; recarregue-a e reaplique a
+ * alteração, por exemplo com {@link Repositorio#updateWithRetry}.
+ */
+public class OptimisticLockException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> entityClass;
+    private final Object id;
+    private final Object expectedVersion;
+
+    public OptimisticLockException(Class<?> entityClass, Object id, Object expectedVersion) {
+        super("Conflito de versão em " + entityClass.getSimpleName() + " [id=" + id
+            + "]: a versão " + expectedVersion + " já foi alterada por outro escritor");
+        this.entityClass = entityClass;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    /**
+     * @return Versão que a entidade tinha em memória
+     */
+    public Object getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,73 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+
+import br.ufg.inf.publicador.CrudOperation;
+
+/**
+ * Linha da tabela {@code outbox}: uma operação CRUD gravada na mesma
+ * transação da entidade e ainda não entregue ao Redis.
+ */
+@DatabaseTable(tableName = "outbox")
+public class OutboxEntry {
+
+    @DatabaseField(generatedId = true)
+    private long id;
+
+    @DatabaseField(canBeNull = false)
+    private String entity;
+
+    @DatabaseField(dataType = DataType.ENUM_STRING, canBeNull = false)
+    private CrudOperation.OperationType operation;
+
+    @DatabaseField(dataType = DataType.ENUM_STRING, canBeNull = false)
+    private CrudOperation.Source source;
+
+    @DatabaseField(dataType = DataType.LONG_STRING)
+    private String data;
+
+    @DatabaseField
+    private String timestamp;
+
+    public OutboxEntry() {
+        // Construtor padrão necessário para ORMLite
+    }
+
+    /**
+     * Cria a entrada a partir da operação que será publicada.
+     * @param operation Operação CRUD
+     */
+    public OutboxEntry(CrudOperation operation) {
+        this.entity = operation.getEntity();
+        this.operation = operation.getOperation();
+        this.source = operation.getSource();
+        this.data = operation.getData();
+        this.timestamp = operation.getTimestamp();
+    }
+
+    /**
+     * Reconstrói a operação CRUD armazenada.
+     * @return Operação pronta para publicação
+     */
+    public CrudOperation toCrudOperation() {
+        return new CrudOperation(entity, operation, source, data, timestamp);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getEntity() {
+        return entity;
+    }
+
+    public CrudOperation.OperationType getOperation() {
+        return operation;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+}
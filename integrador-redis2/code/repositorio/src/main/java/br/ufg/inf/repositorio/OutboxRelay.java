@@ -0,0 +1,169 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+
+import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.RedisPublisher;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processo em segundo plano que esvazia a tabela {@code outbox} de um
+ * {@link Database}, publicando as operações no Redis em lotes.
+ *
+ * A entrega é "pelo menos uma vez": as linhas só são removidas depois que
+ * o Redis confirmou todo o lote. Se a publicação falhar, o lote inteiro
+ * permanece na tabela e é reenviado na próxima rodada, portanto os
+ * consumidores podem receber uma mesma operação mais de uma vez.
+ *
+ * O relay lê o outbox por uma conexão própria. Na conexão compartilhada do
+ * {@link Database} ele enxergaria as linhas de uma transação ainda aberta
+ * por outra thread e publicaria operações que depois seriam desfeitas. Por
+ * isso bancos em memória, que não admitem uma segunda conexão, não são
+ * aceitos.
+ */
+public class OutboxRelay implements AutoCloseable {
+
+    private final Database database;
+    private final RedisPublisher publisher;
+    private int batchSize = 500;
+    private long pollIntervalMillis = 200;
+    private ScheduledExecutorService scheduler;
+    private JdbcConnectionSource connection;
+    private Dao<OutboxEntry, Long> outbox;
+    private boolean closed;
+
+    /**
+     * Cria o relay usando o publicador compartilhado da JVM.
+     * @param database Banco cujo outbox será esvaziado
+     */
+    public OutboxRelay(Database database) {
+        this(database, RedisPublisher.shared());
+    }
+
+    /**
+     * @param database Banco cujo outbox será esvaziado
+     * @param publisher Publicador usado para entregar as operações
+     * @throws IllegalArgumentException Se o banco for em memória
+     */
+    public OutboxRelay(Database database, RedisPublisher publisher) {
+        if (database.isInMemory()) {
+            throw new IllegalArgumentException("OutboxRelay exige um banco em arquivo");
+        }
+        this.database = database;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Inicia a thread que consulta o outbox periodicamente.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::drain, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publica as operações pendentes até esvaziar o outbox ou até a
+     * primeira falha de publicação.
+     * @return Número de operações entregues nesta chamada
+     */
+    public synchronized int drain() {
+        int relayed = 0;
+        if (closed) {
+            return relayed;
+        }
+        try {
+            Dao<OutboxEntry, Long> outbox = outboxDao();
+            while (true) {
+                List<OutboxEntry> entries = outbox.queryBuilder()
+                    .orderBy("id", true)
+                    .limit((long) batchSize)
+                    .query();
+                if (entries.isEmpty()) {
+                    break;
+                }
+
+                List<CrudOperation> operations = new ArrayList<>(entries.size());
+                List<Long> ids = new ArrayList<>(entries.size());
+                for (OutboxEntry entry : entries) {
+                    operations.add(entry.toCrudOperation());
+                    ids.add(entry.getId());
+                }
+                publisher.publishOperations(operations);
+                outbox.deleteIds(ids);
+                relayed += entries.size();
+
+                if (entries.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+        } catch (Exception e) {
+            System.err.println("Erro ao publicar outbox no Redis: " + e.getMessage());
+        }
+        return relayed;
+    }
+
+    /**
+     * DAO do outbox sobre a conexão própria do relay, aberta na primeira
+     * rodada.
+     */
+    private Dao<OutboxEntry, Long> outboxDao() throws SQLException {
+        if (outbox == null) {
+            database.getOutboxDao(); // cria a tabela, se preciso
+            connection = database.openSeparateConnection();
+            outbox = DaoManager.createDao(connection, OutboxEntry.class);
+        }
+        return outbox;
+    }
+
+    /**
+     * Interrompe a thread do relay e fecha sua conexão. As linhas ainda não
+     * entregues permanecem no outbox.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        if (connection != null) {
+            DaoManager.unregisterDao(connection, outbox);
+            connection.closeQuietly();
+            connection = null;
+            outbox = null;
+        }
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setPollIntervalMillis(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+}
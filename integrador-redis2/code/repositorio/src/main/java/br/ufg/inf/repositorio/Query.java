@@ -0,0 +1,146 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consulta com filtros executados pelo SQLite, em vez de
+ * {@code loadAll()} seguido de filtro em Java. Obtida por
+ * {@link Repositorio#query()}:
+ * <pre>
+ * List&lt;Matricula&gt; confirmadas = Repositorios.MATRICULA.query()
+ *     .where(Matricula.STATUS.eq(StatusMatricula.CONFIRMADA))
+ *     .orderBy(Matricula.ID, true)
+ *     .limit(50)
+ *     .list();
+ * </pre>
+ * Consultas com o mesmo formato (colunas, operadores, ordenação e limite)
+ * reaproveitam o mesmo {@link PreparedQuery}; só os valores mudam.
+ * @param <T> Tipo da entidade
+ * @param <ID> Tipo da chave primária
+ */
+public class Query<T, ID> {
+
+    private record Order(String column, boolean ascending) {
+    }
+
+    private final Repositorio<T, ID> repositorio;
+    private final List<Condition<T>> conditions = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private Long limit;
+
+    Query(Repositorio<T, ID> repositorio) {
+        this.repositorio = repositorio;
+    }
+
+    /**
+     * Acrescenta uma condição; várias chamadas são combinadas com AND.
+     * @param condition Condição
+     * @return Esta consulta
+     */
+    public Query<T, ID> where(Condition<T> condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * @param field Coluna de ordenação
+     * @param ascending true para ordem crescente
+     * @return Esta consulta
+     */
+    public Query<T, ID> orderBy(FieldRef<T, ?> field, boolean ascending) {
+        orders.add(new Order(field.getColumn(), ascending));
+        return this;
+    }
+
+    /**
+     * @param limit Número máximo de entidades
+     * @return Esta consulta
+     */
+    public Query<T, ID> limit(long limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Executa a consulta.
+     * @return Entidades encontradas; lista vazia em caso de erro
+     */
+    public List<T> list() {
+        try {
+            return repositorio.executeQuery(this);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Executa a consulta com limite 1.
+     * @return Primeira entidade encontrada ou null
+     */
+    public T first() {
+        List<T> result = limit(1).list();
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * @return Formato da consulta, chave do cache de consultas compiladas
+     */
+    String shape() {
+        StringBuilder shape = new StringBuilder();
+        for (Condition<T> condition : conditions) {
+            condition.appendShape(shape);
+            shape.append(';');
+        }
+        for (Order order : orders) {
+            shape.append(" ORDER ").append(order.column()).append(order.ascending() ? " ASC" : " DESC");
+        }
+        if (limit != null) {
+            shape.append(" LIMIT ").append(limit);
+        }
+        return shape.toString();
+    }
+
+    /**
+     * @return Valores dos parâmetros, na ordem dos {@link SelectArg} de {@link #compile}
+     */
+    Object[] values() {
+        List<Object> values = new ArrayList<>();
+        for (Condition<T> condition : conditions) {
+            condition.collectValues(values);
+        }
+        return values.toArray();
+    }
+
+    /**
+     * Monta o {@link PreparedQuery} desta consulta, com um {@link SelectArg}
+     * por valor.
+     */
+    CompiledQuery<T> compile(Dao<T, ID> dao) throws SQLException {
+        QueryBuilder<T, ID> builder = dao.queryBuilder();
+        List<SelectArg> args = new ArrayList<>();
+        if (!conditions.isEmpty()) {
+            var where = builder.where();
+            for (Condition<T> condition : conditions) {
+                condition.apply(where, args);
+            }
+            if (conditions.size() > 1) {
+                where.and(conditions.size());
+            }
+        }
+        for (Order order : orders) {
+            builder.orderBy(order.column(), order.ascending());
+        }
+        if (limit != null) {
+            builder.limit(limit);
+        }
+        return new CompiledQuery<>(builder.prepare(), args.toArray(new SelectArg[0]));
+    }
+}
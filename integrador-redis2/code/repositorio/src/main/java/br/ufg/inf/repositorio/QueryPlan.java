@@ -0,0 +1,40 @@
+package br.ufg.inf.repositorio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de {@code EXPLAIN QUERY PLAN} para uma consulta.
+ * Uma etapa {@code SCAN tabela} sem índice indica que o SQLite lê a tabela
+ * inteira; em geral falta um índice nas colunas do WHERE ou do ORDER BY.
+ * @param name Nome da consulta (registrado, ou o formato da consulta do {@link Query})
+ * @param sql SQL analisado
+ * @param steps Detalhe de cada etapa do plano, na ordem do SQLite
+ */
+public record QueryPlan(String name, String sql, List<String> steps) {
+
+    /**
+     * @return Etapas que percorrem uma tabela inteira sem índice
+     */
+    public List<String> getScans() {
+        List<String> scans = new ArrayList<>();
+        for (String step : steps) {
+            if (step.startsWith("SCAN ") && !step.contains(" USING ") && !step.contains("CONSTANT ROW")) {
+                scans.add(step);
+            }
+        }
+        return scans;
+    }
+
+    /**
+     * @return true se alguma etapa percorre uma tabela inteira sem índice
+     */
+    public boolean hasFullScan() {
+        return !getScans().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return (hasFullScan() ? "⚠️ " : "✅ ") + name + ": " + String.join(" | ", steps);
+    }
+}
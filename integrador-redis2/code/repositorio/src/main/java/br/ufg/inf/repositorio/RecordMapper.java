@@ -0,0 +1,139 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.dao.DatabaseResultsMapper;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.sql.SQLException;
+
+/**
+ * Converte linhas de uma consulta em instâncias de um {@code record}, na
+ * ordem dos seus componentes: a primeira coluna vai para o primeiro
+ * componente, e assim por diante.
+ *
+ * Toda a reflexão acontece uma vez por tipo de record: o construtor
+ * canônico vira um {@link MethodHandle} e cada coluna ganha um leitor
+ * tipado ({@code getInt}, {@code getString}, ...). Por linha resta apenas a
+ * leitura das colunas e a chamada ao construtor.
+ * @param <R> Tipo do record
+ */
+final class RecordMapper<R extends Record> implements DatabaseResultsMapper<R> {
+
+    private static final ClassValue<RecordMapper<?>> MAPPERS = new ClassValue<>() {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected RecordMapper<?> computeValue(Class<?> type) {
+            return new RecordMapper(type.asSubclass(Record.class));
+        }
+    };
+
+    private final Class<R> recordType;
+    private final MethodHandle constructor;
+    private final ColumnReader[] readers;
+
+    private RecordMapper(Class<R> recordType) {
+        if (!recordType.isRecord()) {
+            throw new IllegalArgumentException(recordType.getName() + " não é um record");
+        }
+        RecordComponent[] components = recordType.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        readers = new ColumnReader[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            readers[i] = readerFor(types[i]);
+        }
+        try {
+            Constructor<R> canonical = recordType.getDeclaredConstructor(types);
+            canonical.setAccessible(true);
+            constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+                .asType(MethodType.genericMethodType(components.length))
+                .asSpreader(Object[].class, components.length);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Construtor canônico inacessível: " + recordType.getName(), e);
+        }
+        this.recordType = recordType;
+    }
+
+    /**
+     * Obtém o conversor do tipo de record, criado na primeira chamada.
+     * @param recordType Classe do record
+     * @return Conversor compartilhado
+     */
+    @SuppressWarnings("unchecked")
+    static <R extends Record> RecordMapper<R> of(Class<R> recordType) {
+        return (RecordMapper<R>) MAPPERS.get(recordType);
+    }
+
+    /**
+     * @return Número de colunas esperadas na consulta
+     */
+    int getColumnCount() {
+        return readers.length;
+    }
+
+    @Override
+    public R mapRow(DatabaseResults results) throws SQLException {
+        Object[] values = new Object[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            values[i] = readers[i].read(results, i);
+        }
+        try {
+            return recordType.cast((Object) constructor.invokeExact(values));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Erro ao criar " + recordType.getSimpleName(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(DatabaseResults results, int column) throws SQLException;
+    }
+
+    /**
+     * Leitor de uma coluna conforme o tipo do componente. Valores nulos
+     * viram zero ou false em componentes primitivos.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ColumnReader readerFor(Class<?> type) {
+        if (type == int.class) {
+            return (r, c) -> r.getInt(c);
+        } else if (type == long.class) {
+            return (r, c) -> r.getLong(c);
+        } else if (type == double.class) {
+            return (r, c) -> r.getDouble(c);
+        } else if (type == float.class) {
+            return (r, c) -> r.getFloat(c);
+        } else if (type == short.class) {
+            return (r, c) -> r.getShort(c);
+        } else if (type == boolean.class) {
+            return (r, c) -> r.getBoolean(c);
+        } else if (type == String.class) {
+            return (r, c) -> r.getString(c);
+        } else if (type == Integer.class) {
+            return (r, c) -> nullable(r, c, r.getInt(c));
+        } else if (type == Long.class) {
+            return (r, c) -> nullable(r, c, r.getLong(c));
+        } else if (type == Double.class) {
+            return (r, c) -> nullable(r, c, r.getDouble(c));
+        } else if (type == Boolean.class) {
+            return (r, c) -> nullable(r, c, r.getBoolean(c));
+        } else if (type.isEnum()) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return (r, c) -> {
+                String name = r.getString(c);
+                return name == null ? null : Enum.valueOf(enumType, name);
+            };
+        }
+        throw new IllegalArgumentException("Tipo de componente não suportado em projeções: " + type.getName());
+    }
+
+    private static Object nullable(DatabaseResults results, int column, Object value) throws SQLException {
+        return results.wasNull(column) ? null : value;
+    }
+}
@@ -1,17 +1,38 @@
 package br.ufg.inf.repositorio;
 
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.jdbc.JdbcDatabaseResults;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.table.TableUtils;
 
+import br.ufg.inf.publicador.CrudPublisher;
 import br.ufg.inf.publicador.RedisPublisher;
 import br.ufg.inf.publicador.CrudOperation;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -24,14 +45,40 @@ import java.time.format.DateTimeFormatter;
  */
 public class Repositorio<T, ID> {
 
+    /** Quantidade de linhas lidas por vez pelo driver em {@link #stream()}. */
+    public static final int DEFAULT_FETCH_SIZE = 256;
+
+    /** Número máximo de consultas compiladas mantidas por {@link #query()}. */
+    static final int MAX_COMPILED_QUERIES = 128;
+
+    private Database database;
     private Dao<T, ID> dao;
     private List<T> loadedEntities;
     private T loadedEntity;
     private Class<T> entityClass;
-    private RedisPublisher redisPublisher;
+    private CrudPublisher redisPublisher;
     private boolean enableCrudPublishing = true;
+    private boolean enableOutbox = false;
+    private EntityCache<ID, T> cache;
+    private DirtyTracker<T, ID> dirtyTracker;
+    private FieldType versionField;
+    private IdAllocator idAllocator;
+    private BatchInserter<T> batchInserter;
+    private FetchPlan fetchPlan;
+    private final EntityCache<String, CompiledQuery<T>> compiledQueries = new EntityCache<>(MAX_COMPILED_QUERIES);
+    private final Map<String, String> registeredQueries = new LinkedHashMap<>();
+    private String[] fullTextColumns;
+    private ChangeFeed changeFeed;
+    private ChangeFeed.Subscription redisSubscription;
+    private volatile boolean publishesThroughFeed;
     private Gson gson;
 
+    /**
+     * Escrita pendente: a operação e a entidade sobre a qual ela incide.
+     */
+    record PendingWrite<E>(CrudOperation.OperationType type, E entity) {
+    }
+
     /**
      * Construtor do repositório.
      * @param database Instância da classe Database
@@ -39,47 +86,271 @@ public class Repositorio<T, ID> {
      */
     public Repositorio(Database database, Class<T> entityClass) {
         this.entityClass = entityClass;
-        this.redisPublisher = new RedisPublisher();
+        this.redisPublisher = RedisPublisher.shared();
         this.gson = new Gson();
         setDatabase(database);
         loadedEntities = new ArrayList<>();
     }
 
+    /**
+     * Obtém o banco de dados do repositório.
+     * @return Instância da classe Database
+     */
+    public Database getDatabase() {
+        return database;
+    }
+
     /**
      * Define o banco de dados e configura o DAO.
      * @param database Instância da classe Database
      */
     public void setDatabase(Database database) {
+        this.database = database;
+        this.changeFeed = database.getChangeFeed();
+        updateRedisSubscription();
         try {
             dao = DaoManager.createDao(database.getConnection(), entityClass);
             TableUtils.createTableIfNotExists(database.getConnection(), entityClass);
+            versionField = findVersionField();
+            migrateVersionColumn();
+            if (dirtyTracker != null)
+                dirtyTracker = new DirtyTracker<>(dao, dirtyTracker.getSnapshots().getMaxSize());
         } catch (SQLException e) {
             System.out.println(e);
         }
     }
 
+    private FieldType findVersionField() {
+        for (FieldType field : dao.getTableInfo().getFieldTypes()) {
+            if (field.isVersion()) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Acrescenta a coluna de versão ({@code @DatabaseField(version = true)})
+     * a uma tabela criada antes dela. As linhas existentes começam na versão 0.
+     * @throws SQLException Se a alteração da tabela falhar
+     */
+    private void migrateVersionColumn() throws SQLException {
+        if (versionField == null) {
+            return;
+        }
+        String table = dao.getTableInfo().getTableName();
+        for (String[] column : dao.queryRaw("PRAGMA table_info(`" + table + "`)").getResults()) {
+            if (column[1].equalsIgnoreCase(versionField.getColumnName())) {
+                return;
+            }
+        }
+        Class<?> type = versionField.getType();
+        boolean numeric = type == int.class || type == Integer.class || type == long.class
+            || type == Long.class || type == short.class || type == Short.class;
+        dao.executeRaw("ALTER TABLE `" + table + "` ADD COLUMN `" + versionField.getColumnName() + "`"
+            + (numeric ? " INTEGER NOT NULL DEFAULT 0" : ""));
+        System.out.println("🔧 Coluna de versão " + versionField.getColumnName() + " adicionada a " + table);
+    }
+
+    /**
+     * Monta a operação CRUD que descreve a alteração de uma entidade.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entity Entidade envolvida na operação
+     * @return Operação pronta para publicação
+     */
+    private CrudOperation toCrudOperation(CrudOperation.OperationType operationType, T entity) {
+        return toCrudOperation(operationType, gson.toJson(entity));
+    }
+
+    /**
+     * Monta a operação CRUD de uma escrita; num UPDATE parcial, o corpo
+     * leva apenas a chave e os campos alterados.
+     * @param changedFields Campos alterados, ou null para a entidade inteira
+     */
+    private CrudOperation toCrudOperation(CrudOperation.OperationType operationType, T entity,
+                                          Set<String> changedFields) throws SQLException {
+        if (changedFields == null) {
+            return toCrudOperation(operationType, entity);
+        }
+        return toCrudOperation(operationType, deltaJson(entity, changedFields));
+    }
+
     /**
-     * Publica uma operação CRUD no Redis.
+     * Serializa a chave e os campos alterados de uma entidade, com os mesmos
+     * nomes e formatos que o Gson usaria para a entidade inteira.
+     */
+    private String deltaJson(T entity, Set<String> changedFields) throws SQLException {
+        JsonObject delta = new JsonObject();
+        for (FieldType field : dao.getTableInfo().getFieldTypes()) {
+            if (field.isId() || field.isGeneratedId() || field.isVersion()
+                    || changedFields.contains(field.getFieldName())) {
+                delta.add(field.getFieldName(), gson.toJsonTree(field.extractRawJavaFieldValue(entity)));
+            }
+        }
+        return gson.toJson(delta);
+    }
+
+    private CrudOperation toCrudOperation(CrudOperation.OperationType operationType, String entityJson) {
+        String entityName = entityClass.getSimpleName();
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        return new CrudOperation(
+            entityName,
+            operationType,
+            CrudOperation.Source.ORM,
+            entityJson,
+            timestamp
+        );
+    }
+
+    /**
+     * Publica uma operação CRUD no Redis sem aguardar a confirmação,
+     * para que a escrita no banco não espere pelo round trip.
      * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
      * @param entity Entidade envolvida na operação
      */
     private void publishCrudOperation(CrudOperation.OperationType operationType, T entity) {
-        try {
-            String entityName = entityClass.getSimpleName();
-            String entityJson = gson.toJson(entity);
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            
-            CrudOperation operation = new CrudOperation(
-                entityName, 
-                operationType, 
-                CrudOperation.Source.ORM, 
-                entityJson, 
-                timestamp
-            );
-            redisPublisher.publishOperation(operation);
-        } catch (Exception e) {
-            System.err.println("Erro ao publicar operação no Redis: " + e.getMessage());
+        publishCrudOperation(operationType, gson.toJson(entity));
+    }
+
+    private void publishCrudOperation(CrudOperation.OperationType operationType, String entityJson) {
+        publishCrudOperation(toCrudOperation(operationType, entityJson));
+    }
+
+    private void publishCrudOperation(CrudOperation operation) {
+        redisPublisher.publishOperationAsync(operation)
+            .whenComplete((receivers, e) -> {
+                if (e != null)
+                    System.err.println("Erro ao publicar operação no Redis: " + e.getMessage());
+            });
+    }
+
+    /**
+     * Inscreve a publicação no Redis como ouvinte das alterações deste
+     * repositório enquanto ela estiver ativa (publicação ligada e outbox
+     * desligado). Com a captura de alterações do banco habilitada, a
+     * inscrição é feita na {@link ChangeCapture}, que também vê escritas
+     * feitas fora do repositório; caso contrário, no {@link ChangeFeed},
+     * restrita às escritas deste repositório. As operações de um lote seguem
+     * no mesmo pipeline, descarregado ao fim do lote.
+     *
+     * A captura não sabe qual repositório gravou cada linha, então a tabela
+     * tem um só publicador: entre os repositórios dela com a publicação
+     * ativa, o primeiro a se inscrever publica todas as alterações, e os
+     * demais assumem, em ordem, se ele deixar de publicar.
+     */
+    private void updateRedisSubscription() {
+        if (redisSubscription != null) {
+            redisSubscription.close();
+            redisSubscription = null;
+        }
+        publishesThroughFeed = false;
+        if (!enableCrudPublishing || enableOutbox) {
+            return;
+        }
+        ChangeCapture capture = database.getChangeCapture();
+        if (capture != null) {
+            this.redisSubscription = capture.subscribeExclusive(entityClass, this::publishCapturedChanges);
+            return;
+        }
+        this.redisSubscription = changeFeed.subscribe(this, entityClass, new ChangeListener<T>() {
+            @Override
+            public void onChange(CrudOperation.OperationType operationType, T entity) {
+                publishCrudOperation(operationType, entity);
+            }
+
+            @Override
+            public void onChange(CrudOperation.OperationType operationType, T entity, Set<String> changedFields,
+                                 CrudOperation operation) {
+                if (operation == null) {
+                    onChange(operationType, entity, changedFields);
+                    return;
+                }
+                publishCrudOperation(operation);
+            }
+
+            @Override
+            public void onChange(CrudOperation.OperationType operationType, T entity, Set<String> changedFields) {
+                if (changedFields == null) {
+                    publishCrudOperation(operationType, entity);
+                    return;
+                }
+                try {
+                    publishCrudOperation(operationType, deltaJson(entity, changedFields));
+                } catch (SQLException e) {
+                    System.out.println(e);
+                }
+            }
+
+            @Override
+            public void onEndOfBatch() {
+                flushPublisher();
+            }
+        });
+        publishesThroughFeed = true;
+    }
+
+    /**
+     * Publica no Redis as alterações capturadas em um commit. A entidade só
+     * é lida do banco aqui; para DELETE o corpo leva apenas a chave.
+     * @param changes Alterações da tabela na transação
+     */
+    private void publishCapturedChanges(List<CapturedChange<T>> changes) {
+        for (CapturedChange<T> change : changes) {
+            try {
+                if (change.getType() == CrudOperation.OperationType.DELETE) {
+                    publishCrudOperation(change.getType(), deletedKeyJson(change.getRowId()));
+                } else {
+                    T entity = change.getEntity();
+                    if (entity != null) {
+                        publishCrudOperation(change.getType(), gson.toJson(entity));
+                    } else {
+                        // removida por um commit posterior, que chega como DELETE
+                        System.out.println("⚠️ " + change + " não encontrada após o commit; evento não publicado");
+                    }
+                }
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
         }
+        flushPublisher();
+    }
+
+    /**
+     * Descarrega o publicador ao fim de um lote de eventos, a menos que ele
+     * decida sozinho quando enviar ({@link CrudPublisher#isSelfFlushing()}).
+     */
+    private void flushPublisher() {
+        CrudPublisher publisher = redisPublisher;
+        if (!publisher.isSelfFlushing()) {
+            publisher.flush();
+        }
+    }
+
+    /**
+     * Corpo de um DELETE capturado. Com chave inteira gerada (alias do
+     * rowid no SQLite) o rowid é a própria chave; nas demais, segue como
+     * {@code rowid}.
+     */
+    private String deletedKeyJson(long rowId) {
+        FieldType idField = dao.getTableInfo().getIdField();
+        Class<?> idType = idField == null ? null : idField.getType();
+        boolean rowIdAlias = idField != null && idField.isGeneratedId()
+            && (idType == int.class || idType == Integer.class || idType == long.class || idType == Long.class);
+        JsonObject key = new JsonObject();
+        key.addProperty(rowIdAlias ? idField.getFieldName() : "rowid", rowId);
+        return gson.toJson(key);
+    }
+
+    /**
+     * Inscreve um ouvinte para as escritas confirmadas deste repositório e
+     * dos demais repositórios da mesma entidade no mesmo banco. Os eventos
+     * chegam pela thread do {@link ChangeFeed}, sem passar pelo Redis.
+     * @param listener Ouvinte
+     * @return Inscrição, para cancelamento
+     */
+    public ChangeFeed.Subscription subscribe(ChangeListener<? super T> listener) {
+        return changeFeed.subscribe(entityClass, listener);
     }
 
     /**
@@ -90,17 +361,11 @@ public class Repositorio<T, ID> {
     public T create(T entity) {
         try {
             System.out.println("🔍 Criando entidade: " + entity);
-            int nrows = dao.create(entity);
-            if (nrows == 0)
-                throw new SQLException("Error: object not saved");
+            write(CrudOperation.OperationType.CREATE, entity);
             this.loadedEntity = entity;
-            loadedEntities.add(entity);
-            
-            // Publicar operação CREATE no Redis
-            if (enableCrudPublishing) {
+            if (enableCrudPublishing && !enableOutbox) {
                 System.out.println("✅ Entidade criada: " + entity);
                 System.out.println("  - Operation: CREATE");
-                publishCrudOperation(CrudOperation.OperationType.CREATE, entity);
             }
         } catch (SQLException e) {
             System.out.println(e);
@@ -110,37 +375,509 @@ public class Repositorio<T, ID> {
     }
 
     /**
-     * Atualiza uma entidade existente no banco de dados.
+     * Atualiza uma entidade existente no banco de dados. Em entidades
+     * versionadas, um conflito de versão é apenas registrado no console; use
+     * {@link #updateOrThrow(Object)} ou {@link #updateWithRetry} para tratá-lo.
      * @param entity Entidade a ser atualizada
      */
     public void update(T entity) {
         try {
-            dao.update(entity);
-            if (enableCrudPublishing) {
-                publishCrudOperation(CrudOperation.OperationType.UPDATE, entity);
-            }
+            write(CrudOperation.OperationType.UPDATE, entity);
         } catch (SQLException e) {
             System.out.println(e);
         }
     }
 
+    /**
+     * Atualiza uma entidade repassando os erros. Em entidades com campo
+     * {@code @DatabaseField(version = true)}, o UPDATE só é aplicado se a
+     * versão no banco for a mesma da entidade (compare-and-set), e a versão
+     * é incrementada.
+     * @param entity Entidade a ser atualizada
+     * @throws OptimisticLockException Se outro escritor alterou ou removeu a linha
+     * @throws SQLException Se a escrita falhar
+     */
+    public void updateOrThrow(T entity) throws SQLException {
+        write(CrudOperation.OperationType.UPDATE, entity);
+    }
+
+    /**
+     * Aplica uma alteração com concorrência otimista, repetindo-a em caso de
+     * conflito. A cada tentativa a entidade é relida do banco (sem passar
+     * pelo cache), {@code change} é aplicada e o UPDATE compara a versão.
+     * Entre tentativas há uma espera curta, crescente e aleatória, para que
+     * escritores concorrentes não colidam de novo.
+     * @param id ID da entidade
+     * @param change Alteração; pode ser executada mais de uma vez
+     * @param maxAttempts Número máximo de tentativas
+     * @return Entidade gravada, ou null se ela não existir
+     * @throws OptimisticLockException Se todas as tentativas conflitarem
+     * @throws SQLException Se a leitura ou a escrita falhar
+     */
+    public T updateWithRetry(ID id, Consumer<T> change, int maxAttempts) throws SQLException {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts deve ser positivo: " + maxAttempts);
+        }
+        for (int attempt = 1; ; attempt++) {
+            T entity = dao.queryForId(id);
+            if (entity == null) {
+                return null;
+            }
+            afterLoad(List.of(entity));
+            change.accept(entity);
+            try {
+                write(CrudOperation.OperationType.UPDATE, entity);
+                return entity;
+            } catch (OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(1, 2L << Math.min(attempt, 6)));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
     /**
      * Remove uma entidade do banco de dados.
      * @param entity Entidade a ser removida
      */
     public void delete(T entity) {
         try {
-            dao.delete(entity);
-            
-            // Publicar operação DELETE no Redis
-            if (enableCrudPublishing) {
-                publishCrudOperation(CrudOperation.OperationType.DELETE, entity);
-            }
+            write(CrudOperation.OperationType.DELETE, entity);
         } catch (SQLException e) {
             System.out.println(e);
         }
     }
 
+    /**
+     * Grava uma entidade e, depois da escrita, invalida o cache e publica
+     * a operação no {@link ChangeFeed} (e, por ele, no Redis). Ao contrário de {@link #create(Object)},
+     * {@link #update(Object)} e {@link #delete(Object)}, repassa o erro a
+     * quem chamou. Com {@link #enableDirtyChecking(int)}, um UPDATE sem
+     * alterações não é enviado ao banco nem publicado. O cache é
+     * invalidado mesmo se a escrita falhar: a instância em cache pode ser
+     * a mesma que quem chamou já alterou.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entity Entidade envolvida na operação
+     * @return Número de linhas afetadas
+     * @throws SQLException Se a escrita falhar
+     */
+    int write(CrudOperation.OperationType operationType, T entity) throws SQLException {
+        FieldType[] dirty = dirtyFields(operationType, entity);
+        if (isUnchanged(dirty)) {
+            return 0;
+        }
+        if (operationType == CrudOperation.OperationType.CREATE && idAllocator != null) {
+            assignIds(Collections.singletonList(entity));
+        }
+        int nrows;
+        try {
+            nrows = writeOne(operationType, entity, dirty);
+        } catch (OptimisticLockException e) {
+            forgetStale(e);
+            throw e;
+        } finally {
+            if (operationType != CrudOperation.OperationType.CREATE)
+                invalidateCached(entity);
+        }
+        afterWrite(operationType, entity, dirty);
+        return nrows;
+    }
+
+    /**
+     * Depois da escrita: atualiza o estado conhecido da entidade e publica a operação no {@link ChangeFeed}. Dentro de uma
+     * transação aberta por quem chamou, o estado conhecido é descartado em
+     * vez de atualizado: se ela for desfeita, a entidade não pode parecer
+     * já gravada, senão a nova tentativa do UPDATE seria ignorada.
+     */
+    private void afterWrite(CrudOperation.OperationType operationType, T entity, FieldType[] dirty)
+            throws SQLException {
+        if (dirtyTracker != null) {
+            if (operationType == CrudOperation.OperationType.DELETE || inCallerTransaction())
+                dirtyTracker.forget(entity);
+            else
+                dirtyTracker.track(entity);
+        }
+        Set<String> changedFields = changedFieldNames(dirty);
+        // a operação do Redis é montada aqui, com o estado e o instante da escrita
+        CrudOperation operation = publishesThroughFeed ? toCrudOperation(operationType, entity, changedFields) : null;
+        changeFeed.publish(this, operationType, entity, changedFields, operation);
+    }
+
+    /**
+     * Campos alterados de um UPDATE, segundo o estado conhecido da entidade.
+     * @return Campos alterados, ou null se a entidade deve ser gravada por inteiro
+     */
+    private FieldType[] dirtyFields(CrudOperation.OperationType operationType, T entity) throws SQLException {
+        if (dirtyTracker == null || operationType != CrudOperation.OperationType.UPDATE) {
+            return null;
+        }
+        return dirtyTracker.dirtyFields(entity);
+    }
+
+    /**
+     * Descarta o que o repositório guarda de uma entidade cuja versão
+     * ficou desatualizada, para que a próxima leitura venha do banco.
+     */
+    @SuppressWarnings("unchecked")
+    private void forgetStale(OptimisticLockException conflict) {
+        ID id = (ID) conflict.getId();
+        if (cache != null)
+            cache.invalidate(id);
+        if (dirtyTracker != null)
+            dirtyTracker.forgetId(id);
+    }
+
+    private static boolean isUnchanged(FieldType[] dirty) {
+        return dirty != null && dirty.length == 0;
+    }
+
+    private static Set<String> changedFieldNames(FieldType[] dirty) {
+        if (dirty == null) {
+            return null;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (FieldType field : dirty) {
+            names.add(field.getFieldName());
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * Cria várias entidades em uma única transação.
+     * As operações CREATE são publicadas juntas, em um único pipeline Redis.
+     * Se alguma inserção falhar, nenhuma entidade é gravada nem publicada.
+     * @param entities Entidades a serem criadas
+     * @return Número de linhas inseridas
+     */
+    public int createAll(Collection<T> entities) {
+        try {
+            return writeAll(CrudOperation.OperationType.CREATE, entities);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return 0;
+        }
+    }
+
+    /**
+     * Atualiza várias entidades em uma única transação.
+     * As operações UPDATE são publicadas juntas, em um único pipeline Redis.
+     * @param entities Entidades a serem atualizadas
+     * @return Número de linhas atualizadas
+     */
+    public int updateAll(Collection<T> entities) {
+        try {
+            return writeAll(CrudOperation.OperationType.UPDATE, entities);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return 0;
+        }
+    }
+
+    /**
+     * Remove várias entidades em uma única transação.
+     * As operações DELETE são publicadas juntas, em um único pipeline Redis.
+     * @param entities Entidades a serem removidas
+     * @return Número de linhas removidas
+     */
+    public int deleteAll(Collection<T> entities) {
+        try {
+            return writeAll(CrudOperation.OperationType.DELETE, entities);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return 0;
+        }
+    }
+
+    /**
+     * Executa a mesma operação de escrita sobre um lote de entidades dentro
+     * de uma transação do ORMLite, evitando um commit (fsync) por linha.
+     * A publicação no Redis só acontece depois do commit.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entities Entidades envolvidas na operação
+     * @return Número de linhas afetadas
+     * @throws SQLException Se alguma escrita falhar; nesse caso nada é gravado
+     */
+    int writeAll(CrudOperation.OperationType operationType, Collection<T> entities) throws SQLException {
+        if (entities == null || entities.isEmpty()) {
+            return 0;
+        }
+        List<PendingWrite<T>> writes = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            writes.add(new PendingWrite<>(operationType, entity));
+        }
+        return writeBatch(writes);
+    }
+
+    /**
+     * Grava uma sequência de escritas, na ordem dada, em uma única
+     * transação. Depois dela, com ou sem commit, invalida o cache das
+     * entidades alteradas ou removidas; depois do commit, publica as operações
+     * no {@link ChangeFeed}; o ouvinte do Redis as envia em um único
+     * pipeline (no modo outbox, elas são gravadas na mesma transação).
+     * @param writes Escritas pendentes
+     * @return Número de linhas afetadas
+     * @throws SQLException Se alguma escrita falhar; nesse caso nada é gravado
+     */
+    int writeBatch(List<PendingWrite<T>> writes) throws SQLException {
+        if (writes.isEmpty()) {
+            return 0;
+        }
+        FieldType[][] dirty = new FieldType[writes.size()][];
+        List<T> creates = new ArrayList<>();
+        for (int i = 0; i < dirty.length; i++) {
+            dirty[i] = dirtyFields(writes.get(i).type(), writes.get(i).entity());
+            if (writes.get(i).type() == CrudOperation.OperationType.CREATE)
+                creates.add(writes.get(i).entity());
+        }
+        assignIds(creates);
+        int nrows;
+        try {
+            List<T> entities = new ArrayList<>(writes.size());
+            for (PendingWrite<T> write : writes)
+                entities.add(write.entity());
+            nrows = runWrite(true, () -> persistBatch(writes, dirty), entities);
+        } catch (OptimisticLockException e) {
+            forgetStale(e);
+            throw e;
+        } finally {
+            for (int i = 0; i < dirty.length; i++) {
+                if (writes.get(i).type() != CrudOperation.OperationType.CREATE && !isUnchanged(dirty[i]))
+                    invalidateCached(writes.get(i).entity());
+            }
+        }
+
+        for (int i = 0; i < dirty.length; i++) {
+            if (!isUnchanged(dirty[i]))
+                afterWrite(writes.get(i).type(), writes.get(i).entity(), dirty[i]);
+        }
+        return nrows;
+    }
+
+    /**
+     * Corpo transacional de {@link #writeBatch}: grava as escritas com
+     * alterações e, no modo outbox, as operações correspondentes.
+     */
+    private int persistBatch(List<PendingWrite<T>> writes, FieldType[][] dirty) throws SQLException {
+        int total = 0;
+        List<T> inserts = new ArrayList<>();
+        for (int i = 0; i < dirty.length; i++) {
+            PendingWrite<T> write = writes.get(i);
+            if (isUnchanged(dirty[i]))
+                continue;
+            // CREATEs seguidos com chave já alocada vão em um único batch JDBC
+            if (batchInserter != null && write.type() == CrudOperation.OperationType.CREATE
+                    && hasAssignedId(write.entity())) {
+                inserts.add(write.entity());
+                continue;
+            }
+            if (!inserts.isEmpty()) {
+                total += batchInserter.insert(inserts);
+                inserts.clear();
+            }
+            total += persist(write.type(), write.entity(), dirty[i]);
+        }
+        if (!inserts.isEmpty())
+            total += batchInserter.insert(inserts);
+        if (isOutboxActive()) {
+            List<OutboxEntry> entries = new ArrayList<>(writes.size());
+            for (int i = 0; i < dirty.length; i++) {
+                PendingWrite<T> write = writes.get(i);
+                if (!isUnchanged(dirty[i]))
+                    entries.add(new OutboxEntry(toCrudOperation(write.type(), write.entity(),
+                        changedFieldNames(dirty[i]))));
+            }
+            database.getOutboxDao().create(entries);
+        }
+        return total;
+    }
+
+    /**
+     * Atribui chaves do {@link IdAllocator} às entidades novas que ainda não
+     * têm chave. Dentro de uma transação aberta por quem chamou, nada é
+     * atribuído: um rollback desfaria a reserva do bloco, e os IDs já
+     * distribuídos seriam reservados de novo. Nesse caso a chave continua
+     * gerada pelo SQLite.
+     */
+    private void assignIds(List<T> entities) throws SQLException {
+        if (idAllocator == null || entities.isEmpty() || inCallerTransaction()) {
+            return;
+        }
+        FieldType idField = dao.getTableInfo().getIdField();
+        for (T entity : entities) {
+            if (!hasAssignedId(entity)) {
+                long id = idAllocator.nextId();
+                Class<?> type = idField.getType();
+                Object value = (type == int.class || type == Integer.class) ? (Object) Math.toIntExact(id) : (Object) id;
+                idField.assignField(dao.getConnectionSource(), entity, value, false, null);
+            }
+        }
+    }
+
+    /**
+     * @return true se a thread atual está em uma transação ainda não
+     *         confirmada. As fontes de conexão do {@link Database} registram
+     *         a transação por thread ({@link SharedConnectionSource}), então
+     *         a transação de outra thread na mesma conexão não conta.
+     */
+    private boolean inCallerTransaction() {
+        return dao.getConnectionSource().getSpecialConnection(dao.getTableInfo().getTableName()) != null;
+    }
+
+    private boolean hasAssignedId(T entity) throws SQLException {
+        Object id = dao.extractId(entity);
+        return id != null && ((Number) id).longValue() != 0;
+    }
+
+    /**
+     * Grava uma entidade. No modo outbox, a operação CRUD correspondente é
+     * inserida na tabela {@code outbox} dentro da mesma transação.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entity Entidade envolvida na operação
+     * @param dirty Campos alterados de um UPDATE parcial, ou null
+     * @return Número de linhas afetadas
+     * @throws SQLException Se a escrita falhar; nada é gravado no outbox
+     */
+    private int writeOne(CrudOperation.OperationType operationType, T entity, FieldType[] dirty) throws SQLException {
+        if (!isOutboxActive()) {
+            return runWrite(false, () -> persist(operationType, entity, dirty), Collections.singletonList(entity));
+        }
+        return runWrite(true, () -> {
+            int nrows = persist(operationType, entity, dirty);
+            database.getOutboxDao().create(new OutboxEntry(
+                toCrudOperation(operationType, entity, changedFieldNames(dirty))));
+            return nrows;
+        }, Collections.singletonList(entity));
+    }
+
+    /**
+     * Executa uma escrita. Com o escritor único do banco habilitado
+     * ({@link Database#enableWriteExecutor(int, long)}), a escrita é
+     * enfileirada e confirmada junto com as demais do mesmo grupo; caso
+     * contrário, roda na thread atual.
+     * @param transactional Se a escrita direta precisa de transação própria
+     * @param work Escrita a executar; não deve abrir transação
+     * @param entities Entidades gravadas, cujo ID e versão são restaurados
+     *                 se o grupo do escritor único for desfeito
+     * @return Número de linhas afetadas
+     * @throws SQLException Se a escrita falhar
+     */
+    private int runWrite(boolean transactional, Callable<Integer> work, List<T> entities) throws SQLException {
+        WriteExecutor writer = database.getWriteExecutor();
+        if (writer != null) {
+            return writer.execute(work, keyRestorer(entities));
+        }
+        if (transactional) {
+            return TransactionManager.callInTransaction(dao.getConnectionSource(), work);
+        }
+        try {
+            return work.call();
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Guarda o ID e a versão atuais das entidades. O ORMLite os altera na
+     * própria entidade durante a escrita (ID gerado no INSERT, versão
+     * incrementada no UPDATE); se a transação for desfeita e a escrita
+     * repetida, ela precisa partir dos valores anteriores, senão um UPDATE
+     * válido falharia por versão.
+     * @return Ação que devolve os valores guardados às entidades
+     */
+    private Runnable keyRestorer(List<T> entities) throws SQLException {
+        FieldType idField = dao.getTableInfo().getIdField();
+        Object[] ids = new Object[entities.size()];
+        Object[] versions = new Object[entities.size()];
+        for (int i = 0; i < ids.length; i++) {
+            T entity = entities.get(i);
+            if (entity == null)
+                continue;
+            ids[i] = idField == null ? null : idField.extractJavaFieldValue(entity);
+            versions[i] = versionField == null ? null : versionField.extractJavaFieldValue(entity);
+        }
+        return () -> {
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    T entity = entities.get(i);
+                    if (entity == null)
+                        continue;
+                    if (idField != null)
+                        idField.assignField(dao.getConnectionSource(), entity, ids[i], false, null);
+                    if (versionField != null)
+                        versionField.assignField(dao.getConnectionSource(), entity, versions[i], false, null);
+                }
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        };
+    }
+
+    /**
+     * Executa a operação de escrita no DAO.
+     * @param operationType Tipo da operação (CREATE, UPDATE, DELETE)
+     * @param entity Entidade envolvida na operação
+     * @param dirty Campos do {@code SET} de um UPDATE parcial, ou null para todos
+     * @return Número de linhas afetadas
+     * @throws SQLException Se a escrita falhar
+     */
+    private int persist(CrudOperation.OperationType operationType, T entity, FieldType[] dirty) throws SQLException {
+        switch (operationType) {
+            case CREATE:
+                if (dao.create(entity) == 0)
+                    throw new SQLException("Error: object not saved");
+                return 1;
+            case UPDATE:
+                Object expectedVersion = versionField == null ? null : versionField.extractJavaFieldValue(entity);
+                int nrows = dirty == null ? dao.update(entity) : dirtyTracker.update(entity, dirty);
+                if (nrows == 0 && versionField != null) {
+                    throw new OptimisticLockException(entityClass, dao.extractId(entity), expectedVersion);
+                }
+                return nrows;
+            case DELETE:
+                return dao.delete(entity);
+            default:
+                throw new SQLException("Operação não suportada: " + operationType);
+        }
+    }
+
+    /**
+     * Remove do cache a entidade alterada, para que a próxima leitura
+     * venha do banco.
+     * @param entity Entidade atualizada ou removida
+     */
+    private void invalidateCached(T entity) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.invalidate(dao.extractId(entity));
+        } catch (SQLException e) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Extrai o ID de uma entidade.
+     * @param entity Entidade
+     * @return Valor da chave primária
+     * @throws SQLException Se o ID não puder ser lido
+     */
+    ID extractId(T entity) throws SQLException {
+        return dao.extractId(entity);
+    }
+
+    private boolean isOutboxActive() {
+        return enableCrudPublishing && enableOutbox;
+    }
+
     /**
      * Carrega uma entidade pelo seu ID.
      * @param id ID da entidade
@@ -148,22 +885,48 @@ public class Repositorio<T, ID> {
      */
     public T loadFromId(ID id) {
         try {
-            this.loadedEntity = dao.queryForId(id);
-            if (this.loadedEntity != null)
-                this.loadedEntities.add(this.loadedEntity);
+            this.loadedEntity = find(id);
         } catch (SQLException e) {
             System.out.println(e);
         }
         return this.loadedEntity;
     }
 
+    /**
+     * Busca uma entidade pelo ID, passando pelo cache quando habilitado,
+     * sem alterar o estado do repositório. A entidade lida só entra no
+     * cache se nenhuma escrita o invalidou durante a consulta; senão ela
+     * poderia ser anterior à escrita e ficaria no lugar da versão nova.
+     * @param id ID da entidade
+     * @return Entidade encontrada ou null se não encontrada
+     * @throws SQLException Se a consulta falhar
+     */
+    T find(ID id) throws SQLException {
+        EntityCache<ID, T> cache = this.cache;
+        long version = 0;
+        if (cache != null) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+            version = cache.version();
+        }
+        T entity = dao.queryForId(id);
+        if (entity != null) {
+            afterLoad(List.of(entity));
+            if (cache != null)
+                cache.putIfUnchanged(id, entity, version);
+        }
+        return entity;
+    }
+
     /**
      * Carrega todas as entidades do banco de dados.
      * @return Lista com todas as entidades
      */
     public List<T> loadAll() {
         try {
-            this.loadedEntities = dao.queryForAll();
+            this.loadedEntities = findAll();
             if (!this.loadedEntities.isEmpty())
                 this.loadedEntity = this.loadedEntities.get(0);
         } catch (SQLException e) {
@@ -172,6 +935,459 @@ public class Repositorio<T, ID> {
         return this.loadedEntities;
     }
 
+    /**
+     * Versão de {@link #loadAll()} que repassa o erro a quem chamou e não
+     * altera o estado do repositório.
+     * @return Lista com todas as entidades
+     * @throws SQLException Se a consulta falhar
+     */
+    List<T> findAll() throws SQLException {
+        return afterLoad(dao.queryForAll());
+    }
+
+    /**
+     * Carrega uma página de entidades ordenadas pela chave primária, usando
+     * paginação por chave (keyset): {@code WHERE id > afterId LIMIT limit}.
+     * Ao contrário de OFFSET, o custo de qualquer página é o mesmo da
+     * primeira, pois o SQLite posiciona o cursor direto no índice da chave.
+     * @param afterId ID da última entidade da página anterior, ou null para a primeira página
+     * @param limit Número máximo de entidades na página
+     * @return Entidades da página; lista vazia ao fim da tabela
+     */
+    public List<T> loadPage(ID afterId, int limit) {
+        try {
+            return findPage(afterId, limit);
+        } catch (SQLException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Versão de {@link #loadPage(Object, int)} que repassa o erro a quem chamou.
+     * @param afterId ID da última entidade da página anterior, ou null para a primeira página
+     * @param limit Número máximo de entidades na página
+     * @return Entidades da página
+     * @throws SQLException Se a consulta falhar
+     */
+    List<T> findPage(ID afterId, int limit) throws SQLException {
+        String idColumn = dao.getTableInfo().getIdField().getColumnName();
+        QueryBuilder<T, ID> query = dao.queryBuilder();
+        if (afterId != null) {
+            query.where().gt(idColumn, afterId);
+        }
+        return afterLoad(query.orderBy(idColumn, true).limit((long) limit).query());
+    }
+
+    /**
+     * Carrega uma página de entidades ordenadas por uma coluna qualquer,
+     * usando paginação por chave sobre o par (coluna, id). A chave primária
+     * desempata valores repetidos, de modo que nenhuma linha é pulada ou
+     * repetida entre páginas. Para latência constante a coluna deve ter
+     * índice, e não deve conter valores nulos.
+     * @param sortColumn Nome da coluna de ordenação
+     * @param ascending true para ordem crescente, false para decrescente
+     * @param after Última entidade da página anterior, ou null para a primeira página
+     * @param limit Número máximo de entidades na página
+     * @return Entidades da página; lista vazia ao fim da tabela
+     */
+    public List<T> loadPage(String sortColumn, boolean ascending, T after, int limit) {
+        try {
+            FieldType idField = dao.getTableInfo().getIdField();
+            FieldType sortField = dao.getTableInfo().getFieldTypeByColumnName(sortColumn);
+            String idColumn = idField.getColumnName();
+
+            QueryBuilder<T, ID> query = dao.queryBuilder();
+            if (after != null) {
+                Object afterValue = sortField.extractJavaFieldToSqlArgValue(after);
+                Object afterId = idField.extractJavaFieldToSqlArgValue(after);
+                Where<T, ID> where = query.where();
+                if (ascending) {
+                    where.or(
+                        where.gt(sortColumn, afterValue),
+                        where.and(where.eq(sortColumn, afterValue), where.gt(idColumn, afterId)));
+                } else {
+                    where.or(
+                        where.lt(sortColumn, afterValue),
+                        where.and(where.eq(sortColumn, afterValue), where.lt(idColumn, afterId)));
+                }
+            }
+            return afterLoad(query
+                .orderBy(sortColumn, ascending)
+                .orderBy(idColumn, ascending)
+                .limit((long) limit)
+                .query());
+        } catch (SQLException | IllegalArgumentException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Inicia uma consulta com filtros, ordenação e limite executados pelo
+     * SQLite.
+     * @return Nova consulta
+     * @see Query
+     */
+    public Query<T, ID> query() {
+        return new Query<>(this);
+    }
+
+    /**
+     * Executa uma consulta, compilando-a apenas na primeira vez em que o
+     * seu formato aparece.
+     * @param query Consulta
+     * @return Entidades encontradas
+     * @throws SQLException Se a consulta falhar
+     */
+    List<T> executeQuery(Query<T, ID> query) throws SQLException {
+        String shape = query.shape();
+        CompiledQuery<T> compiled = compiledQueries.get(shape);
+        if (compiled == null) {
+            compiled = query.compile(dao);
+            compiledQueries.put(shape, compiled);
+        }
+        return afterLoad(compiled.execute(dao, query.values()));
+    }
+
+    EntityCache<String, CompiledQuery<T>> getCompiledQueries() {
+        return compiledQueries;
+    }
+
+    /**
+     * Cria um índice, simples ou composto, se ainda não existir. Índices de
+     * uma coluna podem ser declarados na própria entidade com
+     * {@code @DatabaseField(index = true)}, e compostos com o mesmo
+     * {@code indexName} em vários campos; ambos são criados por
+     * {@link #setDatabase(Database)}. Este método atende os demais casos.
+     * @param indexName Nome do índice
+     * @param unique true para índice único
+     * @param columns Colunas do índice, na ordem
+     */
+    public void createIndex(String indexName, boolean unique, String... columns) {
+        StringBuilder sql = new StringBuilder("CREATE ");
+        if (unique)
+            sql.append("UNIQUE ");
+        sql.append("INDEX IF NOT EXISTS `").append(indexName).append("` ON `")
+           .append(dao.getTableInfo().getTableName()).append("` (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0)
+                sql.append(", ");
+            sql.append('`').append(columns[i]).append('`');
+        }
+        sql.append(')');
+        try {
+            dao.executeRaw(sql.toString());
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Registra uma consulta SQL para ser analisada por {@link #diagnoseQueries()}.
+     * @param name Nome da consulta
+     * @param sql Consulta; parâmetros podem ficar como {@code ?}
+     */
+    public void registerQuery(String name, String sql) {
+        synchronized (registeredQueries) {
+            registeredQueries.put(name, sql);
+        }
+    }
+
+    /**
+     * Executa {@code EXPLAIN QUERY PLAN} para uma consulta.
+     * @param sql Consulta; parâmetros podem ficar como {@code ?}
+     * @return Plano de execução
+     * @throws SQLException Se a consulta for inválida
+     */
+    public QueryPlan explain(String sql) throws SQLException {
+        return explain(sql, sql);
+    }
+
+    private QueryPlan explain(String name, String sql) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        // Colunas: id, parent, notused, detail
+        for (String[] row : dao.queryRaw("EXPLAIN QUERY PLAN " + sql).getResults()) {
+            steps.add(row[row.length - 1]);
+        }
+        return new QueryPlan(name, sql, steps);
+    }
+
+    /**
+     * Analisa as consultas registradas com {@link #registerQuery(String, String)}
+     * e as já executadas por {@link #query()}, indicando as que percorrem
+     * tabelas inteiras ({@link QueryPlan#hasFullScan()}).
+     * @return Planos de execução; consultas inválidas são omitidas
+     */
+    public List<QueryPlan> diagnoseQueries() {
+        Map<String, String> queries;
+        synchronized (registeredQueries) {
+            queries = new LinkedHashMap<>(registeredQueries);
+        }
+        for (Map.Entry<String, CompiledQuery<T>> compiled : compiledQueries.snapshot().entrySet()) {
+            queries.putIfAbsent(compiled.getKey(), compiled.getValue().getStatement());
+        }
+        List<QueryPlan> plans = new ArrayList<>(queries.size());
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            try {
+                plans.add(explain(query.getKey(), query.getValue()));
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+        return plans;
+    }
+
+    /**
+     * Habilita a busca textual ({@link #search(String, int)}) sobre as
+     * colunas dadas, usando uma tabela virtual FTS5 {@code <tabela>_fts} com
+     * conteúdo externo: o texto não é duplicado, só o índice invertido.
+     * Gatilhos (triggers) no banco mantêm o índice em dia a cada INSERT,
+     * UPDATE e DELETE, venham eles deste repositório ou não. Na primeira
+     * vez, as linhas já existentes são indexadas.
+     *
+     * O índice usa o rowid da tabela. Em tabelas cuja chave não é inteira,
+     * um VACUUM pode renumerar os rowids; nesse caso chame
+     * {@link #rebuildFullTextIndex()} em seguida.
+     * @param columns Colunas de texto indexadas
+     * @throws IllegalArgumentException Se alguma coluna não existir na tabela
+     */
+    public void enableFullTextSearch(String... columns) {
+        for (String column : columns) {
+            dao.getTableInfo().getFieldTypeByColumnName(column);
+        }
+        String table = dao.getTableInfo().getTableName();
+        String fts = table + "_fts";
+        String cols = String.join(", ", columns);
+        String newValues = "new." + String.join(", new.", columns);
+        String oldValues = "old." + String.join(", old.", columns);
+        try {
+            boolean exists = dao.queryRawValue(
+                "SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name = ?", fts) > 0;
+            dao.executeRaw("CREATE VIRTUAL TABLE IF NOT EXISTS " + fts + " USING fts5(" + cols
+                + ", content='" + table + "', tokenize='unicode61 remove_diacritics 2', prefix='2 3')");
+            dao.executeRaw("CREATE TRIGGER IF NOT EXISTS " + fts + "_ai AFTER INSERT ON " + table + " BEGIN"
+                + " INSERT INTO " + fts + "(rowid, " + cols + ") VALUES (new.rowid, " + newValues + ");"
+                + " END");
+            dao.executeRaw("CREATE TRIGGER IF NOT EXISTS " + fts + "_ad AFTER DELETE ON " + table + " BEGIN"
+                + " INSERT INTO " + fts + "(" + fts + ", rowid, " + cols + ") VALUES ('delete', old.rowid, " + oldValues + ");"
+                + " END");
+            dao.executeRaw("CREATE TRIGGER IF NOT EXISTS " + fts + "_au AFTER UPDATE ON " + table + " BEGIN"
+                + " INSERT INTO " + fts + "(" + fts + ", rowid, " + cols + ") VALUES ('delete', old.rowid, " + oldValues + ");"
+                + " INSERT INTO " + fts + "(rowid, " + cols + ") VALUES (new.rowid, " + newValues + ");"
+                + " END");
+            this.fullTextColumns = columns;
+            if (!exists) {
+                rebuildFullTextIndex();
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Reconstrói o índice de busca textual a partir do conteúdo da tabela.
+     */
+    public void rebuildFullTextIndex() {
+        String fts = dao.getTableInfo().getTableName() + "_fts";
+        try {
+            dao.executeRaw("INSERT INTO " + fts + "(" + fts + ") VALUES ('rebuild')");
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Busca entidades por palavras, ordenadas por relevância (bm25). Cada
+     * palavra da consulta é tratada como prefixo e todas precisam aparecer:
+     * "mar sil" encontra "Maria da Silva". Acentos e maiúsculas são
+     * ignorados. Requer {@link #enableFullTextSearch(String...)}.
+     * @param query Palavras, ou início de palavras, a buscar
+     * @param limit Número máximo de entidades
+     * @return Entidades encontradas, mais relevantes primeiro
+     */
+    public List<T> search(String query, int limit) {
+        String match = toPrefixMatch(query);
+        if (fullTextColumns == null || match.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String table = dao.getTableInfo().getTableName();
+        String sql = "SELECT t.* FROM " + table + " t JOIN " + table + "_fts f ON f.rowid = t.rowid"
+            + " WHERE f." + table + "_fts MATCH ? ORDER BY f.rank LIMIT " + limit;
+        try {
+            return afterLoad(dao.queryRaw(sql, dao.getRawRowMapper(), match).getResults());
+        } catch (SQLException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Converte o texto digitado em uma expressão FTS5 segura: cada palavra
+     * vira {@code "palavra"*}, sem operadores vindos do usuário.
+     */
+    static String toPrefixMatch(String query) {
+        StringBuilder match = new StringBuilder();
+        if (query == null) {
+            return "";
+        }
+        for (String token : query.trim().split("\\s+")) {
+            String term = token.replace("\"", "");
+            if (term.isEmpty())
+                continue;
+            if (match.length() > 0)
+                match.append(' ');
+            match.append('"').append(term).append("\"*");
+        }
+        return match.toString();
+    }
+
+    /**
+     * Carrega apenas algumas colunas da tabela, diretamente em um record,
+     * sem montar a entidade inteira. As colunas são atribuídas aos
+     * componentes do record na ordem em que aparecem.
+     * <pre>
+     * record EstudanteNome(int id, String nomeCompleto) {}
+     * repositorio.project(EstudanteNome.class, "id", "nomeCompleto");
+     * </pre>
+     * @param recordType Classe do record de destino
+     * @param columns Colunas da tabela, uma por componente do record
+     * @return Registros em ordem de chave primária; lista vazia em caso de erro
+     */
+    public <R extends Record> List<R> project(Class<R> recordType, String... columns) {
+        try {
+            RecordMapper<R> mapper = RecordMapper.of(recordType);
+            if (columns.length != mapper.getColumnCount()) {
+                throw new IllegalArgumentException(recordType.getSimpleName() + " tem "
+                    + mapper.getColumnCount() + " componentes, mas foram pedidas " + columns.length + " colunas");
+            }
+            StringBuilder sql = new StringBuilder("SELECT ");
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0)
+                    sql.append(", ");
+                sql.append('`').append(columns[i]).append('`');
+            }
+            sql.append(" FROM `").append(dao.getTableInfo().getTableName()).append('`')
+               .append(" ORDER BY `").append(dao.getTableInfo().getIdField().getColumnName()).append('`');
+            return dao.queryRaw(sql.toString(), mapper).getResults();
+        } catch (SQLException | IllegalArgumentException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Executa uma consulta SQL qualquer (por exemplo com JOINs) e converte
+     * cada linha em um record, coluna a coluna, na ordem dos componentes.
+     * @param recordType Classe do record de destino
+     * @param sql Consulta SELECT; parâmetros com {@code ?}
+     * @param arguments Valores dos parâmetros
+     * @return Registros na ordem da consulta; lista vazia em caso de erro
+     */
+    public <R extends Record> List<R> projectRaw(Class<R> recordType, String sql, String... arguments) {
+        try {
+            return dao.queryRaw(sql, RecordMapper.of(recordType), arguments).getResults();
+        } catch (SQLException | IllegalArgumentException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Define quais associações estrangeiras são carregadas junto com as
+     * entidades em {@link #loadFromId(Object)}, {@link #loadAll()} e
+     * {@link #loadPage(Object, int)}. Em vez de uma consulta por linha, como
+     * faz {@code foreignAutoRefresh}, cada associação é buscada em lote com
+     * {@code WHERE id IN (...)}, e registros compartilhados (por exemplo a
+     * mesma turma em várias matrículas) viram uma única instância.
+     * Os campos do plano devem usar {@code foreignAutoRefresh = false}.
+     * {@link #stream()} não aplica o plano.
+     * <pre>
+     * Repositorios.MATRICULA.setFetchPlan("estudante", "turma", "turma.disciplina");
+     * </pre>
+     * @param paths Nomes dos campos estrangeiros; caminhos aninhados são separados por ponto
+     * @throws IllegalArgumentException Se algum caminho não for um campo estrangeiro
+     */
+    public void setFetchPlan(String... paths) {
+        if (paths.length == 0) {
+            this.fetchPlan = null;
+            return;
+        }
+        try {
+            this.fetchPlan = FetchPlan.of(dao.getConnectionSource(), entityClass, paths);
+        } catch (SQLException e) {
+            System.out.println(e);
+        }
+    }
+
+    /**
+     * Aplica o plano de busca às entidades lidas e, com verificação de
+     * alterações ativa, guarda o estado delas.
+     */
+    private List<T> afterLoad(List<T> entities) throws SQLException {
+        if (fetchPlan != null) {
+            fetchPlan.apply(entities);
+        }
+        if (dirtyTracker != null) {
+            dirtyTracker.track(entities);
+        }
+        return entities;
+    }
+
+    /**
+     * Percorre a tabela inteira sob demanda, usando o cursor do ORMLite.
+     * Nenhuma entidade é guardada pelo repositório, portanto o consumo de
+     * memória não depende do tamanho da tabela.
+     * O stream mantém o cursor aberto e deve ser fechado, de preferência
+     * com try-with-resources.
+     * @return Stream das entidades
+     */
+    public Stream<T> stream() {
+        return stream(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Percorre a tabela inteira sob demanda, usando o cursor do ORMLite.
+     * @param fetchSize Quantidade de linhas que o driver deve ler por vez
+     * @return Stream das entidades; deve ser fechado após o uso
+     */
+    public Stream<T> stream(int fetchSize) {
+        CloseableIterator<T> iterator;
+        try {
+            iterator = dao.iterator();
+            if (iterator.getRawResults() instanceof JdbcDatabaseResults) {
+                ((JdbcDatabaseResults) iterator.getRawResults()).getResultSet().setFetchSize(fetchSize);
+            }
+        } catch (SQLException e) {
+            System.out.println(e);
+            return Stream.empty();
+        }
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(
+            iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(iterator::closeQuietly);
+    }
+
+    /**
+     * Aplica uma ação a cada entidade da tabela sem carregá-las todas na
+     * memória. O cursor é fechado ao final, mesmo em caso de exceção.
+     * @param action Ação aplicada a cada entidade
+     */
+    public void forEach(Consumer<? super T> action) {
+        forEach(DEFAULT_FETCH_SIZE, action);
+    }
+
+    /**
+     * Aplica uma ação a cada entidade da tabela sem carregá-las todas na
+     * memória.
+     * @param fetchSize Quantidade de linhas que o driver deve ler por vez
+     * @param action Ação aplicada a cada entidade
+     */
+    public void forEach(int fetchSize, Consumer<? super T> action) {
+        try (Stream<T> entities = stream(fetchSize)) {
+            entities.forEach(action);
+        }
+    }
+
     /**
      * Obtém a última entidade carregada.
      * @return Última entidade carregada
@@ -181,7 +1397,10 @@ public class Repositorio<T, ID> {
     }
 
     /**
-     * Obtém a lista de entidades carregadas.
+     * Obtém a lista de entidades carregadas pela última chamada a
+     * {@link #loadAll()}. Entidades criadas ou carregadas individualmente
+     * não são acumuladas aqui, para que processos de longa duração não
+     * retenham memória; para rastrear entidades use uma {@link Session}.
      * @return Lista de entidades carregadas
      */
     public List<T> getLoadedEntities() {
@@ -198,10 +1417,17 @@ public class Repositorio<T, ID> {
 
     /**
      * Define se as operações CRUD devem ser publicadas no Redis.
+     *
+     * Com a captura de alterações habilitada
+     * ({@link DatabaseOptions#setChangeCapture(boolean)}), a publicação é
+     * da tabela, não do repositório: enquanto algum repositório da mesma
+     * tabela no mesmo {@link Database} publicar, as escritas deste também são
+     * publicadas, por ele e pelo {@link CrudPublisher} dele.
      * @param enable true para publicar, false para não publicar
      */
     public void setEnableCrudPublishing(boolean enable) {
         this.enableCrudPublishing = enable;
+        updateRedisSubscription();
     }
     
     /**
@@ -211,4 +1437,166 @@ public class Repositorio<T, ID> {
     public boolean isEnableCrudPublishing() {
         return this.enableCrudPublishing;
     }
-}
\ No newline at end of file
+
+    /**
+     * Define por onde as operações CRUD são publicadas, por exemplo um
+     * {@link br.ufg.inf.publicador.BatchingPublisher} para cargas em lote.
+     * O padrão é {@link RedisPublisher#shared()}.
+     * @param publisher Publicador das operações
+     */
+    public void setCrudPublisher(CrudPublisher publisher) {
+        this.redisPublisher = publisher;
+    }
+
+    public CrudPublisher getCrudPublisher() {
+        return redisPublisher;
+    }
+
+    /**
+     * Ativa o modo outbox: em vez de publicar no Redis logo após a escrita,
+     * cada operação CRUD é gravada na tabela {@code outbox} na mesma
+     * transação da entidade. A entrega ao Redis fica a cargo de um
+     * {@link OutboxRelay} associado ao mesmo {@link Database}.
+     * @param enable true para usar o outbox, false para publicar diretamente
+     */
+    public void setEnableOutbox(boolean enable) {
+        if (enable) {
+            try {
+                database.getOutboxDao();
+            } catch (SQLException e) {
+                System.out.println(e);
+                return;
+            }
+        }
+        this.enableOutbox = enable;
+        updateRedisSubscription();
+    }
+
+    /**
+     * Verifica se as operações CRUD são gravadas no outbox.
+     * @return true se o modo outbox estiver ativo
+     */
+    public boolean isEnableOutbox() {
+        return this.enableOutbox;
+    }
+
+    /**
+     * Abre uma sessão (unidade de trabalho) sobre este repositório, com
+     * mapa de identidade de até {@link Session#DEFAULT_MAX_ENTITIES} entidades.
+     * @return Nova sessão; deve ser fechada para gravar as alterações
+     */
+    public Session<T, ID> openSession() {
+        return new Session<>(this, Session.DEFAULT_MAX_ENTITIES);
+    }
+
+    /**
+     * Abre uma sessão (unidade de trabalho) sobre este repositório.
+     * @param maxEntities Limite do mapa de identidade e de alterações pendentes
+     * @return Nova sessão; deve ser fechada para gravar as alterações
+     */
+    public Session<T, ID> openSession(int maxEntities) {
+        return new Session<>(this, maxEntities);
+    }
+
+    /**
+     * Ativa um cache de leitura para {@link #loadFromId}, limitado a
+     * {@code maxSize} entidades com despejo LRU. As entidades alteradas por
+     * este repositório são invalidadas; escritas feitas por outros
+     * processos ou repositórios não são vistas até o despejo da entrada.
+     * @param maxSize Número máximo de entidades em cache
+     */
+    public void enableCache(int maxSize) {
+        this.cache = new EntityCache<>(maxSize);
+    }
+
+    /**
+     * Desativa o cache de leitura, descartando as entradas.
+     */
+    public void disableCache() {
+        this.cache = null;
+    }
+
+    /**
+     * Obtém o cache de leitura, com os contadores de acertos, faltas e
+     * despejos.
+     * @return Cache ativo, ou null se desativado
+     */
+    public EntityCache<ID, T> getCache() {
+        return cache;
+    }
+
+    /**
+     * Ativa a verificação de alterações por campo: o repositório guarda o
+     * estado de até {@code maxEntities} entidades lidas ou gravadas, e
+     * {@link #update(Object)} passa a gravar apenas as colunas alteradas
+     * (ou nada, se nenhuma mudou). A operação UPDATE publicada leva só a
+     * chave e os campos alterados. Entidades sem estado guardado são
+     * gravadas e publicadas por inteiro.
+     * @param maxEntities Número máximo de entidades acompanhadas
+     */
+    public void enableDirtyChecking(int maxEntities) {
+        this.dirtyTracker = new DirtyTracker<>(dao, maxEntities);
+    }
+
+    /**
+     * Desativa a verificação de alterações: UPDATE volta a gravar todas as colunas.
+     */
+    public void disableDirtyChecking() {
+        this.dirtyTracker = null;
+    }
+
+    /**
+     * Obtém os estados guardados pela verificação de alterações, com os
+     * contadores de acertos e despejos.
+     * @return Estados por ID, ou null se a verificação estiver desativada
+     */
+    public EntityCache<ID, Object[]> getDirtySnapshots() {
+        return dirtyTracker == null ? null : dirtyTracker.getSnapshots();
+    }
+
+    /**
+     * Passa a atribuir as chaves das entidades novas por um
+     * {@link IdAllocator}, que reserva {@code blockSize} IDs por transação.
+     * Sem leitura da chave gerada a cada INSERT, {@link #createAll} grava o
+     * lote em um único batch JDBC. A chave deve ser inteira e declarada com
+     * {@code @DatabaseField(generatedId = true, allowGeneratedIdInsert = true)}.
+     * @param blockSize Número de IDs reservados por vez
+     * @throws IllegalStateException Se a chave não atender aos requisitos
+     */
+    public void enableIdAllocation(int blockSize) {
+        FieldType idField = dao.getTableInfo().getIdField();
+        Class<?> type = idField == null ? null : idField.getType();
+        if (idField == null || !idField.isGeneratedId() || !idField.isAllowGeneratedIdInsert()
+                || !(type == int.class || type == Integer.class || type == long.class || type == Long.class)) {
+            throw new IllegalStateException(entityClass.getSimpleName()
+                + ": a chave deve ser inteira, com generatedId e allowGeneratedIdInsert");
+        }
+        this.idAllocator = new IdAllocator(dao.getConnectionSource(), dao.getTableInfo().getTableName(),
+            idField.getColumnName(), blockSize);
+        BatchInserter<T> inserter = new BatchInserter<>(dao);
+        this.batchInserter = inserter.isSupported() ? inserter : null;
+    }
+
+    /**
+     * Ativa a alocação de chaves com blocos de {@link IdAllocator#DEFAULT_BLOCK_SIZE} IDs.
+     * @see #enableIdAllocation(int)
+     */
+    public void enableIdAllocation() {
+        enableIdAllocation(IdAllocator.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Volta a deixar a geração das chaves com o SQLite.
+     */
+    public void disableIdAllocation() {
+        this.idAllocator = null;
+        this.batchInserter = null;
+    }
+
+    /**
+     * @return Alocador de chaves, ou null se desativado
+     */
+    public IdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+}
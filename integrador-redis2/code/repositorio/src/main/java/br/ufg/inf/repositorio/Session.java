@@ -0,0 +1,213 @@
+package br.ufg.inf.repositorio;
+
+import br.ufg.inf.publicador.CrudOperation;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sessão (unidade de trabalho) sobre um {@link Repositorio}.
+ *
+ * Deve ser aberta por lote ou por requisição e fechada ao final. Enquanto
+ * aberta, mantém um mapa de identidade limitado das entidades lidas e
+ * acumula as entidades novas, alteradas e removidas. Tudo é gravado em uma
+ * única transação por {@link #flush()} ou {@link #close()}, e as operações
+ * CRUD são publicadas juntas. Se o número de alterações pendentes atingir o
+ * limite da sessão, elas são gravadas antecipadamente, mantendo a memória
+ * constante mesmo em lotes muito grandes.
+ *
+ * Uma sessão não é thread-safe.
+ *
+ * <pre>
+ * try (Session&lt;Estudante, Integer&gt; sessao = repositorio.openSession()) {
+ *     Estudante e = sessao.find(1);
+ *     e.setNomeCompleto("Novo nome");
+ *     sessao.markDirty(e);
+ *     sessao.persist(new Estudante());
+ * } // grava tudo em uma transação
+ * </pre>
+ *
+ * @param <T> Tipo da entidade
+ * @param <ID> Tipo do identificador da entidade
+ */
+public class Session<T, ID> implements AutoCloseable {
+
+    /** Limite padrão de entidades rastreadas por sessão. */
+    public static final int DEFAULT_MAX_ENTITIES = 1000;
+
+    private final Repositorio<T, ID> repositorio;
+    private final int maxEntities;
+    private final LinkedHashMap<ID, T> identityMap;
+    private final List<T> created = new ArrayList<>();
+    private final LinkedHashMap<ID, T> dirty = new LinkedHashMap<>();
+    private final LinkedHashMap<ID, T> removed = new LinkedHashMap<>();
+    private boolean closed = false;
+
+    Session(Repositorio<T, ID> repositorio, int maxEntities) {
+        if (maxEntities <= 0) {
+            throw new IllegalArgumentException("maxEntities deve ser positivo: " + maxEntities);
+        }
+        this.repositorio = repositorio;
+        this.maxEntities = maxEntities;
+        this.identityMap = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ID, T> eldest) {
+                return size() > Session.this.maxEntities;
+            }
+        };
+    }
+
+    /**
+     * Busca uma entidade pelo ID. Dentro da sessão, o mesmo ID devolve a
+     * mesma instância enquanto ela estiver no mapa de identidade.
+     * @param id ID da entidade
+     * @return Entidade encontrada ou null se não existir ou tiver sido removida
+     */
+    public T find(ID id) {
+        checkOpen();
+        if (removed.containsKey(id)) {
+            return null;
+        }
+        T entity = dirty.get(id);
+        if (entity == null) {
+            entity = identityMap.get(id);
+        }
+        if (entity == null) {
+            entity = repositorio.loadFromId(id);
+            if (entity != null) {
+                identityMap.put(id, entity);
+            }
+        }
+        return entity;
+    }
+
+    /**
+     * Agenda a criação de uma nova entidade.
+     * @param entity Entidade a ser criada
+     * @throws SQLException Se o limite de pendências forçar uma gravação e ela falhar
+     */
+    public void persist(T entity) throws SQLException {
+        checkOpen();
+        created.add(entity);
+        flushIfFull();
+    }
+
+    /**
+     * Marca uma entidade como alterada, para ser atualizada no flush.
+     * @param entity Entidade alterada
+     * @throws SQLException Se o ID não puder ser lido ou uma gravação antecipada falhar
+     */
+    public void markDirty(T entity) throws SQLException {
+        checkOpen();
+        ID id = repositorio.extractId(entity);
+        if (!removed.containsKey(id)) {
+            dirty.put(id, entity);
+            identityMap.put(id, entity);
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Agenda a remoção de uma entidade.
+     * @param entity Entidade a ser removida
+     * @throws SQLException Se o ID não puder ser lido ou uma gravação antecipada falhar
+     */
+    public void remove(T entity) throws SQLException {
+        checkOpen();
+        ID id = repositorio.extractId(entity);
+        dirty.remove(id);
+        identityMap.remove(id);
+        removed.put(id, entity);
+        flushIfFull();
+    }
+
+    /**
+     * Grava as alterações pendentes em uma única transação: primeiro as
+     * criações, depois as atualizações e por fim as remoções. Se a
+     * transação falhar, as pendências são mantidas.
+     * @return Número de linhas afetadas
+     * @throws SQLException Se a gravação falhar
+     */
+    public int flush() throws SQLException {
+        checkOpen();
+        List<Repositorio.PendingWrite<T>> writes = new ArrayList<>(getPendingCount());
+        for (T entity : created) {
+            writes.add(new Repositorio.PendingWrite<>(CrudOperation.OperationType.CREATE, entity));
+        }
+        for (T entity : dirty.values()) {
+            writes.add(new Repositorio.PendingWrite<>(CrudOperation.OperationType.UPDATE, entity));
+        }
+        for (T entity : removed.values()) {
+            writes.add(new Repositorio.PendingWrite<>(CrudOperation.OperationType.DELETE, entity));
+        }
+        int nrows = repositorio.writeBatch(writes);
+
+        for (T entity : created) {
+            identityMap.put(repositorio.extractId(entity), entity);
+        }
+        created.clear();
+        dirty.clear();
+        removed.clear();
+        return nrows;
+    }
+
+    /**
+     * Descarta as alterações pendentes e esvazia o mapa de identidade.
+     */
+    public void clear() {
+        created.clear();
+        dirty.clear();
+        removed.clear();
+        identityMap.clear();
+    }
+
+    /**
+     * Grava as alterações pendentes e encerra a sessão.
+     * @throws SQLException Se a gravação final falhar
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            clear();
+            closed = true;
+        }
+    }
+
+    /**
+     * @return Número de entidades criadas, alteradas ou removidas ainda não gravadas
+     */
+    public int getPendingCount() {
+        return created.size() + dirty.size() + removed.size();
+    }
+
+    /**
+     * @return Número de entidades no mapa de identidade
+     */
+    public int getTrackedCount() {
+        return identityMap.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void flushIfFull() throws SQLException {
+        if (getPendingCount() >= maxEntities) {
+            flush();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Sessão encerrada");
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+import java.sql.SQLException;
+
+/**
+ * Conexão única compartilhada entre threads, que registra por thread a
+ * conexão de uma transação aberta pelo {@code TransactionManager}.
+ *
+ * O {@link JdbcConnectionSource} não guarda essa conexão:
+ * {@link #getSpecialConnection(String)} devolve sempre null, e o único
+ * sinal de uma transação seria o autocommit desligado, que é estado da
+ * conexão e vale para todas as threads. Aqui, como no pool, cada thread
+ * enxerga só a própria transação; o {@link Repositorio} usa isso para saber
+ * se escreve dentro da transação de quem o chamou.
+ */
+class SharedConnectionSource extends JdbcConnectionSource {
+
+    SharedConnectionSource(String url) throws SQLException {
+        super(url);
+    }
+
+    @Override
+    public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+        return saveSpecial(connection);
+    }
+
+    @Override
+    public void clearSpecialConnection(DatabaseConnection connection) {
+        clearSpecial(connection, logger);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        ChangeCapture.closeWithSQLException(super::close);
+    }
+}
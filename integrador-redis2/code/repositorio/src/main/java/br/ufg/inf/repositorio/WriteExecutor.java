@@ -0,0 +1,280 @@
+package br.ufg.inf.repositorio;
+
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escritor único com commit em grupo (group commit) para o SQLite.
+ *
+ * O SQLite admite apenas um escritor por vez; várias threads escrevendo ao
+ * mesmo tempo disputam o lock e recebem SQLITE_BUSY. Aqui todas as escritas
+ * são enfileiradas e executadas por uma única thread, que junta as tarefas
+ * disponíveis (até {@code maxBatchSize}, esperando no máximo
+ * {@code maxLatencyMillis} pela chegada de novas) e as grava em uma única
+ * transação. Assim um fsync é pago por grupo, e não por linha.
+ *
+ * Se alguma tarefa do grupo falhar, a transação é desfeita e cada tarefa
+ * é reexecutada isoladamente, de modo que a falha de uma não afeta as demais.
+ * Por isso as tarefas devem poder ser repetidas. O que a tarefa altera em
+ * memória durante a tentativa desfeita (o ID gerado ou a versão que o
+ * ORMLite incrementa na entidade) não volta sozinho: quem precisa disso
+ * informa em {@link #submit(Callable, Runnable)} como restaurar o estado
+ * anterior, e isso é feito antes de cada nova tentativa.
+ */
+public class WriteExecutor implements AutoCloseable {
+
+    private final ConnectionSource connectionSource;
+    private final int maxBatchSize;
+    private final long maxLatencyNanos;
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong committedGroups = new AtomicLong();
+    private final AtomicLong committedTasks = new AtomicLong();
+    private final Object lock = new Object();
+    private volatile boolean running = true;
+
+    /**
+     * @param connectionSource Fonte de conexões do banco
+     * @param maxBatchSize Número máximo de tarefas por transação
+     * @param maxLatencyMillis Tempo máximo que a primeira tarefa de um grupo espera por outras
+     */
+    public WriteExecutor(ConnectionSource connectionSource, int maxBatchSize, long maxLatencyMillis) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize deve ser positivo: " + maxBatchSize);
+        }
+        this.connectionSource = connectionSource;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+        this.writer = new Thread(this::run, "sqlite-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Enfileira uma escrita. A tarefa roda na thread escritora, dentro da
+     * transação do grupo, e não deve abrir transação própria.
+     * @param task Escrita a executar
+     * @return Futuro concluído após o commit do grupo
+     */
+    public <V> CompletableFuture<V> submit(Callable<V> task) {
+        return submit(task, null);
+    }
+
+    /**
+     * Enfileira uma escrita que deixa estado em memória a restaurar se a
+     * transação do grupo for desfeita.
+     * @param task Escrita a executar
+     * @param onRollback Restaura o estado anterior à tarefa; pode ser null
+     * @return Futuro concluído após o commit do grupo
+     */
+    public <V> CompletableFuture<V> submit(Callable<V> task, Runnable onRollback) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        if (isWriterThread()) {
+            // Escrita disparada de dentro de outra tarefa: já está na transação
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        // verificação e enfileiramento juntos: close() não pode passar entre eles
+        synchronized (lock) {
+            if (!running) {
+                future.completeExceptionally(new SQLException("WriteExecutor encerrado"));
+                return future;
+            }
+            queue.add(new Task<>(task, onRollback, future));
+        }
+        return future;
+    }
+
+    /**
+     * Enfileira uma escrita e aguarda o commit do grupo.
+     * @param task Escrita a executar
+     * @return Resultado da tarefa
+     * @throws SQLException Se a tarefa ou o commit falharem
+     */
+    public <V> V execute(Callable<V> task) throws SQLException {
+        return execute(task, null);
+    }
+
+    /**
+     * Enfileira uma escrita e aguarda o commit do grupo.
+     * @param task Escrita a executar
+     * @param onRollback Restaura o estado anterior à tarefa; pode ser null
+     * @return Resultado da tarefa
+     * @throws SQLException Se a tarefa ou o commit falharem
+     */
+    public <V> V execute(Callable<V> task, Runnable onRollback) throws SQLException {
+        try {
+            return submit(task, onRollback).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando a escrita", e);
+        } catch (ExecutionException e) {
+            throw asSQLException(e.getCause());
+        }
+    }
+
+    /**
+     * @return true se a thread atual é a thread escritora
+     */
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writer;
+    }
+
+    private void run() {
+        List<Task<?>> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Task<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxBatchSize - group.size());
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (group.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Task<?> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                    queue.drainTo(group, maxBatchSize - group.size());
+                }
+                commit(group);
+            } catch (InterruptedException e) {
+                synchronized (lock) {
+                    running = false;
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commit(List<Task<?>> group) {
+        try {
+            List<Object> results = TransactionManager.callInTransaction(connectionSource, () -> {
+                List<Object> values = new ArrayList<>(group.size());
+                for (Task<?> task : group) {
+                    values.add(task.callable.call());
+                }
+                return values;
+            });
+            committedGroups.incrementAndGet();
+            committedTasks.addAndGet(group.size());
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).complete(results.get(i));
+            }
+        } catch (SQLException e) {
+            for (Task<?> task : group) {
+                task.rollback();
+            }
+            if (group.size() == 1) {
+                group.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // Isola a tarefa com problema: cada uma em sua própria transação
+            for (Task<?> task : group) {
+                commit(List.of(task));
+            }
+        }
+    }
+
+    /**
+     * Para de aceitar escritas, grava as que já estão na fila e encerra a
+     * thread escritora.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            running = false;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Task<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new SQLException("WriteExecutor encerrado"));
+        }
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos);
+    }
+
+    /**
+     * @return Número de transações (grupos) confirmadas
+     */
+    public long getCommittedGroups() {
+        return committedGroups.get();
+    }
+
+    /**
+     * @return Número de tarefas confirmadas
+     */
+    public long getCommittedTasks() {
+        return committedTasks.get();
+    }
+
+    /**
+     * @return Número de escritas aguardando na fila
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private static SQLException asSQLException(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof SQLException ? (SQLException) t : new SQLException(t);
+    }
+
+    private static final class Task<V> {
+        private final Callable<V> callable;
+        private final Runnable onRollback;
+        private final CompletableFuture<V> future;
+
+        private Task(Callable<V> callable, Runnable onRollback, CompletableFuture<V> future) {
+            this.callable = callable;
+            this.onRollback = onRollback;
+            this.future = future;
+        }
+
+        private void rollback() {
+            if (onRollback != null) {
+                onRollback.run();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object value) {
+            future.complete((V) value);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package br.ufg.inf.repositorio;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark simples que compara a inserção linha a linha ({@code create} em
+ * laço) com a inserção em lote ({@code createAll}).
+ *
+ * Não é executado pelo surefire. Para rodar:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=br.ufg.inf.repositorio.RepositorioBenchmark \
+ *     -Dexec.classpathScope=test -Dexec.args="5000 false"
+ * </pre>
+ * O primeiro argumento é o número de linhas; o segundo indica se as operações
+ * devem ser publicadas no Redis.
+ */
+public class RepositorioBenchmark {
+
+    private static final String DB_NAME = "benchmark_repositorio.sqlite";
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        boolean publish = args.length > 1 && Boolean.parseBoolean(args[1]);
+
+        double loop = run(rows, publish, false);
+        double batch = run(rows, publish, true);
+
+        System.out.printf("create em laço : %10.0f linhas/s%n", loop);
+        System.out.printf("createAll      : %10.0f linhas/s%n", batch);
+        System.out.printf("ganho          : %10.1fx%n", batch / loop);
+    }
+
+    private static double run(int rows, boolean publish, boolean batch) {
+        new File(DB_NAME).delete();
+        Database database = new Database(DB_NAME);
+        try {
+            Repositorio<RepositorioTest.TestEntity, Long> repositorio =
+                new Repositorio<>(database, RepositorioTest.TestEntity.class);
+            repositorio.setEnableCrudPublishing(publish);
+
+            List<RepositorioTest.TestEntity> entities = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                entities.add(new RepositorioTest.TestEntity("Entidade " + i));
+            }
+
+            long start = System.nanoTime();
+            if (batch) {
+                repositorio.createAll(entities);
+            } else {
+                for (RepositorioTest.TestEntity entity : entities) {
+                    repositorio.create(entity);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            return rows / (elapsed / 1_000_000_000.0);
+        } finally {
+            database.close();
+            new File(DB_NAME).delete();
+        }
+    }
+}
@@ -5,10 +5,40 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.*;
 
+import br.ufg.inf.publicador.BatchingPublisher;
+import br.ufg.inf.publicador.CrudOperation;
+import br.ufg.inf.publicador.CrudOperationCodec;
+import br.ufg.inf.publicador.CrudPublisher;
+import br.ufg.inf.publicador.CrudTransport;
+import br.ufg.inf.publicador.RedisPublisher;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcPooledConnectionSource;
+import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.table.DatabaseTable;
 
 import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Testes básicos para as classes Database e Repositorio.
@@ -48,6 +78,58 @@ public class RepositorioTest {
         }
     }
     
+    @DatabaseTable(tableName = "test_child")
+    public static class TestChild {
+        @DatabaseField(generatedId = true)
+        private Long id;
+
+        @DatabaseField(foreign = true)
+        private TestEntity parent;
+
+        public TestChild() {
+        }
+
+        public TestChild(TestEntity parent) {
+            this.parent = parent;
+        }
+
+        public TestEntity getParent() { return parent; }
+    }
+
+    @DatabaseTable(tableName = "test_versionado")
+    public static class TestVersionado {
+        @DatabaseField(generatedId = true)
+        private Long id;
+
+        @DatabaseField
+        private String nome;
+
+        @DatabaseField
+        private int contador;
+
+        @DatabaseField(version = true)
+        private int versao;
+
+        public TestVersionado() {
+        }
+    }
+
+    @DatabaseTable(tableName = "test_alocado")
+    public static class TestAlocado {
+        @DatabaseField(generatedId = true, allowGeneratedIdInsert = true)
+        private long id;
+
+        @DatabaseField
+        private String nome;
+
+        public TestAlocado() {
+        }
+
+        public TestAlocado(String nome) {
+            this.nome = nome;
+        }
+    }
+
     @BeforeEach
     public void setUp() {
         // Remove o arquivo de teste se existir
@@ -146,4 +228,1020 @@ public class RepositorioTest {
         TestEntity loaded = repositorio.loadFromId(id);
         assertNull(loaded);
     }
+
+    @Test
+    public void testCreateAll() {
+        List<TestEntity> entities = List.of(
+            new TestEntity("Lote 1"),
+            new TestEntity("Lote 2"),
+            new TestEntity("Lote 3"));
+
+        int nrows = repositorio.createAll(entities);
+
+        assertEquals(3, nrows);
+        for (TestEntity entity : entities) {
+            assertNotNull(entity.getId());
+        }
+        assertEquals(3, repositorio.loadAll().size());
+    }
+
+    @Test
+    public void testUpdateAll() {
+        List<TestEntity> entities = List.of(new TestEntity("A"), new TestEntity("B"));
+        repositorio.createAll(entities);
+
+        for (TestEntity entity : entities) {
+            entity.setNome(entity.getNome() + " atualizado");
+        }
+        int nrows = repositorio.updateAll(entities);
+
+        assertEquals(2, nrows);
+        assertEquals("A atualizado", repositorio.loadFromId(entities.get(0).getId()).getNome());
+        assertEquals("B atualizado", repositorio.loadFromId(entities.get(1).getId()).getNome());
+    }
+
+    @Test
+    public void testDeleteAll() {
+        List<TestEntity> entities = List.of(new TestEntity("X"), new TestEntity("Y"));
+        repositorio.createAll(entities);
+
+        int nrows = repositorio.deleteAll(entities);
+
+        assertEquals(2, nrows);
+        assertTrue(repositorio.loadAll().isEmpty());
+    }
+
+    @Test
+    public void testOutboxRecordsOperationsInTransaction() throws Exception {
+        repositorio.setEnableOutbox(true);
+
+        TestEntity entity = repositorio.create(new TestEntity("Outbox"));
+        entity.setNome("Outbox atualizado");
+        repositorio.update(entity);
+        repositorio.createAll(List.of(new TestEntity("Outbox 2"), new TestEntity("Outbox 3")));
+
+        List<OutboxEntry> pending = database.getOutboxDao().queryForAll();
+        assertEquals(4, pending.size());
+        assertEquals("TestEntity", pending.get(0).getEntity());
+        assertEquals(CrudOperation.OperationType.UPDATE, pending.get(1).getOperation());
+    }
+
+    @Test
+    public void testOutboxRelayKeepsEntriesUntilPublished() throws Exception {
+        repositorio.setEnableOutbox(true);
+        repositorio.create(new TestEntity("Relay"));
+
+        try (var publisher = new RedisPublisher();
+             OutboxRelay relay = new OutboxRelay(database, publisher)) {
+            int relayed = relay.drain();
+            // Sem Redis a entrada permanece; com Redis ela é removida
+            assertEquals(1, relayed + database.getOutboxDao().countOf());
+        }
+    }
+
+    @Test
+    public void testOutboxRelayIgnoresUncommittedEntries() throws Exception {
+        repositorio.setEnableOutbox(true);
+        List<CrudOperation> publicadas = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch gravado = new CountDownLatch(1);
+        CountDownLatch desfazer = new CountDownLatch(1);
+
+        try (var publisher = new RedisPublisher() {
+                @Override
+                public void publishOperations(List<CrudOperation> ops) {
+                    publicadas.addAll(ops);
+                }
+            };
+             OutboxRelay relay = new OutboxRelay(database, publisher)) {
+            // outra thread grava no outbox pela conexão compartilhada e desfaz
+            CompletableFuture<Void> escritor = CompletableFuture.runAsync(() -> {
+                try {
+                    TransactionManager.callInTransaction(database.getConnection(), () -> {
+                        repositorio.create(new TestEntity("fantasma"));
+                        gravado.countDown();
+                        desfazer.await();
+                        throw new SQLException("rollback");
+                    });
+                } catch (SQLException e) {
+                    // esperado
+                }
+            });
+            assertTrue(gravado.await(5, TimeUnit.SECONDS));
+            assertEquals(0, relay.drain());
+            desfazer.countDown();
+            escritor.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(), publicadas);
+
+            repositorio.create(new TestEntity("Real"));
+            assertEquals(1, relay.drain());
+            assertEquals(1, publicadas.size());
+            assertTrue(publicadas.get(0).getData().contains("Real"));
+        }
+    }
+
+    @Test
+    public void testStream() {
+        repositorio.createAll(List.of(
+            new TestEntity("Stream 1"),
+            new TestEntity("Stream 2"),
+            new TestEntity("Stream 3")));
+
+        List<String> nomes;
+        try (Stream<TestEntity> entities = repositorio.stream(2)) {
+            nomes = entities.map(TestEntity::getNome).collect(Collectors.toList());
+        }
+
+        assertEquals(List.of("Stream 1", "Stream 2", "Stream 3"), nomes);
+    }
+
+    @Test
+    public void testForEach() {
+        repositorio.createAll(List.of(new TestEntity("A"), new TestEntity("B")));
+
+        List<String> nomes = new ArrayList<>();
+        repositorio.forEach(entity -> nomes.add(entity.getNome()));
+
+        assertEquals(List.of("A", "B"), nomes);
+    }
+
+    @Test
+    public void testLoadPage() {
+        List<TestEntity> entities = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            entities.add(new TestEntity("Página " + i));
+        }
+        repositorio.createAll(entities);
+
+        List<TestEntity> first = repositorio.loadPage(null, 2);
+        List<TestEntity> second = repositorio.loadPage(first.get(1).getId(), 2);
+        List<TestEntity> third = repositorio.loadPage(second.get(1).getId(), 2);
+
+        assertEquals(List.of("Página 1", "Página 2"), first.stream().map(TestEntity::getNome).collect(Collectors.toList()));
+        assertEquals(List.of("Página 3", "Página 4"), second.stream().map(TestEntity::getNome).collect(Collectors.toList()));
+        assertEquals(List.of("Página 5"), third.stream().map(TestEntity::getNome).collect(Collectors.toList()));
+        assertTrue(repositorio.loadPage(third.get(0).getId(), 2).isEmpty());
+    }
+
+    @Test
+    public void testLoadPageSortedByColumn() {
+        repositorio.createAll(List.of(
+            new TestEntity("C"), new TestEntity("A"), new TestEntity("B"), new TestEntity("A")));
+
+        List<String> nomes = new ArrayList<>();
+        List<TestEntity> page = repositorio.loadPage("nome", false, null, 3);
+        while (!page.isEmpty()) {
+            page.forEach(entity -> nomes.add(entity.getNome()));
+            page = repositorio.loadPage("nome", false, page.get(page.size() - 1), 3);
+        }
+
+        assertEquals(List.of("C", "B", "A", "A"), nomes);
+    }
+
+    @Test
+    public void testCachedLoadFromId() {
+        repositorio.enableCache(2);
+        TestEntity a = repositorio.create(new TestEntity("A"));
+        TestEntity b = repositorio.create(new TestEntity("B"));
+        TestEntity c = repositorio.create(new TestEntity("C"));
+
+        TestEntity first = repositorio.loadFromId(a.getId());
+        assertSame(first, repositorio.loadFromId(a.getId()));
+        repositorio.loadFromId(b.getId());
+        repositorio.loadFromId(c.getId());
+
+        EntityCache<Long, TestEntity> cache = repositorio.getCache();
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testCacheInvalidatedOnWrite() {
+        repositorio.enableCache(10);
+        TestEntity entity = repositorio.create(new TestEntity("Original"));
+        repositorio.loadFromId(entity.getId());
+
+        TestEntity changed = new TestEntity("Alterado");
+        changed.setId(entity.getId());
+        repositorio.update(changed);
+        assertEquals("Alterado", repositorio.loadFromId(entity.getId()).getNome());
+
+        repositorio.delete(changed);
+        assertNull(repositorio.loadFromId(entity.getId()));
+    }
+
+    @Test
+    public void testCacheInvalidatedWhenWriteFails() throws Exception {
+        repositorio.enableCache(10);
+        TestEntity entity = repositorio.create(new TestEntity("Original"));
+        Dao<TestEntity, Long> dao = DaoManager.createDao(database.getConnection(), TestEntity.class);
+        dao.executeRaw("CREATE TRIGGER falha BEFORE UPDATE ON test_entity "
+            + "BEGIN SELECT RAISE(ABORT, 'falha'); END");
+
+        // a instância em cache é alterada por quem chamou e o UPDATE falha
+        TestEntity cached = repositorio.loadFromId(entity.getId());
+        cached.setNome("Alterado");
+        assertThrows(SQLException.class,
+            () -> repositorio.write(CrudOperation.OperationType.UPDATE, cached));
+        TestEntity reloaded = repositorio.loadFromId(entity.getId());
+        assertNotSame(cached, reloaded);
+        assertEquals("Original", reloaded.getNome());
+
+        reloaded.setNome("Alterado");
+        assertEquals(0, repositorio.updateAll(List.of(reloaded)));
+        assertEquals("Original", repositorio.loadFromId(entity.getId()).getNome());
+    }
+
+    @Test
+    public void testCacheDiscardsLoadOverlappingInvalidation() {
+        EntityCache<Long, String> cache = new EntityCache<>(10);
+        // leitura antiga começa, uma escrita invalida, e a leitura termina depois
+        long version = cache.version();
+        cache.invalidate(1L);
+        assertFalse(cache.putIfUnchanged(1L, "antiga", version));
+        assertNull(cache.get(1L));
+
+        assertTrue(cache.putIfUnchanged(1L, "nova", cache.version()));
+        assertEquals("nova", cache.get(1L));
+    }
+
+    @Test
+    public void testSessionFlushesOnClose() throws Exception {
+        TestEntity existing = repositorio.create(new TestEntity("Existente"));
+        TestEntity toRemove = repositorio.create(new TestEntity("Remover"));
+
+        try (Session<TestEntity, Long> session = repositorio.openSession()) {
+            TestEntity loaded = session.find(existing.getId());
+            assertSame(loaded, session.find(existing.getId()));
+            loaded.setNome("Alterado na sessão");
+            session.markDirty(loaded);
+            session.persist(new TestEntity("Nova"));
+            session.remove(session.find(toRemove.getId()));
+
+            assertEquals(3, session.getPendingCount());
+            assertEquals("Existente", repositorio.loadFromId(existing.getId()).getNome());
+        }
+
+        assertEquals("Alterado na sessão", repositorio.loadFromId(existing.getId()).getNome());
+        assertNull(repositorio.loadFromId(toRemove.getId()));
+        assertEquals(2, repositorio.loadAll().size());
+    }
+
+    @Test
+    public void testSessionIsBounded() throws Exception {
+        try (Session<TestEntity, Long> session = repositorio.openSession(3)) {
+            for (int i = 0; i < 10; i++) {
+                session.persist(new TestEntity("Sessão " + i));
+                assertTrue(session.getPendingCount() < 3);
+                assertTrue(session.getTrackedCount() <= 3);
+            }
+        }
+        assertEquals(10, repositorio.loadAll().size());
+    }
+
+    @Test
+    public void testDatabaseOptionsThroughputProfile() throws Exception {
+        String dbName = "test_repositorio_wal.sqlite";
+        Database walDatabase = new Database(dbName, DatabaseOptions.throughput());
+        try {
+            Repositorio<TestEntity, Long> walRepositorio = new Repositorio<>(walDatabase, TestEntity.class);
+            walRepositorio.setEnableCrudPublishing(false);
+            TestEntity created = walRepositorio.create(new TestEntity("WAL"));
+            assertEquals("WAL", walRepositorio.loadFromId(created.getId()).getNome());
+
+            assertTrue(walDatabase.getConnection() instanceof JdbcPooledConnectionSource);
+            var dao = DaoManager.createDao(walDatabase.getConnection(), TestEntity.class);
+            assertEquals("wal", dao.queryRaw("PRAGMA journal_mode").getFirstResult()[0]);
+            assertEquals("1", dao.queryRaw("PRAGMA synchronous").getFirstResult()[0]);
+        } finally {
+            walDatabase.close();
+            for (String suffix : new String[] {"", "-wal", "-shm"}) {
+                new File(dbName + suffix).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testWriteExecutorGroupsConcurrentWrites() throws Exception {
+        repositorio.setEnableCrudPublishing(false);
+        WriteExecutor writer = database.enableWriteExecutor(64, 5);
+
+        int threads = 4;
+        int perThread = 25;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    repositorio.create(new TestEntity("T" + thread + "-" + i));
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, repositorio.loadAll().size());
+        assertEquals(threads * perThread, writer.getCommittedTasks());
+        assertTrue(writer.getCommittedGroups() <= writer.getCommittedTasks());
+    }
+
+    @Test
+    public void testWriteExecutorIsolatesFailingTask() throws Exception {
+        repositorio.setEnableCrudPublishing(false);
+        repositorio.loadAll();
+        WriteExecutor writer = database.enableWriteExecutor(16, 50);
+        var dao = DaoManager.createDao(database.getConnection(), TestEntity.class);
+
+        var ok1 = writer.submit(() -> dao.create(new TestEntity("A")));
+        var failed = writer.submit(() -> {
+            dao.create(new TestEntity("B"));
+            throw new SQLException("falha proposital");
+        });
+        var ok2 = writer.submit(() -> dao.create(new TestEntity("C")));
+
+        assertEquals(1, ok1.get());
+        assertEquals(1, ok2.get());
+        assertThrows(ExecutionException.class, failed::get);
+        List<String> nomes = repositorio.loadAll().stream()
+            .map(TestEntity::getNome).sorted().collect(Collectors.toList());
+        assertEquals(List.of("A", "C"), nomes);
+    }
+
+    @Test
+    public void testWriteExecutorRestoresVersionBeforeRetry() throws Exception {
+        Repositorio<TestVersionado, Long> repo = new Repositorio<>(database, TestVersionado.class);
+        repo.setEnableCrudPublishing(false);
+        TestVersionado v = new TestVersionado();
+        v.nome = "v0";
+        repo.create(v);
+        WriteExecutor writer = database.enableWriteExecutor(16, 5);
+
+        // prende a thread escritora para que o UPDATE e a falha caiam no mesmo grupo
+        CountDownLatch preso = new CountDownLatch(1);
+        CountDownLatch solto = new CountDownLatch(1);
+        writer.submit(() -> {
+            preso.countDown();
+            solto.await();
+            return 0;
+        });
+        assertTrue(preso.await(5, TimeUnit.SECONDS));
+        v.nome = "v1";
+        CompletableFuture<Void> update = CompletableFuture.runAsync(() -> {
+            try {
+                repo.updateOrThrow(v);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+        while (writer.getQueueSize() < 1) {
+            Thread.sleep(5);
+        }
+        CompletableFuture<Object> failed = writer.submit(() -> {
+            throw new SQLException("falha proposital");
+        });
+        solto.countDown();
+
+        update.get(5, TimeUnit.SECONDS);
+        assertThrows(ExecutionException.class, failed::get);
+        assertEquals(1, v.versao);
+        TestVersionado lido = repo.loadFromId(v.id);
+        assertEquals("v1", lido.nome);
+        assertEquals(1, lido.versao);
+    }
+
+    @Test
+    public void testWriteExecutorRejectsAfterClose() throws Exception {
+        WriteExecutor writer = database.enableWriteExecutor(16, 5);
+        writer.close();
+        assertThrows(ExecutionException.class, () -> writer.submit(() -> 1).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncRepositorio() throws Exception {
+        repositorio.setEnableCrudPublishing(false);
+        try (AsyncRepositorio<TestEntity, Long> async = new AsyncRepositorio<>(repositorio, 4)) {
+            List<TestEntity> created = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                created.add(async.create(new TestEntity("Async " + i)).get());
+            }
+            List<Long> ids = created.stream().map(TestEntity::getId).collect(Collectors.toList());
+
+            List<TestEntity> loaded = async.loadAllById(ids).get();
+            assertEquals(10, loaded.size());
+            assertEquals("Async 3", loaded.get(3).getNome());
+            assertEquals(10, async.loadAll().get().size());
+
+            var failure = assertThrows(ExecutionException.class,
+                () -> async.create(null).get());
+            assertTrue(failure.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    public void testFetchPlanLoadsAssociationsInBatch() {
+        repositorio.setEnableCrudPublishing(false);
+        TestEntity pai1 = repositorio.create(new TestEntity("Pai 1"));
+        TestEntity pai2 = repositorio.create(new TestEntity("Pai 2"));
+        Repositorio<TestChild, Long> filhos = new Repositorio<>(database, TestChild.class);
+        filhos.setEnableCrudPublishing(false);
+        List<TestChild> novos = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            novos.add(new TestChild(i % 2 == 0 ? pai1 : pai2));
+        }
+        filhos.createAll(novos);
+
+        List<TestChild> semPlano = filhos.loadAll();
+        assertNull(semPlano.get(0).getParent().getNome());
+
+        filhos.setFetchPlan("parent");
+        List<TestChild> comPlano = filhos.loadAll();
+        assertEquals("Pai 1", comPlano.get(0).getParent().getNome());
+        assertEquals("Pai 2", comPlano.get(1).getParent().getNome());
+        assertSame(comPlano.get(0).getParent(), comPlano.get(2).getParent());
+        assertEquals("Pai 2", filhos.loadPage(null, 2).get(1).getParent().getNome());
+
+        assertThrows(IllegalArgumentException.class, () -> filhos.setFetchPlan("id"));
+    }
+
+    record NomeProjetado(long id, String nome) {
+    }
+
+    @Test
+    public void testProject() {
+        repositorio.setEnableCrudPublishing(false);
+        TestEntity a = repositorio.create(new TestEntity("A"));
+        repositorio.create(new TestEntity(null));
+
+        List<NomeProjetado> nomes = repositorio.project(NomeProjetado.class, "id", "nome");
+        assertEquals(2, nomes.size());
+        assertEquals(new NomeProjetado(a.getId(), "A"), nomes.get(0));
+        assertNull(nomes.get(1).nome());
+
+        List<NomeProjetado> filtrados = repositorio.projectRaw(NomeProjetado.class,
+            "SELECT id, nome FROM test_entity WHERE nome = ?", "A");
+        assertEquals(List.of(new NomeProjetado(a.getId(), "A")), filtrados);
+
+        assertTrue(repositorio.project(NomeProjetado.class, "id").isEmpty());
+    }
+
+    @Test
+    public void testQueryFiltersInDatabaseAndReusesCompiledQuery() {
+        repositorio.setEnableCrudPublishing(false);
+        List<TestEntity> novas = new ArrayList<>();
+        for (String nome : new String[] {"Ana", "Bruno", "Carla", "Daniel", "Alice"}) {
+            novas.add(new TestEntity(nome));
+        }
+        repositorio.createAll(novas);
+        FieldRef<TestEntity, Long> id = FieldRef.of("id");
+        FieldRef<TestEntity, String> nome = FieldRef.of("nome");
+
+        List<String> comA = repositorio.query()
+            .where(nome.like("A%"))
+            .orderBy(nome, true)
+            .list().stream().map(TestEntity::getNome).collect(Collectors.toList());
+        assertEquals(List.of("Alice", "Ana"), comA);
+
+        assertEquals("Carla", repositorio.query().where(nome.eq("Carla")).first().getNome());
+        assertEquals("Daniel", repositorio.query().where(nome.eq("Daniel")).first().getNome());
+        assertEquals(2, repositorio.getCompiledQueries().size());
+
+        assertEquals(2, repositorio.query()
+            .where(nome.in("Bruno", "Daniel", "Zeca")).list().size());
+        assertEquals(3, repositorio.query()
+            .where(id.between(2L, 4L)).list().size());
+        assertEquals(2, repositorio.query()
+            .where(nome.eq("Ana").or(Condition.all(id.gt(4L), nome.like("%e")))).list().size());
+        assertTrue(repositorio.query().where(nome.in(List.of())).list().isEmpty());
+    }
+
+    @Test
+    public void testCreateIndexAndDiagnoseQueries() throws Exception {
+        repositorio.registerQuery("por nome", "SELECT * FROM test_entity WHERE nome = ?");
+        assertTrue(repositorio.diagnoseQueries().get(0).hasFullScan());
+
+        repositorio.createIndex("test_entity_nome_idx", false, "nome");
+        QueryPlan plano = repositorio.diagnoseQueries().get(0);
+        assertFalse(plano.hasFullScan(), plano.toString());
+        assertTrue(repositorio.explain("SELECT * FROM test_entity WHERE id = 1").steps().get(0).startsWith("SEARCH"));
+    }
+
+    @Test
+    public void testFullTextSearch() {
+        repositorio.setEnableCrudPublishing(false);
+        TestEntity jose = repositorio.create(new TestEntity("José da Silva"));
+        repositorio.enableFullTextSearch("nome");
+        repositorio.create(new TestEntity("Maria Silveira"));
+        TestEntity ana = repositorio.create(new TestEntity("Ana Souza"));
+
+        // Linha anterior à habilitação também é indexada; acentos ignorados
+        assertEquals(List.of(jose.getId()), ids(repositorio.search("jose sil", 10)));
+        assertEquals(2, repositorio.search("Silv", 10).size());
+        assertEquals(1, repositorio.search("silv", 1).size());
+
+        ana.setNome("Ana Lima");
+        repositorio.update(ana);
+        assertTrue(repositorio.search("souza", 10).isEmpty());
+        assertEquals(List.of(ana.getId()), ids(repositorio.search("lima", 10)));
+
+        repositorio.delete(jose);
+        assertEquals(1, repositorio.search("silv", 10).size());
+        assertTrue(repositorio.search("\" OR *", 10).isEmpty());
+    }
+
+    private static List<Long> ids(List<TestEntity> entities) {
+        return entities.stream().map(TestEntity::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testChangeFeedDeliversWritesToLocalListeners() throws Exception {
+        repositorio.setEnableCrudPublishing(false);
+        List<String> eventos = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch recebidos = new CountDownLatch(5);
+        ChangeFeed.Subscription inscricao = repositorio.subscribe((operacao, entidade) -> {
+            eventos.add(operacao.name());
+            recebidos.countDown();
+        });
+
+        TestEntity entidade = repositorio.create(new TestEntity("A"));
+        entidade.setNome("B");
+        repositorio.update(entidade);
+        repositorio.createAll(List.of(new TestEntity("C"), new TestEntity("D")));
+        repositorio.delete(entidade);
+
+        assertTrue(recebidos.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("CREATE", "UPDATE", "CREATE", "CREATE", "DELETE"), eventos);
+
+        inscricao.close();
+        repositorio.create(new TestEntity("E"));
+        Thread.sleep(50);
+        assertEquals(5, eventos.size());
+    }
+
+    @Test
+    public void testChangeCaptureDeliversAfterCommitIsVisible() throws Exception {
+        String captureDbName = "test_capture_pool.sqlite";
+        new File(captureDbName).delete();
+        DatabaseOptions options = DatabaseOptions.throughput();
+        options.setChangeCapture(true);
+        Database captureDb = new Database(captureDbName, options);
+        try {
+            Repositorio<TestEntity, Long> repo = new Repositorio<>(captureDb, TestEntity.class);
+            repo.setEnableCrudPublishing(false);
+            List<CapturedChange<TestEntity>> semEntidade = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch entregues = new CountDownLatch(400);
+            captureDb.getChangeCapture().subscribe(TestEntity.class, lote -> {
+                for (CapturedChange<TestEntity> change : lote) {
+                    try {
+                        if (change.getEntity() == null)
+                            semEntidade.add(change);
+                    } catch (SQLException e) {
+                        semEntidade.add(change);
+                    }
+                    entregues.countDown();
+                }
+            });
+
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tarefas.add(pool.submit(() -> {
+                    for (int i = 0; i < 100; i++)
+                        repo.create(new TestEntity("Visivel " + i));
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas)
+                tarefa.get(30, TimeUnit.SECONDS);
+            pool.shutdown();
+
+            assertTrue(entregues.await(10, TimeUnit.SECONDS));
+            assertEquals(List.of(), semEntidade);
+        } finally {
+            captureDb.close();
+            new File(captureDbName).delete();
+        }
+    }
+
+    @Test
+    public void testChangeCapturePublishesEachChangeOnce() throws Exception {
+        String captureDbName = "test_capture_publicacao.sqlite";
+        new File(captureDbName).delete();
+        DatabaseOptions options = DatabaseOptions.defaults();
+        options.setChangeCapture(true);
+        Database captureDb = new Database(captureDbName, options);
+        try {
+            BlockingQueue<String> publicadasA = new LinkedBlockingQueue<>();
+            BlockingQueue<String> publicadasB = new LinkedBlockingQueue<>();
+            Repositorio<TestEntity, Long> a = new Repositorio<>(captureDb, TestEntity.class);
+            Repositorio<TestEntity, Long> b = new Repositorio<>(captureDb, TestEntity.class);
+            a.setCrudPublisher(gravador(publicadasA));
+            b.setCrudPublisher(gravador(publicadasB));
+            a.setEnableCrudPublishing(true);
+            b.setEnableCrudPublishing(true);
+
+            // duas inscrições na mesma tabela: uma só publicação por alteração
+            b.create(new TestEntity("um"));
+            assertTrue(publicadasA.poll(5, TimeUnit.SECONDS).contains("um"));
+            // o lote seguinte só chega depois de o anterior ser todo entregue
+            a.create(new TestEntity("dois"));
+            assertTrue(publicadasA.poll(5, TimeUnit.SECONDS).contains("dois"));
+            assertEquals(0, publicadasA.size());
+            assertEquals(0, publicadasB.size());
+
+            // quem publicava desliga: o outro assume
+            a.setEnableCrudPublishing(false);
+            a.create(new TestEntity("tres"));
+            assertTrue(publicadasB.poll(5, TimeUnit.SECONDS).contains("tres"));
+
+            // ninguém publica: a alteração não sai
+            b.setEnableCrudPublishing(false);
+            a.create(new TestEntity("quatro"));
+            b.setEnableCrudPublishing(true);
+            a.create(new TestEntity("cinco"));
+            assertTrue(publicadasB.poll(5, TimeUnit.SECONDS).contains("cinco"));
+            assertEquals(0, publicadasA.size());
+            assertEquals(0, publicadasB.size());
+        } finally {
+            captureDb.close();
+            new File(captureDbName).delete();
+        }
+    }
+
+    /** Publicador que só guarda o {@code data} de cada operação. */
+    private static CrudPublisher gravador(BlockingQueue<String> publicadas) {
+        return new CrudPublisher() {
+            @Override
+            public CompletionStage<?> publishOperationAsync(CrudOperation op) {
+                publicadas.add(op.getData());
+                return CompletableFuture.completedFuture(1L);
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+    }
+
+    @Test
+    public void testChangeCaptureSeesRawWritesAndCoalescesTransactions() throws Exception {
+        String captureDbName = "test_capture.sqlite";
+        new File(captureDbName).delete();
+        DatabaseOptions options = DatabaseOptions.defaults();
+        options.setChangeCapture(true);
+        Database captureDb = new Database(captureDbName, options);
+        try {
+            Repositorio<TestEntity, Long> repo = new Repositorio<>(captureDb, TestEntity.class);
+            repo.setEnableCrudPublishing(false);
+            BlockingQueue<List<CapturedChange<TestEntity>>> lotes =
+                new LinkedBlockingQueue<>();
+            captureDb.getChangeCapture().subscribe(TestEntity.class, lotes::add);
+            Dao<TestEntity, Long> dao =
+                DaoManager.createDao(captureDb.getConnection(), TestEntity.class);
+
+            // SQL bruto em autocommit também é capturado
+            dao.executeRaw("INSERT INTO test_entity (nome) VALUES ('bruto')");
+            List<CapturedChange<TestEntity>> lote = lotes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(lote);
+            assertEquals(1, lote.size());
+            assertEquals(CrudOperation.OperationType.CREATE, lote.get(0).getType());
+            assertEquals("bruto", lote.get(0).getEntity().getNome());
+            long bruto = lote.get(0).getRowId();
+
+            // várias alterações da mesma linha viram uma; linha criada e removida some
+            TransactionManager.callInTransaction(captureDb.getConnection(), () -> {
+                TestEntity x = repo.create(new TestEntity("X"));
+                x.setNome("X2");
+                repo.update(x);
+                repo.delete(repo.create(new TestEntity("Y")));
+                dao.executeRaw("UPDATE test_entity SET nome = 'bruto2' WHERE id = " + bruto);
+                return null;
+            });
+            lote = lotes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(lote);
+            assertEquals(2, lote.size());
+            assertEquals(CrudOperation.OperationType.CREATE, lote.get(0).getType());
+            assertEquals("X2", lote.get(0).getEntity().getNome());
+            assertEquals(CrudOperation.OperationType.UPDATE, lote.get(1).getType());
+            assertEquals(bruto, lote.get(1).getRowId());
+
+            // rollback não emite nada: o próximo lote é o DELETE seguinte
+            assertThrows(SQLException.class, () ->
+                TransactionManager.callInTransaction(captureDb.getConnection(), () -> {
+                    dao.executeRaw("INSERT INTO test_entity (nome) VALUES ('desfeito')");
+                    throw new SQLException("rollback");
+                }));
+            dao.executeRaw("DELETE FROM test_entity WHERE id = " + bruto);
+            lote = lotes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(lote);
+            assertEquals(1, lote.size());
+            assertEquals(CrudOperation.OperationType.DELETE, lote.get(0).getType());
+            assertNull(lote.get(0).getEntity());
+        } finally {
+            captureDb.close();
+            new File(captureDbName).delete();
+        }
+    }
+
+    @Test
+    public void testDirtyCheckingUpdatesOnlyChangedColumns() throws Exception {
+        repositorio.setEnableCrudPublishing(false);
+        repositorio.enableDirtyChecking(100);
+        List<Set<String>> campos = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch recebido = new CountDownLatch(1);
+        ChangeFeed.Subscription inscricao = repositorio.subscribe(new ChangeListener<TestEntity>() {
+            @Override
+            public void onChange(CrudOperation.OperationType operacao, TestEntity entidade) {
+            }
+
+            @Override
+            public void onChange(CrudOperation.OperationType operacao, TestEntity entidade,
+                                 Set<String> alterados) {
+                if (operacao == CrudOperation.OperationType.UPDATE) {
+                    campos.add(alterados);
+                    recebido.countDown();
+                }
+            }
+        });
+        Dao<TestEntity, Long> dao =
+            DaoManager.createDao(database.getConnection(), TestEntity.class);
+
+        TestEntity entidade = repositorio.create(new TestEntity("A"));
+        // sem alterações, nenhum UPDATE é enviado: a mudança feita por fora permanece
+        dao.executeRaw("UPDATE test_entity SET nome = 'externo' WHERE id = " + entidade.getId());
+        assertEquals(0, repositorio.write(CrudOperation.OperationType.UPDATE, entidade));
+        assertEquals("externo", dao.queryForId(entidade.getId()).getNome());
+
+        TestEntity lida = repositorio.loadFromId(entidade.getId());
+        lida.setNome("B");
+        assertEquals(1, repositorio.write(CrudOperation.OperationType.UPDATE, lida));
+        assertEquals("B", dao.queryForId(entidade.getId()).getNome());
+        assertTrue(recebido.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(Set.of("nome")), campos);
+        inscricao.close();
+
+        // UPDATE desfeito pela transação de quem chamou: a nova tentativa grava
+        lida.setNome("C");
+        assertThrows(SQLException.class, () ->
+            TransactionManager.callInTransaction(database.getConnection(), () -> {
+                repositorio.write(CrudOperation.OperationType.UPDATE, lida);
+                throw new SQLException("rollback");
+            }));
+        assertEquals("B", dao.queryForId(entidade.getId()).getNome());
+        assertEquals(1, repositorio.write(CrudOperation.OperationType.UPDATE, lida));
+        assertEquals("C", dao.queryForId(entidade.getId()).getNome());
+    }
+
+    @Test
+    public void testOptimisticConcurrencyWithVersionColumn() throws Exception {
+        String versionDbName = "test_versao.sqlite";
+        new File(versionDbName).delete();
+        Database versionDb = new Database(versionDbName, DatabaseOptions.throughput());
+        try {
+            Dao<TestVersionado, Long> dao =
+                DaoManager.createDao(versionDb.getConnection(), TestVersionado.class);
+            // tabela criada antes do campo de versão: a coluna é acrescentada
+            dao.executeRaw("CREATE TABLE test_versionado (id INTEGER PRIMARY KEY AUTOINCREMENT, nome VARCHAR, contador INTEGER)");
+            Repositorio<TestVersionado, Long> repo = new Repositorio<>(versionDb, TestVersionado.class);
+            repo.setEnableCrudPublishing(false);
+            dao.executeRaw("INSERT INTO test_versionado (nome, contador) VALUES ('antigo', 0)");
+
+            TestVersionado a = dao.queryForId(1L);
+            TestVersionado b = dao.queryForId(1L);
+            assertEquals(0, a.versao);
+            a.nome = "A";
+            repo.updateOrThrow(a);
+            assertEquals(1, a.versao);
+
+            b.nome = "B";
+            OptimisticLockException conflito = assertThrows(OptimisticLockException.class, () -> repo.updateOrThrow(b));
+            assertEquals(1L, conflito.getId());
+            assertEquals("A", dao.queryForId(1L).nome);
+
+            // escritores concorrentes: nenhum incremento se perde
+            int threads = 4;
+            int incrementos = 25;
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tarefas.add(pool.submit(() -> {
+                    for (int i = 0; i < incrementos; i++) {
+                        repo.updateWithRetry(1L, e -> e.contador++, 1000);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get(30, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+            TestVersionado fim = dao.queryForId(1L);
+            assertEquals(threads * incrementos, fim.contador);
+            assertEquals(1 + threads * incrementos, fim.versao);
+        } finally {
+            versionDb.close();
+            new File(versionDbName).delete();
+            new File(versionDbName + "-wal").delete();
+            new File(versionDbName + "-shm").delete();
+        }
+    }
+
+    @Test
+    public void testIdAllocationReservesBlocksAndBatchesInserts() throws Exception {
+        Repositorio<TestAlocado, Long> repo = new Repositorio<>(database, TestAlocado.class);
+        repo.setEnableCrudPublishing(false);
+        Dao<TestAlocado, Long> dao =
+            DaoManager.createDao(database.getConnection(), TestAlocado.class);
+        dao.executeRaw("INSERT INTO test_alocado (nome) VALUES ('gerado')");
+        assertThrows(IllegalStateException.class, () -> repositorio.enableIdAllocation(10));
+        repo.enableIdAllocation(10);
+
+        List<TestAlocado> lote = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            lote.add(new TestAlocado("lote" + i));
+        }
+        assertEquals(25, repo.createAll(lote));
+        assertEquals(2L, lote.get(0).id);
+        assertEquals(26L, lote.get(24).id);
+        assertEquals(3, repo.getIdAllocator().getReservedBlocks());
+
+        // um INSERT com AUTOINCREMENT, de outro escritor, não cai no bloco reservado
+        dao.executeRaw("INSERT INTO test_alocado (nome) VALUES ('externo')");
+        assertEquals(32L, dao.queryRawValue("SELECT MAX(id) FROM test_alocado"));
+        TestAlocado avulso = repo.create(new TestAlocado("avulso"));
+        assertEquals(27L, avulso.id);
+        assertEquals("avulso", dao.queryForId(27L).nome);
+        assertEquals(28, dao.countOf());
+    }
+
+    @Test
+    public void testTransactionOfAnotherThreadDoesNotDisableIdAllocation() throws Exception {
+        Repositorio<TestAlocado, Long> repo = new Repositorio<>(database, TestAlocado.class);
+        repo.setEnableCrudPublishing(false);
+        Dao<TestAlocado, Long> dao =
+            DaoManager.createDao(database.getConnection(), TestAlocado.class);
+        repo.enableIdAllocation(10);
+        assertEquals(1L, repo.create(new TestAlocado("primeiro")).id);
+        // o AUTOINCREMENT fica depois do bloco reservado (1 a 10)
+        dao.executeRaw("INSERT INTO test_alocado (nome) VALUES ('externo')");
+        assertEquals(11L, dao.queryRawValue("SELECT MAX(id) FROM test_alocado"));
+
+        // outra thread abre uma transação na mesma conexão e a mantém aberta
+        CountDownLatch aberta = new CountDownLatch(1);
+        CountDownLatch fechar = new CountDownLatch(1);
+        ExecutorService outra = Executors.newSingleThreadExecutor();
+        Future<?> transacao = outra.submit(() ->
+            TransactionManager.callInTransaction(database.getConnection(), () -> {
+                aberta.countDown();
+                fechar.await(5, TimeUnit.SECONDS);
+                return null;
+            }));
+        try {
+            assertTrue(aberta.await(5, TimeUnit.SECONDS));
+            assertEquals(2L, repo.create(new TestAlocado("durante")).id, "Chave não veio do bloco reservado");
+        } finally {
+            fechar.countDown();
+            transacao.get(5, TimeUnit.SECONDS);
+            outra.shutdown();
+        }
+        assertEquals("durante", dao.queryForId(2L).nome);
+    }
+
+    @Test
+    public void testChangeFeedWrapsAroundRingBuffer() throws Exception {
+        try (ChangeFeed feed = new ChangeFeed(8)) {
+            int total = 10_000;
+            long[] soma = new long[1];
+            CountDownLatch fim = new CountDownLatch(1);
+            feed.subscribe(Integer.class, (operacao, valor) -> {
+                soma[0] += valor;
+                if (valor == total)
+                    fim.countDown();
+            });
+            feed.subscribe(String.class, (operacao, valor) -> fail("tipo não inscrito"));
+            for (int i = 1; i <= total; i++) {
+                feed.publish(this, CrudOperation.OperationType.CREATE, i);
+            }
+            assertTrue(fim.await(5, TimeUnit.SECONDS));
+            assertEquals((long) total * (total + 1) / 2, soma[0]);
+        }
+    }
+
+    @Test
+    public void testChangeFeedCloseDeliversPendingEvents() throws Exception {
+        List<Integer> recebidos = Collections.synchronizedList(new ArrayList<>());
+        ChangeFeed feed = new ChangeFeed(64);
+        feed.subscribe(Integer.class, (operacao, valor) -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            recebidos.add(valor);
+        });
+        for (int i = 0; i < 50; i++) {
+            feed.publish(this, CrudOperation.OperationType.CREATE, i);
+        }
+        feed.close();
+        assertEquals(50, recebidos.size());
+    }
+
+    @Test
+    public void testChangeFeedListenerPublishingDoesNotDeadlock() throws Exception {
+        try (ChangeFeed feed = new ChangeFeed(2)) {
+            List<Integer> recebidos = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch fim = new CountDownLatch(1);
+            feed.subscribe(Integer.class, (operacao, valor) -> {
+                recebidos.add(valor);
+                if (valor == 0) {
+                    // mais eventos que o buffer comporta, publicados pela thread do feed
+                    for (int i = 1; i <= 5; i++) {
+                        feed.publish(this, CrudOperation.OperationType.CREATE, i);
+                    }
+                }
+                if (valor == 5) {
+                    fim.countDown();
+                }
+            });
+            feed.publish(this, CrudOperation.OperationType.CREATE, 0);
+            assertTrue(fim.await(5, TimeUnit.SECONDS), "Feed travado por publicação de um ouvinte");
+            assertEquals(List.of(0, 1, 2, 3, 4, 5), recebidos);
+        }
+    }
+
+    @Test
+    public void testRedisEventCarriesStateAtWriteTime() throws Exception {
+        repositorio.setEnableCrudPublishing(false);
+        List<CrudOperation> publicadas = Collections.synchronizedList(new ArrayList<>());
+        CrudPublisher gravador = new CrudPublisher() {
+            @Override
+            public CompletionStage<?> publishOperationAsync(CrudOperation op) {
+                publicadas.add(op);
+                return CompletableFuture.completedFuture(1L);
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+        // segura a thread do feed para que a entidade mude antes da entrega
+        CountDownLatch solto = new CountDownLatch(1);
+        ChangeFeed.Subscription trava = database.getChangeFeed().subscribe(TestEntity.class, (operacao, entidade) -> {
+            try {
+                solto.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Repositorio<TestEntity, Long> repo = new Repositorio<>(database, TestEntity.class);
+        repo.setCrudPublisher(gravador);
+        try {
+            TestEntity entidade = repo.create(new TestEntity("antes"));
+            entidade.setNome("depois");
+            solto.countDown();
+            long limite = System.currentTimeMillis() + 5000;
+            while (publicadas.isEmpty() && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, publicadas.size());
+            assertTrue(publicadas.get(0).getData().contains("antes"), publicadas.get(0).getData());
+        } finally {
+            trava.close();
+            repo.setEnableCrudPublishing(false);
+        }
+    }
+
+    @Test
+    public void testBatchingPublisherFramesBySizeAndTimeThroughRepositorio() throws Exception {
+        List<byte[]> quadrosEnviados = Collections.synchronizedList(new ArrayList<>());
+        RedisPublisher redis = new RedisPublisher("redis://localhost:6379", CrudTransport.PUBSUB,
+                CrudOperationCodec.Format.JSON) {
+            @Override
+            public CompletionStage<Long> publishMessageAsync(byte[] message) {
+                quadrosEnviados.add(message);
+                return CompletableFuture.completedFuture(1L);
+            }
+        };
+        BatchingPublisher quadros = new BatchingPublisher(redis, 10, 500);
+        Repositorio<TestEntity, Long> repo = new Repositorio<>(database, TestEntity.class);
+        repo.setCrudPublisher(quadros);
+        try {
+            List<TestEntity> lote = new ArrayList<>();
+            for (int i = 0; i < 25; i++) {
+                lote.add(new TestEntity("quadro" + i));
+            }
+            repo.createAll(lote);
+            long limite = System.currentTimeMillis() + 5000;
+            while (quadros.getEvents() < 25 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            // o fim de cada lote do feed não força o envio do quadro
+            assertEquals(0, quadros.getFlushes(BatchingPublisher.FlushReason.FLUSH));
+            assertEquals(2, quadros.getFlushes(BatchingPublisher.FlushReason.SIZE));
+            assertEquals(1, quadros.getFlushes(BatchingPublisher.FlushReason.TIME));
+            assertEquals(3, quadrosEnviados.size());
+            assertEquals(25, quadros.getEvents());
+        } finally {
+            repo.setEnableCrudPublishing(false);
+            quadros.close();
+        }
+    }
 }
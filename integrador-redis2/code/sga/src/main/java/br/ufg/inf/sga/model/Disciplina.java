@@ -7,7 +7,7 @@ import com.j256.ormlite.field.DataType;
 @DatabaseTable(tableName="disciplina")
 public class Disciplina {
     
-    @DatabaseField(generatedId = true)
+    @DatabaseField(generatedId = true, allowGeneratedIdInsert = true)
     private int id;
         
     @DatabaseField(dataType=DataType.STRING)    
@@ -18,6 +18,10 @@ public class Disciplina {
     
     @DatabaseField(dataType=DataType.STRING)        
     private String ementa;
+
+    // Versão para concorrência otimista, incrementada a cada UPDATE
+    @DatabaseField(version = true)
+    private int versao;
     
     @Override
     public String toString() {
@@ -66,6 +70,11 @@ public class Disciplina {
         this.ementa = ementa;
     }//end method setEmenta
 
+    /**GET Method Propertie versao*/
+    public int getVersao(){
+        return this.versao;
+    }//end method getVersao
+
 //End GetterSetterExtension Source Code
 
 
@@ -7,7 +7,7 @@ import com.j256.ormlite.field.DataType;
 @DatabaseTable(tableName="estudante")
 public class Estudante {
     
-    @DatabaseField(generatedId = true)
+    @DatabaseField(generatedId = true, allowGeneratedIdInsert = true)
     private int id;
         
     @DatabaseField(dataType=DataType.STRING, canBeNull = true)    
@@ -16,8 +16,12 @@ public class Estudante {
     @DatabaseField(dataType=DataType.STRING, canBeNull = true)        
     private String dataDeNascimento;
     
-    @DatabaseField(dataType=DataType.INTEGER, canBeNull = true)        
+    @DatabaseField(dataType=DataType.INTEGER, canBeNull = true, index = true)
     private int matricula;
+
+    // Versão para concorrência otimista, incrementada a cada UPDATE
+    @DatabaseField(version = true)
+    private int versao;
     
     @Override
     public String toString() {
@@ -70,6 +74,11 @@ public class Estudante {
         this.matricula = matricula;
     }//end method setMatricula
 
+    /**GET Method Propertie versao*/
+    public int getVersao(){
+        return this.versao;
+    }//end method getVersao
+
 //End GetterSetterExtension Source Code
 
 
@@ -3,23 +3,34 @@ package br.ufg.inf.sga.model;
 import com.j256.ormlite.table.DatabaseTable;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.DataType;
+import br.ufg.inf.repositorio.FieldRef;
 
 
 @DatabaseTable(tableName="matricula")
 public class Matricula {
+
+    // Colunas usadas em consultas (Repositorio.query())
+    public static final FieldRef<Matricula, Integer> ID = FieldRef.of("id");
+    public static final FieldRef<Matricula, Estudante> ESTUDANTE = FieldRef.of("estudante_id");
+    public static final FieldRef<Matricula, Turma> TURMA = FieldRef.of("turma_id");
+    public static final FieldRef<Matricula, StatusMatricula> STATUS = FieldRef.of("status");
     
-    @DatabaseField(generatedId = true)
+    @DatabaseField(generatedId = true, allowGeneratedIdInsert = true)
     private int id;
    
-    @DatabaseField(columnName = "estudante_id", canBeNull = false, foreign = true, foreignAutoRefresh = true)
+    @DatabaseField(columnName = "estudante_id", canBeNull = false, foreign = true, index = true)
     private Estudante estudante;    
     
-    @DatabaseField(columnName = "turma_id", canBeNull = false, foreign = true, foreignAutoRefresh = true)
+    @DatabaseField(columnName = "turma_id", canBeNull = false, foreign = true, index = true)
     private Turma turma;
     
     @DatabaseField(dataType=DataType.ENUM_STRING)
     private StatusMatricula status;
 
+    // Versão para concorrência otimista, incrementada a cada UPDATE
+    @DatabaseField(version = true)
+    private int versao;
+
 //Start GetterSetterExtension Source Code
 
     /**GET Method Propertie id*/
@@ -61,6 +72,11 @@ public class Matricula {
     public void setStatus(StatusMatricula status) {
         this.status = status;
     }
+
+    /**GET Method Propertie versao*/
+    public int getVersao(){
+        return this.versao;
+    }//end method getVersao
 //End GetterSetterExtension Source Code
 
 
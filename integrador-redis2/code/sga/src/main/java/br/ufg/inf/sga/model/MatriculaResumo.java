@@ -0,0 +1,26 @@
+package br.ufg.inf.sga.model;
+
+import java.util.List;
+
+/**
+ * Linha da listagem de matrículas: apenas os nomes e códigos exibidos,
+ * sem carregar Estudante, Turma e Disciplina inteiros (com ementa).
+ */
+public record MatriculaResumo(int id, String estudante, String turma, String disciplina, StatusMatricula status) {
+
+    private static final String SQL =
+        "SELECT m.id, e.nomeCompleto, t.codigo, d.titulo, m.status"
+        + " FROM matricula m"
+        + " JOIN estudante e ON e.id = m.estudante_id"
+        + " JOIN turma t ON t.id = m.turma_id"
+        + " JOIN disciplina d ON d.id = t.disciplina_id"
+        + " ORDER BY m.id";
+
+    /**
+     * Lista todas as matrículas em uma única consulta.
+     * @return Resumos das matrículas
+     */
+    public static List<MatriculaResumo> listar() {
+        return Repositorios.MATRICULA.projectRaw(MatriculaResumo.class, SQL);
+    }
+}
@@ -13,4 +13,35 @@ public class Repositorios {
         new Repositorio<>(database, Disciplina.class);   
     public static final Repositorio<Turma, Integer> TURMA =
         new Repositorio<>(database, Turma.class);
+
+    // Associações carregadas em lote (IN) em vez de uma consulta por linha
+    static {
+        MATRICULA.setFetchPlan("estudante", "turma", "turma.disciplina");
+        TURMA.setFetchPlan("disciplina");
+        ESTUDANTE.enableFullTextSearch("nomeCompleto");
+    }
+
+    // UPDATE grava e publica só os campos alterados
+    static {
+        ESTUDANTE.enableDirtyChecking(1000);
+        MATRICULA.enableDirtyChecking(1000);
+        TURMA.enableDirtyChecking(1000);
+    }
+
+    // Chaves reservadas em blocos: createAll grava em um único batch JDBC
+    static {
+        ESTUDANTE.enableIdAllocation(100);
+        MATRICULA.enableIdAllocation(100);
+        DISCIPLINA.enableIdAllocation(100);
+        TURMA.enableIdAllocation(100);
+    }
+
+    // Consultas frequentes, verificadas por diagnoseQueries()
+    static {
+        ESTUDANTE.registerQuery("estudante por matrícula", "SELECT * FROM estudante WHERE matricula = ?");
+        TURMA.registerQuery("turma por código", "SELECT * FROM turma WHERE codigo = ?");
+        TURMA.registerQuery("turmas da disciplina", "SELECT * FROM turma WHERE disciplina_id = ?");
+        MATRICULA.registerQuery("matrículas do estudante", "SELECT * FROM matricula WHERE estudante_id = ?");
+        MATRICULA.registerQuery("matrículas da turma", "SELECT * FROM matricula WHERE turma_id = ?");
+    }
 }
\ No newline at end of file
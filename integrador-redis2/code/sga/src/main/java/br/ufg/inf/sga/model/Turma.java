@@ -3,17 +3,23 @@ package br.ufg.inf.sga.model;
 import com.j256.ormlite.table.DatabaseTable;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.DataType;
+import br.ufg.inf.repositorio.FieldRef;
 
 @DatabaseTable(tableName = "turma")
 public class Turma {
 
-    @DatabaseField(generatedId = true)
+    // Colunas usadas em consultas (Repositorio.query())
+    public static final FieldRef<Turma, Integer> ID = FieldRef.of("id");
+    public static final FieldRef<Turma, String> CODIGO = FieldRef.of("codigo");
+    public static final FieldRef<Turma, Disciplina> DISCIPLINA = FieldRef.of("disciplina_id");
+
+    @DatabaseField(generatedId = true, allowGeneratedIdInsert = true)
     private int id;
 
-    @DatabaseField(dataType = DataType.STRING)
+    @DatabaseField(dataType = DataType.STRING, index = true)
     private String codigo;
 
-    @DatabaseField(canBeNull = false, foreign = true, foreignAutoRefresh = true)
+    @DatabaseField(canBeNull = false, foreign = true, index = true)
     private Disciplina disciplina;
 
     // Este campo é apenas informativo e não deve ser persistido
@@ -23,6 +29,10 @@ public class Turma {
     @DatabaseField(dataType = DataType.INTEGER)
     private int vagasDisponiveis;
 
+    // Versão para concorrência otimista, incrementada a cada UPDATE
+    @DatabaseField(version = true)
+    private int versao;
+
     // GET/SET ID
     public int getId() {
         return this.id;
@@ -67,4 +77,9 @@ public class Turma {
     public void setVagasDisponiveis(int vagasDisponiveis) {
         this.vagasDisponiveis = vagasDisponiveis;
     }
+
+    // GET Versão
+    public int getVersao() {
+        return this.versao;
+    }
 }
@@ -0,0 +1,156 @@
+package br.ufg.inf.sga.model;
+
+import br.ufg.inf.repositorio.Database;
+import br.ufg.inf.repositorio.DatabaseOptions;
+import br.ufg.inf.repositorio.Repositorio;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compara os perfis de {@link DatabaseOptions} sobre as tabelas do SGA.
+ *
+ * Para cada perfil mede: inserções de estudantes em autocommit (um commit
+ * por linha), carga de matrículas em lote e leituras concorrentes de
+ * matrículas enquanto uma thread continua escrevendo.
+ *
+ * Não é executado pelo surefire. Para rodar:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=br.ufg.inf.sga.model.DatabaseOptionsBenchmark \
+ *     -Dexec.classpathScope=test -Dexec.args="2000"
+ * </pre>
+ */
+public class DatabaseOptionsBenchmark {
+
+    private static final String DB_NAME = "benchmark_sga.sqlite";
+    private static final int READER_THREADS = 4;
+    private static final long READ_MILLIS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        System.out.printf("%-12s %16s %16s %16s%n",
+            "perfil", "estudantes/s", "matriculas/s", "leituras/s");
+        run("defaults", DatabaseOptions.defaults(), rows);
+        run("throughput", DatabaseOptions.throughput(), rows);
+        run("durability", DatabaseOptions.durability(), rows);
+    }
+
+    private static void run(String name, DatabaseOptions options, int rows) throws Exception {
+        deleteFiles();
+        Database database = new Database(DB_NAME, options);
+        try {
+            Repositorio<Estudante, Integer> estudantes = repositorio(database, Estudante.class);
+            Repositorio<Disciplina, Integer> disciplinas = repositorio(database, Disciplina.class);
+            Repositorio<Turma, Integer> turmas = repositorio(database, Turma.class);
+            Repositorio<Matricula, Integer> matriculas = repositorio(database, Matricula.class);
+
+            Disciplina disciplina = new Disciplina();
+            disciplina.setCodigo("BENCH");
+            disciplinas.create(disciplina);
+            Turma turma = new Turma();
+            turma.setCodigo("BENCH-A");
+            turma.setDisciplina(disciplina);
+            turmas.create(turma);
+
+            // Autocommit: o custo é dominado pelo journal e pelo synchronous
+            List<Estudante> criados = new ArrayList<>(rows);
+            long start = System.nanoTime();
+            for (int i = 0; i < rows; i++) {
+                Estudante e = new Estudante();
+                e.setNomeCompleto("Estudante " + i);
+                e.setMatricula(100000 + i);
+                criados.add(estudantes.create(e));
+            }
+            double estudantesPorSegundo = rows / seconds(start);
+
+            // Carga em lote: uma transação
+            List<Matricula> lote = new ArrayList<>(rows);
+            for (Estudante e : criados) {
+                Matricula m = new Matricula();
+                m.setEstudante(e);
+                m.setTurma(turma);
+                m.setStatus(StatusMatricula.CONFIRMADA);
+                lote.add(m);
+            }
+            start = System.nanoTime();
+            matriculas.createAll(lote);
+            double matriculasPorSegundo = rows / seconds(start);
+
+            double leiturasPorSegundo = concurrentReads(matriculas, estudantes, rows);
+
+            System.out.printf("%-12s %16.0f %16.0f %16.0f%n",
+                name, estudantesPorSegundo, matriculasPorSegundo, leiturasPorSegundo);
+        } finally {
+            database.close();
+            deleteFiles();
+        }
+    }
+
+    /**
+     * Leituras por ID em várias threads enquanto uma thread atualiza
+     * estudantes continuamente.
+     */
+    private static double concurrentReads(Repositorio<Matricula, Integer> matriculas,
+                                          Repositorio<Estudante, Integer> estudantes,
+                                          int rows) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(READER_THREADS + 1);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        tasks.add(pool.submit(() -> {
+            int i = 0;
+            while (running.get()) {
+                Estudante e = estudantes.loadFromId(1 + (i++ % rows));
+                if (e != null) {
+                    e.setNomeCompleto("Atualizado " + i);
+                    estudantes.update(e);
+                }
+            }
+        }));
+        for (int t = 0; t < READER_THREADS; t++) {
+            final int seed = t;
+            tasks.add(pool.submit(() -> {
+                int i = seed;
+                while (running.get()) {
+                    matriculas.loadFromId(1 + (i++ % rows));
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        Thread.sleep(READ_MILLIS);
+        running.set(false);
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        return reads.get() / seconds(start);
+    }
+
+    private static <T> Repositorio<T, Integer> repositorio(Database database, Class<T> entityClass) {
+        Repositorio<T, Integer> repositorio = new Repositorio<>(database, entityClass);
+        repositorio.setEnableCrudPublishing(false);
+        return repositorio;
+    }
+
+    private static double seconds(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    private static void deleteFiles() {
+        for (String suffix : new String[] {"", "-wal", "-shm", "-journal"}) {
+            new File(DB_NAME + suffix).delete();
+        }
+    }
+}
@@ -56,6 +56,11 @@ public class EstudanteTest
 
         int idEstudante = estudanteSalvo.getId();
 
+        assertTrue(
+            Repositorios.ESTUDANTE.search("joao silv", 50).stream().anyMatch(e -> e.getId() == idEstudante),
+            "Estudante não encontrado pela busca por nome"
+        );
+
         Repositorios.ESTUDANTE.delete(estudanteSalvo);
 
         assertNull(
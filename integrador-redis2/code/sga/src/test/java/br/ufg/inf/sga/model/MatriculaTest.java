@@ -5,6 +5,15 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import br.ufg.inf.repositorio.OptimisticLockException;
+import br.ufg.inf.repositorio.QueryPlan;
+
 /**
  * Classe de teste para Matricula.
  * Testa criação e remoção de matrículas.
@@ -13,6 +22,8 @@ public class MatriculaTest
 {
     private Estudante estudanteCriado;
     private Disciplina disciplinaCriada;
+    private Turma turmaDeTeste;
+    private Matricula matriculaDeTeste;
 
     @BeforeEach
     public void setUp()
@@ -33,6 +44,12 @@ public class MatriculaTest
     @AfterEach
     public void tearDown()
     {
+        if (matriculaDeTeste != null) {
+            Repositorios.MATRICULA.delete(matriculaDeTeste);
+        }
+        if (turmaDeTeste != null) {
+            Repositorios.TURMA.delete(turmaDeTeste);
+        }
         if (disciplinaCriada != null) {
             Repositorios.DISCIPLINA.delete(disciplinaCriada);
         }
@@ -81,4 +98,100 @@ public class MatriculaTest
         // Deletar turma criada
         Repositorios.TURMA.delete(turmaCriada);
     }
+
+    /**
+     * Cria uma turma da disciplina de teste e uma matrícula confirmada
+     * nela; ambas são removidas em {@link #tearDown()}.
+     */
+    private Matricula criarMatricula()
+    {
+        Turma turma = new Turma();
+        turma.setCodigo("TURMA999");
+        turma.setDisciplina(disciplinaCriada);
+        turma.setVagasDisponiveis(30);
+        turmaDeTeste = Repositorios.TURMA.create(turma);
+
+        Matricula matricula = new Matricula();
+        matricula.setEstudante(estudanteCriado);
+        matricula.setTurma(turmaDeTeste);
+        matricula.setStatus(StatusMatricula.CONFIRMADA);
+        matriculaDeTeste = Repositorios.MATRICULA.create(matricula);
+        return matriculaDeTeste;
+    }
+
+    @Test
+    public void testPlanoDeCargaCarregaAssociacoes()
+    {
+        int idMatricula = criarMatricula().getId();
+
+        // Associações carregadas pelo plano de carga do repositório
+        Matricula matriculaCarregada = Repositorios.MATRICULA.loadFromId(idMatricula);
+        assertEquals("Maria Teste", matriculaCarregada.getEstudante().getNomeCompleto(), "Estudante não carregado");
+        assertEquals("Disciplina de Teste", matriculaCarregada.getTurma().getDisciplina().getTitulo(), "Disciplina não carregada");
+    }
+
+    @Test
+    public void testCopiaDesatualizadaNaoSobrescreveAlteracao() throws SQLException
+    {
+        int idMatricula = criarMatricula().getId();
+
+        // Concorrência otimista: uma cópia desatualizada não sobrescreve a alteração
+        Matricula copiaAntiga = Repositorios.MATRICULA.loadFromId(idMatricula);
+        Matricula cancelada = Repositorios.MATRICULA.updateWithRetry(idMatricula,
+            m -> m.setStatus(StatusMatricula.CANCELADA), 3);
+        assertEquals(copiaAntiga.getVersao() + 1, cancelada.getVersao(), "Versão não incrementada");
+        copiaAntiga.setStatus(StatusMatricula.SOLICITADA);
+        assertThrows(OptimisticLockException.class,
+            () -> Repositorios.MATRICULA.updateOrThrow(copiaAntiga), "Conflito de versão não detectado");
+        assertEquals(StatusMatricula.CANCELADA, Repositorios.MATRICULA.loadFromId(idMatricula).getStatus(),
+            "Alteração sobrescrita por cópia desatualizada");
+    }
+
+    @Test
+    public void testConsultaFiltraPorEstudanteEStatus()
+    {
+        int idMatricula = criarMatricula().getId();
+
+        // Filtro executado pelo SQLite
+        assertEquals(List.of(idMatricula), Repositorios.MATRICULA.query()
+            .where(Matricula.ESTUDANTE.eq(estudanteCriado))
+            .where(Matricula.STATUS.in(StatusMatricula.CONFIRMADA, StatusMatricula.SOLICITADA))
+            .list().stream().map(Matricula::getId).toList(), "Filtro por estudante e status incorreto");
+        assertTrue(Repositorios.MATRICULA.query()
+            .where(Matricula.ESTUDANTE.eq(estudanteCriado))
+            .where(Matricula.STATUS.eq(StatusMatricula.CANCELADA))
+            .list().isEmpty(), "Filtro por status ignorado");
+    }
+
+    @Test
+    public void testResumoTrazApenasColunasDaListagem()
+    {
+        int idMatricula = criarMatricula().getId();
+
+        // Projeção com apenas as colunas da listagem
+        MatriculaResumo resumo = MatriculaResumo.listar().stream()
+            .filter(r -> r.id() == idMatricula).findFirst().orElseThrow();
+        assertEquals(new MatriculaResumo(idMatricula, "Maria Teste", "TURMA999", "Disciplina de Teste",
+            StatusMatricula.CONFIRMADA), resumo, "Resumo da matrícula incorreto");
+    }
+
+    @Test
+    public void testConsultasFrequentesUsamIndices()
+    {
+        // diagnoseQueries() também devolve as consultas já compiladas por
+        // query(), que dependem dos testes executados antes; só as
+        // registradas em Repositorios são verificadas aqui
+        Set<String> registradas = Set.of("estudante por matrícula", "turma por código",
+            "turmas da disciplina", "matrículas do estudante", "matrículas da turma");
+        List<QueryPlan> planos = new ArrayList<>();
+        planos.addAll(Repositorios.ESTUDANTE.diagnoseQueries());
+        planos.addAll(Repositorios.TURMA.diagnoseQueries());
+        planos.addAll(Repositorios.MATRICULA.diagnoseQueries());
+        planos.removeIf(plano -> !registradas.contains(plano.name()));
+        assertEquals(registradas, planos.stream().map(QueryPlan::name).collect(Collectors.toSet()),
+            "Consultas registradas não analisadas");
+        for (QueryPlan plano : planos) {
+            assertFalse(plano.hasFullScan(), "Consulta sem índice: " + plano);
+        }
+    }
 }
@@ -67,6 +67,8 @@ public class TurmaTest
             "Turma com código salvo incorreto";
         assert( turma_salva.getVagasDisponiveis() == 40 ):
             "Turma com vagas disponíveis inválidas";
+        assert( repoTurmas.query().where(Turma.DISCIPLINA.eq(disciplina)).first().getId() == turma_salva.getId() ):
+            "Turma não encontrada pela disciplina";
         repoTurmas.delete(turma_salva);
         assert( repoTurmas.loadFromId(turma_salva.getId()) == null ):
             "Turma não deletada corretamente";
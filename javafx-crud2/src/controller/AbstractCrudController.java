@@ -2,9 +2,16 @@ package controller;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.Alert;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableView;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Controlador base genérico para operações CRUD.
  *
@@ -46,9 +53,31 @@ public abstract class AbstractCrudController<E, V, ID> {
     // Seta o ID na entidade
     protected abstract void setIdOnEntity(E entidade, ID id);
 
+    // Tamanho da página carregada sob demanda; 0 carrega a tabela inteira.
+    // Controladores de tabelas grandes sobrescrevem este método.
+    protected int getTamanhoPagina() {
+        return 0;
+    }
+
+    // Indica se a última página já foi carregada
+    private boolean fimDosRegistros = false;
+
+    // Chave do último registro da última página lida: o cursor da paginação.
+    // Não se usa o último item da tabela, que muda com inclusões e ordenação.
+    private ID ultimoIdCarregado = null;
+
+    // Registros incluídos na tela antes de sua página ser lida
+    private final Set<ID> incluidosForaDaPagina = new HashSet<>();
+
     // Inicializa dados e vincula seleção
     public void initialize() {
-        getTabela().setItems(loadAll());
+        if (getTamanhoPagina() > 0) {
+            getTabela().setItems(FXCollections.observableArrayList());
+            carregarProximaPagina();
+            carregarAoRolar();
+        } else {
+            getTabela().setItems(loadAll());
+        }
         getTabela().getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldSelection, newSelection) -> {
                     if (newSelection != null) {
@@ -68,6 +97,41 @@ public abstract class AbstractCrudController<E, V, ID> {
         return lista;
     }
 
+    // Anexa à tabela a página seguinte à última página lida
+    protected void carregarProximaPagina() {
+        if (fimDosRegistros) {
+            return;
+        }
+        ObservableList<V> itens = getTabela().getItems();
+        List<E> pagina = getRepositorio().loadPage(ultimoIdCarregado, getTamanhoPagina());
+        for (E entidade : pagina) {
+            V item = modelToView(entidade);
+            ID id = getIdFromViewModel(item);
+            ultimoIdCarregado = id;
+            if (!incluidosForaDaPagina.remove(id)) {
+                itens.add(item);
+            }
+        }
+        fimDosRegistros = pagina.size() < getTamanhoPagina();
+    }
+
+    // Carrega a próxima página quando a barra de rolagem chega ao fim
+    private void carregarAoRolar() {
+        getTabela().skinProperty().addListener((obs, antigo, novo) -> {
+            for (Node node : getTabela().lookupAll(".scroll-bar")) {
+                if (node instanceof ScrollBar
+                        && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                    ScrollBar barra = (ScrollBar) node;
+                    barra.valueProperty().addListener((o, valorAntigo, valor) -> {
+                        if (valor.doubleValue() >= barra.getMax()) {
+                            carregarProximaPagina();
+                        }
+                    });
+                }
+            }
+        });
+    }
+
     // Ação Adicionar
     public void onAdicionar() {
         getTabela().getSelectionModel().clearSelection();
@@ -95,6 +159,10 @@ public abstract class AbstractCrudController<E, V, ID> {
                 // Create
                 E salvo = getRepositorio().create(entidade);
                 V viewItem = modelToView(salvo);
+                if (getTamanhoPagina() > 0 && !fimDosRegistros) {
+                    // ainda virá em uma página futura; não deve aparecer duas vezes
+                    incluidosForaDaPagina.add(getIdFromViewModel(viewItem));
+                }
                 getTabela().getItems().add(viewItem);
                 getTabela().getSelectionModel().select(viewItem);
             }
@@ -151,6 +219,7 @@ public abstract class AbstractCrudController<E, V, ID> {
     
             // Remove da tabela
             getTabela().getItems().remove(selecionado);
+            incluidosForaDaPagina.remove(id);
             limparCampos();
             desabilitarCampos(true);
             desabilitarBotoes(false, true, true, true, true);
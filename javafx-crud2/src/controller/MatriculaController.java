@@ -112,6 +112,11 @@ public class MatriculaController extends AbstractCrudController<model.Matricula,
         super.initialize();
     }
 
+    @Override
+    protected int getTamanhoPagina() {
+        return 100;
+    }
+
     @Override
     protected Repositorio<Matricula, Integer> getRepositorio() {
         return matriculaRepo;
@@ -2,11 +2,14 @@ package model;
 
 import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.table.TableUtils;
 
 import java.sql.SQLException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class Repositorio<T, ID> {
 
@@ -16,6 +19,18 @@ public class Repositorio<T, ID> {
     private T loadedEntity;
     private Class<T> entityClass;
 
+    // Cache LRU de loadFromId: telas como a de matrícula buscam estudante e
+    // turma pelo ID a cada linha selecionada.
+    private static final int CACHE_SIZE = 256;
+    private final Map<ID, T> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ID, T> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    // Avança a cada invalidação; uma leitura feita antes dela não entra no cache
+    private long cacheVersion;
+
     public Repositorio(Database database, Class<T> entityClass) {
         this.entityClass = entityClass;
         setDatabase(database);
@@ -24,6 +39,10 @@ public class Repositorio<T, ID> {
 
     public void setDatabase(Database database) {
         Repositorio.database = database;
+        synchronized (cache) {
+            cache.clear();
+            cacheVersion++;
+        }
         try {
             dao = DaoManager.createDao(database.getConnection(), entityClass);
             TableUtils.createTableIfNotExists(database.getConnection(), entityClass);
@@ -50,6 +69,9 @@ public class Repositorio<T, ID> {
             dao.update(entity);
         } catch (SQLException e) {
             System.out.println(e);
+        } finally {
+            // também se falhar: a instância em cache pode ter sido alterada
+            invalidate(entity);
         }
     }
 
@@ -58,14 +80,42 @@ public class Repositorio<T, ID> {
             dao.delete(entity);
         } catch (SQLException e) {
             System.out.println(e);
+        } finally {
+            invalidate(entity);
+        }
+    }
+
+    private void invalidate(T entity) {
+        synchronized (cache) {
+            try {
+                cache.remove(dao.extractId(entity));
+            } catch (SQLException e) {
+                cache.clear();
+            }
+            cacheVersion++;
         }
     }
 
     public T loadFromId(ID id) {
+        long version;
+        synchronized (cache) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                this.loadedEntity = cached;
+                return cached;
+            }
+            version = cacheVersion;
+        }
         try {
-            this.loadedEntity = dao.queryForId(id);
-            if (this.loadedEntity != null)
-                this.loadedEntities.add(this.loadedEntity);
+            T entity = dao.queryForId(id);
+            this.loadedEntity = entity;
+            if (entity != null) {
+                this.loadedEntities.add(entity);
+                synchronized (cache) {
+                    if (cacheVersion == version)
+                        cache.put(id, entity);
+                }
+            }
         } catch (SQLException e) {
             System.out.println(e);
         }
@@ -83,5 +133,21 @@ public class Repositorio<T, ID> {
         return this.loadedEntities;
     }
 
+    // Paginação por chave (keyset): WHERE id > afterId ORDER BY id LIMIT limit.
+    // Diferente de OFFSET, a página N custa o mesmo que a primeira.
+    public List<T> loadPage(ID afterId, int limit) {
+        try {
+            String idColumn = dao.getTableInfo().getIdField().getColumnName();
+            QueryBuilder<T, ID> query = dao.queryBuilder();
+            if (afterId != null) {
+                query.where().gt(idColumn, afterId);
+            }
+            return query.orderBy(idColumn, true).limit((long) limit).query();
+        } catch (SQLException e) {
+            System.out.println(e);
+            return new ArrayList<>();
+        }
+    }
+
     // Getters e setters podem ser adicionados se desejar
 }